@@ -0,0 +1,106 @@
+package net.endkind.enderCore.benchmark;
+
+import net.endkind.enderCore.utils.AnsiTextFormatter;
+import net.endkind.enderCore.utils.ColorDepth;
+import net.endkind.enderCore.utils.EnderColor;
+import net.kyori.adventure.text.format.TextColor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnsiTextFormatterBenchmark {
+    private static final int SIZE = 64;
+
+    @Param({"TRUECOLOR", "XTERM_256", "ANSI_16"})
+    public ColorDepth depth;
+
+    private final int[] rgbs = new int[SIZE];
+    private final int[][] arrays = new int[SIZE][];
+    private final String[] hexes = new String[SIZE];
+    private final TextColor[] textColors = new TextColor[SIZE];
+    private final EnderColor[] enderColors = new EnderColor[SIZE];
+    private final StringBuilder sb = new StringBuilder(AnsiTextFormatter.MAX_COLOR_LENGTH);
+    private final byte[] bytes = new byte[AnsiTextFormatter.MAX_COLOR_LENGTH];
+    private ColorDepth previous;
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.previous = AnsiTextFormatter.getColorDepth();
+        AnsiTextFormatter.setColorDepth(this.depth);
+
+        for (int i = 0; i < SIZE; i++) {
+            int rgb = (i * 0x3F1D27 + 0x102030) & 0xFFFFFF;
+
+            this.rgbs[i] = rgb;
+            this.arrays[i] = new int[]{rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF};
+            this.hexes[i] = EnderColor.rgbToHex(rgb);
+            this.textColors[i] = TextColor.color(rgb);
+            this.enderColors[i] = EnderColor.of(rgb);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        AnsiTextFormatter.setColorDepth(this.previous);
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & (SIZE - 1);
+    }
+
+    @Benchmark
+    public String rgbComponents() {
+        int[] rgb = this.arrays[this.next()];
+
+        return AnsiTextFormatter.textColor(rgb[0], rgb[1], rgb[2]);
+    }
+
+    @Benchmark
+    public String packedRgb() {
+        return AnsiTextFormatter.textColor(this.rgbs[this.next()]);
+    }
+
+    @Benchmark
+    public String rgbArray() {
+        return AnsiTextFormatter.textColor(this.arrays[this.next()]);
+    }
+
+    @Benchmark
+    public String hex() {
+        return AnsiTextFormatter.textColor(this.hexes[this.next()]);
+    }
+
+    @Benchmark
+    public String textColor() {
+        return AnsiTextFormatter.textColor(this.textColors[this.next()]);
+    }
+
+    @Benchmark
+    public String enderColor() {
+        return AnsiTextFormatter.textColor(this.enderColors[this.next()]);
+    }
+
+    @Benchmark
+    public StringBuilder appendToBuilder() {
+        this.sb.setLength(0);
+
+        return AnsiTextFormatter.appendTextColor(this.sb, this.rgbs[this.next()]);
+    }
+
+    @Benchmark
+    public int writeToBytes() {
+        return AnsiTextFormatter.writeTextColor(this.bytes, 0, this.rgbs[this.next()]);
+    }
+}
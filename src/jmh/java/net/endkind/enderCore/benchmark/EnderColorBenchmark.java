@@ -0,0 +1,75 @@
+package net.endkind.enderCore.benchmark;
+
+import net.endkind.enderCore.utils.EnderColor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EnderColorBenchmark {
+    private static final int SIZE = 64;
+
+    private final int[] rgbs = new int[SIZE];
+    private final String[] hexes = new String[SIZE];
+    private int index;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SIZE; i++) {
+            // Spread over the cube so the EnderColor.of cache sees hits and collisions
+            this.rgbs[i] = (i * 0x3F1D27 + 0x102030) & 0xFFFFFF;
+            this.hexes[i] = EnderColor.rgbToHex(this.rgbs[i]);
+        }
+    }
+
+    private int next() {
+        return this.index = (this.index + 1) & (SIZE - 1);
+    }
+
+    @Benchmark
+    public EnderColor constructFromHex() {
+        return new EnderColor(this.hexes[this.next()]);
+    }
+
+    @Benchmark
+    public EnderColor constructFromRgb() {
+        int rgb = this.rgbs[this.next()];
+
+        return new EnderColor(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+    }
+
+    @Benchmark
+    public EnderColor ofRgb() {
+        return EnderColor.of(this.rgbs[this.next()]);
+    }
+
+    @Benchmark
+    public EnderColor ofHex() {
+        return EnderColor.of(this.hexes[this.next()]);
+    }
+
+    @Benchmark
+    public int[] hexToRgb() {
+        return EnderColor.hexToRgb(this.hexes[this.next()]);
+    }
+
+    @Benchmark
+    public String rgbToHex() {
+        return EnderColor.rgbToHex(this.rgbs[this.next()]);
+    }
+
+    @Benchmark
+    public String rgbComponentsToHex() {
+        int rgb = this.rgbs[this.next()];
+
+        return EnderColor.rgbToHex(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF);
+    }
+}
@@ -0,0 +1,96 @@
+package net.endkind.enderCore.benchmark;
+
+import net.endkind.enderCore.api.LogOverflowPolicy;
+import net.endkind.enderCore.core.EnderLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Measures the cost of an EnderLogger call up to the handler, which discards the record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EnderLoggerBenchmark {
+    @Param({"false", "true"})
+    public boolean async;
+
+    private final Logger root = Logger.getLogger("");
+    private Handler[] handlers;
+    private EnderLogger logger;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        // EnderLogger's JUL loggers hand their records to the root logger
+        this.handlers = this.root.getHandlers();
+
+        for (Handler handler : this.handlers) {
+            this.root.removeHandler(handler);
+        }
+
+        this.root.addHandler(new NoopHandler());
+
+        this.logger = new EnderLogger("Benchmark", "#6400d4", true);
+
+        if (this.async) {
+            this.logger.enableAsync(8192, LogOverflowPolicy.BLOCK);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.logger.disableAsync();
+
+        for (Handler handler : this.root.getHandlers()) {
+            this.root.removeHandler(handler);
+        }
+
+        for (Handler handler : this.handlers) {
+            this.root.addHandler(handler);
+        }
+    }
+
+    @Benchmark
+    public void infoSingle() {
+        this.logger.info("Player joined the game");
+    }
+
+    @Benchmark
+    public void infoParts() {
+        this.logger.info("Player ", "Steve", " joined the game");
+    }
+
+    @Benchmark
+    public void infoPattern() {
+        this.logger.info("Player {} joined the game", ++this.counter);
+    }
+
+    @Benchmark
+    public void debugDisabled() {
+        this.logger.debug("Player {} moved", ++this.counter);
+    }
+
+    private static final class NoopHandler extends Handler {
+        @Override
+        public void publish(LogRecord record) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,86 @@
+package net.endkind.enderCore.benchmark;
+
+import net.endkind.enderCore.platform.papermc.EnderConfig;
+import net.endkind.enderCore.platform.papermc.EnderPlugin;
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageBenchmark {
+    private final Component single = Component.text("You joined the game");
+    private final Component[] parts = {
+            Component.text("You have "),
+            Component.text("5"),
+            Component.text(" new messages")
+    };
+
+    private EnderPlugin plugin;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        this.plugin = StubPlugin.create();
+    }
+
+    @Benchmark
+    public Component getPrefix() {
+        return this.plugin.getPrefix("Benchmark", "#6400d4", true);
+    }
+
+    @Benchmark
+    public Component genMessageSingle() {
+        return this.plugin.genMessage(this.single);
+    }
+
+    @Benchmark
+    public Component genMessageParts() {
+        return this.plugin.genMessage(this.parts);
+    }
+
+    /**
+     * JavaPlugin refuses to be constructed outside a plugin class loader, so the stub is allocated
+     * without running any constructor and only gets the config snapshot genMessage reads.
+     */
+    public static final class StubPlugin extends EnderPlugin {
+        static EnderPlugin create() throws ReflectiveOperationException {
+            Field unsafeField = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+
+            Object unsafe = unsafeField.get(null);
+            EnderPlugin plugin = (EnderPlugin) unsafe.getClass()
+                    .getMethod("allocateInstance", Class.class)
+                    .invoke(unsafe, StubPlugin.class);
+
+            YamlConfiguration config = new YamlConfiguration();
+            config.set("prefix.name", "Benchmark");
+            config.set("prefix.color", "#6400d4");
+            config.set("prefix.useArrow", true);
+
+            Field snapshot = EnderPlugin.class.getDeclaredField("enderConfig");
+            snapshot.setAccessible(true);
+            snapshot.set(plugin, EnderConfig.of(config));
+
+            return plugin;
+        }
+
+        @Override
+        public void onPluginEnable() {}
+
+        @Override
+        public void onPluginDisable() {}
+
+        @Override
+        public void reload() {}
+    }
+}
@@ -0,0 +1,7 @@
+package net.endkind.enderCore.api;
+
+public interface ICounter {
+    void increment();
+    void add(long amount);
+    long getCount();
+}
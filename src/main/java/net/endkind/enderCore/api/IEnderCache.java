@@ -0,0 +1,20 @@
+package net.endkind.enderCore.api;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface IEnderCache<K, V> {
+    V getIfPresent(K key);
+    V get(K key);
+    CompletableFuture<V> getAsync(K key);
+    void put(K key, V value);
+    void invalidate(K key);
+    void invalidateAll();
+    void cleanUp();
+    String getName();
+    long size();
+    long getWeight();
+    long getHitCount();
+    long getMissCount();
+    long getEvictionCount();
+    long getLoadFailureCount();
+}
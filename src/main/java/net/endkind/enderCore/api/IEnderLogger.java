@@ -1,11 +1,68 @@
 package net.endkind.enderCore.api;
 
+import net.kyori.adventure.text.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public interface IEnderLogger {
     void info(String... msg);
+    void info(Supplier<String> msg);
+    void info(String pattern, Object arg);
+    void info(String pattern, long arg);
+    void info(String pattern, float arg);
+    void info(String pattern, double arg);
+    void info(String pattern, char arg);
+    void info(String pattern, Object arg1, Object arg2);
     void warning(String... msg);
+    void warning(Supplier<String> msg);
+    void warning(String pattern, Object arg);
+    void warning(String pattern, long arg);
+    void warning(String pattern, float arg);
+    void warning(String pattern, double arg);
+    void warning(String pattern, char arg);
+    void warning(String pattern, Object arg1, Object arg2);
     void error(String... msg);
+    void error(Supplier<String> msg);
+    void error(String pattern, Object arg);
+    void error(String pattern, long arg);
+    void error(String pattern, float arg);
+    void error(String pattern, double arg);
+    void error(String pattern, char arg);
+    void error(String pattern, Object arg1, Object arg2);
     void debug(String... msg);
+    void debug(Supplier<String> msg);
+    void debug(String pattern, Object arg);
+    void debug(String pattern, long arg);
+    void debug(String pattern, float arg);
+    void debug(String pattern, double arg);
+    void debug(String pattern, char arg);
+    void debug(String pattern, Object arg1, Object arg2);
     void log(Level level, String... msg);
+    void log(Level level, Supplier<String> msg);
+    void log(Level level, String pattern, Object arg);
+    void log(Level level, String pattern, long arg);
+    void log(Level level, String pattern, float arg);
+    void log(Level level, String pattern, double arg);
+    void log(Level level, String pattern, char arg);
+    void log(Level level, String pattern, Object arg1, Object arg2);
+    void log(Level level, Component... msg);
+    void log(Level level, String msg, Throwable thrown);
+    void setLevel(Level level);
+    Level getLevel();
+    boolean isLoggable(Level level);
+    void enableAsync(int bufferSize, LogOverflowPolicy policy);
+    void disableAsync();
+    boolean isAsync();
+    void flush();
+    void enableRateLimit(double permitsPerSecond, int burst);
+    void disableRateLimit();
+    boolean isRateLimited();
+    void enableFileSink(Path directory, long maxBytes, Duration rotateInterval, int maxArchives) throws IOException;
+    void disableFileSink();
+    boolean hasFileSink();
+    long getRecordCount();
 }
@@ -1,10 +1,24 @@
 package net.endkind.enderCore.api;
 
+import net.endkind.enderCore.core.EnderCache;
 import net.endkind.enderCore.core.EnderLogger;
+import net.endkind.enderCore.platform.papermc.Broadcast;
+import net.endkind.enderCore.platform.papermc.EnderConfig;
+import net.endkind.enderCore.platform.papermc.EnderScheduler;
+import net.endkind.enderCore.platform.papermc.EventFilter;
+import net.endkind.enderCore.platform.papermc.command.EnderCommand;
+import net.endkind.enderCore.platform.papermc.message.MessageCatalog;
+import net.endkind.enderCore.platform.papermc.message.MessageTemplate;
 import net.kyori.adventure.text.Component;
 import org.bukkit.command.CommandExecutor;
+import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface IEnderPlugin {
     void onCoreEnable();
     void onCoreDisable();
@@ -14,8 +28,22 @@ public interface IEnderPlugin {
     int getRequiredConfigVersion();
     void loadConfig();
     void reload();
+    void reload(Set<String> changedKeys);
+    EnderConfig getEnderConfig();
     EnderLogger getEnderLogger();
+    EnderScheduler getEnderScheduler();
+    IMetricRegistry getMetrics();
     Component genMessage(Component... msg);
+    Component genMessage(String template, Object... values);
+    MessageTemplate getMessageTemplate(String source);
+    MessageCatalog getMessageCatalog();
+    Broadcast broadcast(Component message);
     void registerBukkitCommand(String name, CommandExecutor cmdExecutor);
+    void registerBukkitCommand(EnderCommand command);
     void registerListener(Listener listener);
+    void registerListener(Listener listener, EventFilter filter);
+    <E extends Event> void registerCoalescing(Class<E> eventClass, EventFilter filter, Consumer<List<E>> handler);
+    <K, V> IEnderCache<K, V> registerCache(String name, EnderCache.Builder<K, V> builder);
+    IEnderStore openStore(String name) throws IOException;
+    void registerInitTask(String name, TaskAffinity affinity, Runnable task, String... dependsOn);
 }
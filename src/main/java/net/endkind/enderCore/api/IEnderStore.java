@@ -0,0 +1,18 @@
+package net.endkind.enderCore.api;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public interface IEnderStore extends AutoCloseable {
+    byte[] get(String key) throws IOException;
+    String getString(String key) throws IOException;
+    void put(String key, byte[] value);
+    void putString(String key, String value);
+    void delete(String key);
+    boolean contains(String key);
+    Set<String> keys();
+    CompletableFuture<Void> flush();
+    @Override
+    void close();
+}
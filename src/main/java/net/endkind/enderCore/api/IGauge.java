@@ -0,0 +1,5 @@
+package net.endkind.enderCore.api;
+
+public interface IGauge {
+    double getValue();
+}
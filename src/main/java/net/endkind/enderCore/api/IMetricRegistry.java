@@ -0,0 +1,15 @@
+package net.endkind.enderCore.api;
+
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+public interface IMetricRegistry {
+    ICounter counter(String name, String help, String... labels);
+    void counter(String name, String help, LongSupplier count, String... labels);
+    IGauge gauge(String name, String help, DoubleSupplier value, String... labels);
+    ITimer timer(String name, String help, String... labels);
+    IMetricRegistry withLabels(String... labels);
+    void unregister(String... labels);
+    void writePrometheus(Appendable out) throws IOException;
+}
@@ -0,0 +1,9 @@
+package net.endkind.enderCore.api;
+
+import net.endkind.enderCore.core.LatencyHistogram;
+
+public interface ITimer {
+    void record(long nanos);
+    void time(Runnable task);
+    LatencyHistogram getHistogram();
+}
@@ -0,0 +1,24 @@
+package net.endkind.enderCore.api;
+
+/**
+ * Decides what an asynchronous {@link IEnderLogger} does when its ring buffer is full.
+ */
+public enum LogOverflowPolicy {
+    /**
+     * The logging thread waits until the background writer has freed a slot.
+     * No record is ever lost, but a stalled console can slow down the caller.
+     */
+    BLOCK,
+
+    /**
+     * The oldest records with the lowest level are discarded, up to a quarter of the buffer at once.
+     * If the incoming record has the lowest level itself, it is the one that gets dropped.
+     */
+    DROP_LOWEST_LEVEL,
+
+    /**
+     * A record identical to the most recently queued one only increments its repeat counter.
+     * Any other record waits for a free slot like with {@link #BLOCK}, so it is never lost.
+     */
+    COALESCE
+}
@@ -0,0 +1,17 @@
+package net.endkind.enderCore.api;
+
+/**
+ * Decides which thread runs an init task registered through {@link IEnderPlugin#registerInitTask}.
+ */
+public enum TaskAffinity {
+    /**
+     * The task runs on the server thread, e.g. because it touches the Bukkit API.
+     */
+    MAIN,
+
+    /**
+     * The task runs on a shared fork/join pool, in parallel with other tasks whose
+     * dependencies are done. Suited for I/O and for work that does not touch the world.
+     */
+    ASYNC
+}
@@ -0,0 +1,354 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.LogOverflowPolicy;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded ring buffer of pending log records that is drained in batches by a single background thread.
+ * The slots are allocated once, so enqueueing a record only stores two references and a counter.
+ */
+final class AsyncLogWriter {
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Lower bounds of the level ranks DROP_LOWEST_LEVEL compares, custom levels share the rank of the standard level below them
+    private static final int[] RANKS = {
+            Level.FINEST.intValue(), Level.FINER.intValue(), Level.FINE.intValue(), Level.CONFIG.intValue(),
+            Level.INFO.intValue(), Level.WARNING.intValue(), Level.SEVERE.intValue()
+    };
+
+    private final EnderLogger owner;
+    private final Logger console;
+    private final LogOverflowPolicy policy;
+    private final int capacity;
+
+    private final Level[] levels;
+    private final String[][] messages;
+    private final int[] repeats;
+    private final int[] rankCounts = new int[RANKS.length + 1];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    private final Thread thread;
+
+    private int head;
+    private int size;
+    private long enqueued;
+    private long written;
+    private long dropped;
+    private boolean running = true;
+
+    AsyncLogWriter(EnderLogger owner, String name, Logger console, int capacity, LogOverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Log buffer size must be at least 1");
+        }
+
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+
+        this.owner = owner;
+        this.console = console;
+        this.policy = policy;
+        this.capacity = capacity;
+
+        this.levels = new Level[capacity];
+        this.messages = new String[capacity][];
+        this.repeats = new int[capacity];
+
+        this.thread = new Thread(this::run, "EnderLogger-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a record for the background writer.
+     *
+     * @return {@code false} if the record was not taken and has to be written by the caller
+     */
+    boolean offer(Level level, String[] msg) {
+        // A handler that logs from the writer thread must never wait on its own buffer
+        if (Thread.currentThread() == this.thread) {
+            return false;
+        }
+
+        this.lock.lock();
+
+        try {
+            if (!this.running) {
+                return false;
+            }
+
+            if (this.size == this.capacity) {
+                switch (this.policy) {
+                    case BLOCK -> {
+                        if (!this.awaitSlot()) {
+                            return false;
+                        }
+                    }
+                    case DROP_LOWEST_LEVEL -> {
+                        if (!this.dropLowestLevel(level)) {
+                            this.dropped++;
+                            return true;
+                        }
+                    }
+                    case COALESCE -> {
+                        if (this.coalesce(level, msg)) {
+                            return true;
+                        }
+
+                        if (!this.awaitSlot()) {
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            int tail = (this.head + this.size) % this.capacity;
+
+            this.levels[tail] = level;
+            this.messages[tail] = msg;
+            this.repeats[tail] = 1;
+            this.rankCounts[rank(level)]++;
+
+            this.size++;
+            this.enqueued++;
+
+            this.notEmpty.signal();
+
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every record queued before this call has been handed to the underlying logger.
+     */
+    void flush() {
+        if (Thread.currentThread() == this.thread) {
+            return;
+        }
+
+        this.lock.lock();
+
+        try {
+            long target = this.enqueued;
+
+            while (this.written < target && this.thread.isAlive()) {
+                this.drained.awaitNanos(FLUSH_POLL_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting records, writes everything that is still queued and waits for the writer to exit.
+     */
+    void shutdown() {
+        this.lock.lock();
+
+        try {
+            this.running = false;
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (Thread.currentThread() == this.thread) {
+            return;
+        }
+
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean awaitSlot() {
+        while (this.size == this.capacity && this.running) {
+            this.notFull.awaitUninterruptibly();
+        }
+
+        return this.running;
+    }
+
+    /**
+     * Makes room by discarding the oldest records of the lowest level in the buffer, if the incoming record is above it.
+     * Up to a quarter of the buffer is freed in one pass, so a sustained flood does not compact the buffer for every record.
+     */
+    private boolean dropLowestLevel(Level level) {
+        int lowest = 0;
+
+        while (this.rankCounts[lowest] == 0) {
+            lowest++;
+        }
+
+        if (rank(level) <= lowest) {
+            return false;
+        }
+
+        int limit = Math.max(1, Math.min(this.rankCounts[lowest], this.capacity / 4));
+        int removed = 0;
+
+        for (int i = 0; i < this.size; i++) {
+            int from = (this.head + i) % this.capacity;
+
+            if (removed < limit && rank(this.levels[from]) == lowest) {
+                removed++;
+            } else if (removed > 0) {
+                int to = (this.head + i - removed) % this.capacity;
+
+                this.levels[to] = this.levels[from];
+                this.messages[to] = this.messages[from];
+                this.repeats[to] = this.repeats[from];
+            }
+        }
+
+        for (int i = this.size - removed; i < this.size; i++) {
+            int index = (this.head + i) % this.capacity;
+
+            this.levels[index] = null;
+            this.messages[index] = null;
+        }
+
+        this.rankCounts[lowest] -= removed;
+        this.size -= removed;
+        this.dropped += removed;
+
+        // Dropped records count as handled, so a pending flush does not wait for them
+        this.written += removed;
+        this.drained.signalAll();
+
+        return true;
+    }
+
+    private boolean coalesce(Level level, String[] msg) {
+        int last = (this.head + this.size - 1) % this.capacity;
+
+        if (this.levels[last] == level && Arrays.equals(this.messages[last], msg)) {
+            this.repeats[last]++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private static int rank(Level level) {
+        int value = level.intValue();
+
+        for (int i = RANKS.length - 1; i >= 0; i--) {
+            if (value >= RANKS[i]) {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    private void run() {
+        Level[] batchLevels = new Level[BATCH_SIZE];
+        String[][] batchMessages = new String[BATCH_SIZE][];
+        int[] batchRepeats = new int[BATCH_SIZE];
+
+        try {
+            this.drain(batchLevels, batchMessages, batchRepeats);
+        } finally {
+            // Whatever ends the writer, callers must fall back to writing themselves instead of waiting on it
+            this.lock.lock();
+
+            try {
+                this.running = false;
+                this.notFull.signalAll();
+                this.drained.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private void drain(Level[] batchLevels, String[][] batchMessages, int[] batchRepeats) {
+        while (true) {
+            int count;
+            long lost;
+
+            this.lock.lock();
+
+            try {
+                while (this.size == 0 && this.running) {
+                    this.notEmpty.awaitUninterruptibly();
+                }
+
+                if (this.size == 0) {
+                    this.drained.signalAll();
+                    return;
+                }
+
+                count = Math.min(this.size, BATCH_SIZE);
+
+                for (int i = 0; i < count; i++) {
+                    int index = (this.head + i) % this.capacity;
+
+                    batchLevels[i] = this.levels[index];
+                    batchMessages[i] = this.messages[index];
+                    batchRepeats[i] = this.repeats[index];
+                    this.rankCounts[rank(batchLevels[i])]--;
+
+                    this.levels[index] = null;
+                    this.messages[index] = null;
+                }
+
+                this.head = (this.head + count) % this.capacity;
+                this.size -= count;
+
+                lost = this.dropped;
+                this.dropped = 0;
+
+                this.notFull.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+
+            for (int i = 0; i < count; i++) {
+                try {
+                    this.owner.write(batchLevels[i], batchMessages[i], batchRepeats[i]);
+                } catch (RuntimeException e) {
+                    this.console.log(Level.SEVERE, "Could not write a log record", e);
+                }
+
+                batchLevels[i] = null;
+                batchMessages[i] = null;
+            }
+
+            if (lost > 0) {
+                try {
+                    this.owner.write(Level.WARNING, new String[]{"Log buffer overflowed, dropped ", String.valueOf(lost), " records"}, 1);
+                } catch (RuntimeException e) {
+                    this.console.log(Level.SEVERE, "Could not write a log record", e);
+                }
+            }
+
+            this.lock.lock();
+
+            try {
+                this.written += count;
+                this.drained.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+}
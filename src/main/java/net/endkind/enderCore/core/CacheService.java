@@ -0,0 +1,152 @@
+package net.endkind.enderCore.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the {@link EnderCache}s of every EnderCore-based plugin.
+ * <p>
+ * The weight of every weighted cache counts towards one memory budget. When a write pushes the total
+ * over the budget, entries are evicted from the heaviest caches first, so a single plugin caching too
+ * much shrinks before the others do.
+ * </p>
+ */
+public final class CacheService {
+    private static final Map<String, List<EnderCache<?, ?>>> CACHES = new ConcurrentHashMap<>();
+    private static final AtomicLong WEIGHT = new AtomicLong();
+    private static volatile long budget;
+
+    private CacheService() {}
+
+    /**
+     * Adds {@code cache} to the caches of {@code owner}.
+     *
+     * @throws IllegalArgumentException if the owner already has a cache with the same name
+     */
+    public static void register(String owner, EnderCache<?, ?> cache) {
+        List<EnderCache<?, ?>> caches = CACHES.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>());
+
+        synchronized (caches) {
+            for (EnderCache<?, ?> existing : caches) {
+                if (existing.getName().equals(cache.getName())) {
+                    throw new IllegalArgumentException("Cache " + cache.getName() + " is already registered by " + owner);
+                }
+            }
+
+            caches.add(cache);
+        }
+
+        if (cache.isWeighted()) {
+            adjust(cache.getWeight());
+            cache.setAccounted(true);
+        }
+    }
+
+    /**
+     * Empties and forgets all caches of {@code owner}, e.g. when the plugin is disabled.
+     */
+    public static void unregister(String owner) {
+        List<EnderCache<?, ?>> caches = CACHES.remove(owner);
+
+        if (caches == null) {
+            return;
+        }
+
+        for (EnderCache<?, ?> cache : caches) {
+            cache.invalidateAll();
+            cache.setAccounted(false);
+        }
+    }
+
+    /**
+     * @return the caches of every plugin by plugin name
+     */
+    public static Map<String, List<EnderCache<?, ?>>> getCaches() {
+        return Map.copyOf(CACHES);
+    }
+
+    /**
+     * @return the summed weight of the weighted caches of {@code owner}
+     */
+    public static long getWeight(String owner) {
+        long weight = 0;
+
+        for (EnderCache<?, ?> cache : CACHES.getOrDefault(owner, List.of())) {
+            if (cache.isWeighted()) {
+                weight += cache.getWeight();
+            }
+        }
+
+        return weight;
+    }
+
+    public static long getTotalWeight() {
+        return WEIGHT.get();
+    }
+
+    public static long getMemoryBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the estimated bytes all weighted caches may hold together, 0 for no limit.
+     */
+    public static void setMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative");
+        }
+
+        budget = bytes;
+        adjust(0);
+    }
+
+    /**
+     * Removes the expired entries of every cache.
+     */
+    public static void cleanUpAll() {
+        for (List<EnderCache<?, ?>> caches : CACHES.values()) {
+            for (EnderCache<?, ?> cache : caches) {
+                cache.cleanUp();
+            }
+        }
+    }
+
+    static void adjust(long delta) {
+        long total = WEIGHT.addAndGet(delta);
+        long limit = budget;
+
+        if (limit > 0 && total > limit && delta >= 0) {
+            shrink(total - limit);
+        }
+    }
+
+    private static void shrink(long excess) {
+        List<EnderCache<?, ?>> weighted = new ArrayList<>();
+
+        for (List<EnderCache<?, ?>> caches : CACHES.values()) {
+            for (EnderCache<?, ?> cache : caches) {
+                if (cache.isWeighted() && cache.getWeight() > 0) {
+                    weighted.add(cache);
+                }
+            }
+        }
+
+        weighted.sort(Comparator.comparingLong((EnderCache<?, ?> cache) -> cache.getWeight()).reversed());
+
+        long freed = 0;
+
+        for (EnderCache<?, ?> cache : weighted) {
+            if (freed >= excess) {
+                break;
+            }
+
+            // The heaviest cache gives up as much as it can before the next one is touched
+            freed += cache.evictWeight(excess - freed);
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.IEnderCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A bounded cache with frequency-aware eviction.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, the eviction order in a segmented LRU: new entries join
+ * the probation segment and move to the protected segment (80% of the capacity) when they are read again.
+ * When the cache is full, a {@link FrequencySketch} decides whether a new entry is worth more than the
+ * probation entry it would replace (TinyLFU admission), so a burst of one-off keys cannot flush the
+ * entries that are read all the time. The sketch of a weighted cache, whose entry count is not known up
+ * front, starts small and grows with the number of entries.
+ * </p>
+ * <p>
+ * Reads only record their access if the policy lock is free, a busy cache skips reordering rather
+ * than making readers wait. Concurrent misses of a key share one load. Weighted caches count towards
+ * the memory budget of {@link CacheService} once registered there.
+ * </p>
+ */
+public final class EnderCache<K, V> implements IEnderCache<K, V> {
+    private static final double PROTECTED_SHARE = 0.8;
+    private static final byte NONE = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final String name;
+    private final long maximum;
+    private final long maximumProtected;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final Function<? super K, ? extends V> loader;
+    private final Executor executor;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node<K, V> probation = new Node<>(null, null, 0, 0);
+    private final Node<K, V> protectedSegment = new Node<>(null, null, 0, 0);
+    private volatile long weight;
+    private long protectedWeight;
+    private volatile boolean accounted;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    private EnderCache(String name, Builder<K, V> builder) {
+        this.name = name;
+        this.maximum = builder.maximum;
+        this.maximumProtected = (long) (builder.maximum * PROTECTED_SHARE);
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.loader = builder.loader;
+        this.executor = builder.executor;
+        this.sketch = new FrequencySketch(builder.weigher == null ? builder.maximum : 0);
+
+        this.probation.prev = this.probation.next = this.probation;
+        this.protectedSegment.prev = this.protectedSegment.next = this.protectedSegment;
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    // #region read
+    @Override
+    public V getIfPresent(K key) {
+        Node<K, V> node = this.data.get(key);
+
+        if (node == null) {
+            this.misses.increment();
+            this.afterMiss(key);
+            return null;
+        }
+
+        long now = this.hasExpiry() ? System.nanoTime() : 0;
+
+        if (this.isExpired(node, now)) {
+            this.misses.increment();
+            this.discard(node);
+
+            return null;
+        }
+
+        this.hits.increment();
+        node.accessNanos = now;
+        this.afterHit(node);
+
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value or loads it on the calling thread. If another thread is already loading
+     * {@code key}, waits for that load instead.
+     *
+     * @throws IllegalStateException if the cache has no loader
+     * @throws java.util.concurrent.CompletionException if the loader failed
+     */
+    @Override
+    public V get(K key) {
+        V value = this.getIfPresent(key);
+
+        return value != null ? value : this.load(key, true).join();
+    }
+
+    /**
+     * Returns the cached value, or loads it on the executor of the cache. Concurrent misses of the
+     * same key share one load.
+     *
+     * @throws IllegalStateException if the cache has no loader
+     */
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        V value = this.getIfPresent(key);
+
+        return value != null ? CompletableFuture.completedFuture(value) : this.load(key, false);
+    }
+
+    private CompletableFuture<V> load(K key, boolean inline) {
+        if (this.loader == null) {
+            throw new IllegalStateException("Cache " + this.name + " has no loader");
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = this.loading.putIfAbsent(key, future);
+
+        if (running != null) {
+            return running;
+        }
+
+        Runnable task = () -> {
+            try {
+                V value = this.loader.apply(key);
+
+                this.lock.lock();
+
+                try {
+                    // An invalidate during the load has removed the future, the value may predate it
+                    if (this.loading.remove(key, future) && value != null) {
+                        this.put(key, value);
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+
+                future.complete(value);
+            } catch (Throwable t) {
+                this.loadFailures.increment();
+                this.loading.remove(key, future);
+                future.completeExceptionally(t);
+            }
+        };
+
+        if (inline) {
+            task.run();
+        } else {
+            this.executor.execute(task);
+        }
+
+        return future;
+    }
+    // #endregion
+
+    // #region write
+    /**
+     * @throws IllegalArgumentException if the weigher returns a negative weight
+     */
+    @Override
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value must not be null");
+        }
+
+        long weight = this.weigher == null ? 1 : this.weigher.applyAsLong(key, value);
+
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+
+        Node<K, V> node = new Node<>(key, value, weight, this.hasExpiry() ? System.nanoTime() : 0);
+        long delta;
+
+        this.lock.lock();
+
+        try {
+            long before = this.weight;
+
+            if (this.weigher != null) {
+                this.sketch.ensureCapacity(this.data.size() + 1L);
+            }
+
+            this.sketch.increment(key);
+
+            Node<K, V> old = this.data.put(key, node);
+
+            if (old != null && old.segment != NONE) {
+                // An update keeps the segment of the entry and skips admission, the key already earned its place
+                byte segment = old.segment;
+
+                this.unlink(old);
+                this.weight -= old.weight;
+
+                if (segment == PROTECTED) {
+                    this.link(this.protectedSegment, node);
+                    this.protectedWeight += weight;
+                    this.demote(node);
+                } else {
+                    this.link(this.probation, node);
+                }
+
+                this.weight += weight;
+                this.evict(null);
+            } else {
+                this.link(this.probation, node);
+                this.weight += weight;
+                this.evict(node);
+            }
+
+            delta = this.weight - before;
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.account(delta);
+    }
+
+    /**
+     * Removes {@code key}. A load of it that is still running completes for its callers, but its value is not cached.
+     */
+    @Override
+    public void invalidate(K key) {
+        long delta;
+
+        this.lock.lock();
+
+        try {
+            long before = this.weight;
+
+            this.loading.remove(key);
+
+            Node<K, V> node = this.data.get(key);
+
+            if (node != null) {
+                this.remove(node);
+            }
+
+            delta = this.weight - before;
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.account(delta);
+    }
+
+    private void discard(Node<K, V> node) {
+        long delta;
+
+        this.lock.lock();
+
+        try {
+            long before = this.weight;
+
+            this.remove(node);
+
+            delta = this.weight - before;
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.account(delta);
+    }
+
+    @Override
+    public void invalidateAll() {
+        long delta;
+
+        this.lock.lock();
+
+        try {
+            delta = -this.weight;
+
+            this.loading.clear();
+
+            for (Node<K, V> node : this.data.values()) {
+                node.segment = NONE;
+            }
+
+            this.data.clear();
+            this.probation.prev = this.probation.next = this.probation;
+            this.protectedSegment.prev = this.protectedSegment.next = this.protectedSegment;
+            this.weight = 0;
+            this.protectedWeight = 0;
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.account(delta);
+    }
+
+    /**
+     * Removes expired entries. Expired entries are never returned, but without reads they are only
+     * dropped by this method, which {@link CacheService#cleanUpAll()} calls periodically.
+     */
+    @Override
+    public void cleanUp() {
+        if (!this.hasExpiry()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long delta;
+
+        this.lock.lock();
+
+        try {
+            long before = this.weight;
+
+            this.removeExpired(this.probation, now);
+            this.removeExpired(this.protectedSegment, now);
+
+            delta = this.weight - before;
+        } finally {
+            this.lock.unlock();
+        }
+
+        this.account(delta);
+    }
+    // #endregion
+
+    // #region policy
+    private void afterHit(Node<K, V> node) {
+        if (!this.lock.tryLock()) {
+            return;
+        }
+
+        try {
+            this.sketch.increment(node.key);
+
+            if (node.segment == PROBATION) {
+                this.unlink(node);
+                this.link(this.protectedSegment, node);
+                this.protectedWeight += node.weight;
+                this.demote(node);
+            } else if (node.segment == PROTECTED) {
+                this.unlink(node);
+                this.link(this.protectedSegment, node);
+                this.protectedWeight += node.weight;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void afterMiss(K key) {
+        if (key == null || !this.lock.tryLock()) {
+            return;
+        }
+
+        try {
+            this.sketch.increment(key);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // Moves the least recently used protected entries back to probation until the segment fits, except keep
+    private void demote(Node<K, V> keep) {
+        while (this.protectedWeight > this.maximumProtected && this.protectedSegment.next != keep) {
+            Node<K, V> demoted = this.protectedSegment.next;
+
+            this.unlink(demoted);
+            this.link(this.probation, demoted);
+        }
+    }
+
+    // Evicts until the cache fits, candidate is the entry that was just added
+    private void evict(Node<K, V> candidate) {
+        while (this.weight > this.maximum) {
+            Node<K, V> victim = this.probation.next != this.probation ? this.probation.next : this.protectedSegment.next;
+
+            if (victim == this.protectedSegment) {
+                return;
+            }
+
+            if (candidate != null && candidate.segment != NONE && victim != candidate
+                    && this.sketch.frequency(candidate.key) <= this.sketch.frequency(victim.key)) {
+                victim = candidate;
+            }
+
+            if (victim == candidate) {
+                candidate = null;
+            }
+
+            this.remove(victim);
+            this.evictions.increment();
+        }
+    }
+
+    /**
+     * Evicts least recently used entries worth at least {@code amount}, unless the cache is busy.
+     *
+     * @return the weight that was freed
+     */
+    long evictWeight(long amount) {
+        if (!this.lock.tryLock()) {
+            return 0;
+        }
+
+        long freed;
+
+        try {
+            long before = this.weight;
+
+            while (before - this.weight < amount) {
+                Node<K, V> victim = this.probation.next != this.probation ? this.probation.next : this.protectedSegment.next;
+
+                if (victim == this.protectedSegment) {
+                    break;
+                }
+
+                this.remove(victim);
+                this.evictions.increment();
+            }
+
+            freed = before - this.weight;
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (this.accounted) {
+            CacheService.adjust(-freed);
+        }
+
+        return freed;
+    }
+
+    private void removeExpired(Node<K, V> head, long now) {
+        Node<K, V> node = head.next;
+
+        while (node != head) {
+            Node<K, V> next = node.next;
+
+            if (this.isExpired(node, now)) {
+                this.remove(node);
+            }
+
+            node = next;
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        if (node.segment == NONE) {
+            return;
+        }
+
+        this.unlink(node);
+        this.weight -= node.weight;
+        this.data.remove(node.key, node);
+    }
+
+    private void link(Node<K, V> head, Node<K, V> node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        node.segment = head == this.probation ? PROBATION : PROTECTED;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.segment == PROTECTED) {
+            this.protectedWeight -= node.weight;
+        }
+
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = null;
+        node.segment = NONE;
+    }
+
+    private boolean hasExpiry() {
+        return this.expireAfterWriteNanos > 0 || this.expireAfterAccessNanos > 0;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (this.expireAfterWriteNanos > 0 && now - node.writeNanos >= this.expireAfterWriteNanos)
+                || (this.expireAfterAccessNanos > 0 && now - node.accessNanos >= this.expireAfterAccessNanos);
+    }
+
+    void setAccounted(boolean accounted) {
+        this.accounted = accounted;
+    }
+
+    private void account(long delta) {
+        if (delta != 0 && this.accounted) {
+            CacheService.adjust(delta);
+        }
+    }
+    // #endregion
+
+    // #region stats
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long size() {
+        return this.data.size();
+    }
+
+    /**
+     * @return the summed weight of all entries, or the entry count if the cache has no weigher
+     */
+    @Override
+    public long getWeight() {
+        return this.weight;
+    }
+
+    public long getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * @return whether the weight of this cache is an estimate in bytes that counts towards the memory budget
+     */
+    public boolean isWeighted() {
+        return this.weigher != null;
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return this.loadFailures.sum();
+    }
+
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + this.misses.sum();
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    // #endregion
+
+    public static final class Builder<K, V> {
+        private long maximum = -1;
+        private ToLongBiFunction<? super K, ? super V> weigher;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+        private Function<? super K, ? extends V> loader;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        private Builder() {}
+
+        /**
+         * Bounds the cache to {@code entries} entries.
+         */
+        public Builder<K, V> maximumSize(long entries) {
+            if (entries < 1) {
+                throw new IllegalArgumentException("Maximum size must be at least 1");
+            }
+
+            this.maximum = entries;
+            this.weigher = null;
+
+            return this;
+        }
+
+        /**
+         * Bounds the summed weight of the entries. The weigher should estimate the retained bytes of an
+         * entry, the weight then counts towards the memory budget shared by all plugins.
+         */
+        public Builder<K, V> maximumWeight(long bytes, ToLongBiFunction<? super K, ? super V> weigher) {
+            if (bytes < 1) {
+                throw new IllegalArgumentException("Maximum weight must be at least 1");
+            }
+
+            if (weigher == null) {
+                throw new IllegalArgumentException("Weigher must not be null");
+            }
+
+            this.maximum = bytes;
+            this.weigher = weigher;
+
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(Duration duration) {
+            this.expireAfterWriteNanos = positiveNanos(duration);
+
+            return this;
+        }
+
+        public Builder<K, V> expireAfterAccess(Duration duration) {
+            this.expireAfterAccessNanos = positiveNanos(duration);
+
+            return this;
+        }
+
+        /**
+         * Sets the function that {@link EnderCache#get} and {@link EnderCache#getAsync} use on a miss.
+         * A {@code null} result is not cached.
+         */
+        public Builder<K, V> loader(Function<? super K, ? extends V> loader) {
+            this.loader = loader;
+
+            return this;
+        }
+
+        /**
+         * Sets where {@link EnderCache#getAsync} runs the loader, the common fork/join pool by default.
+         */
+        public Builder<K, V> executor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor must not be null");
+            }
+
+            this.executor = executor;
+
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if neither a maximum size nor a maximum weight was set
+         */
+        public EnderCache<K, V> build(String name) {
+            if (this.maximum < 1) {
+                throw new IllegalArgumentException("Cache " + name + " needs a maximum size or weight");
+            }
+
+            return new EnderCache<>(name, this);
+        }
+
+        private static long positiveNanos(Duration duration) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive");
+            }
+
+            return duration.toNanos();
+        }
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final long writeNanos;
+        private volatile long accessNanos;
+        private byte segment;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, long weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = now;
+            this.accessNanos = now;
+        }
+    }
+}
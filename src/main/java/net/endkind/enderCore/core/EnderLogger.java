@@ -1,112 +1,715 @@
 package net.endkind.enderCore.core;
 
 import net.endkind.enderCore.api.IEnderLogger;
+import net.endkind.enderCore.api.LogOverflowPolicy;
+import net.endkind.enderCore.utils.AnsiComponentRenderer;
 import net.endkind.enderCore.utils.AnsiTextFormatter;
-
+import net.endkind.enderCore.utils.ColorDepth;
+import net.endkind.enderCore.utils.EnderColor;
+import net.kyori.adventure.text.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class EnderLogger implements IEnderLogger {
+    public static final Level DEBUG = Level.FINE;
+
     public String prefix;
-    private final Logger logger;
+    private final String name;
+    private final String hex;
+    private final boolean useArrow;
+    private volatile Console console;
+    private final LongAdder records = new LongAdder();
+    private volatile AsyncLogWriter asyncWriter;
+    private volatile LogRateLimiter rateLimiter;
+    private volatile LogFileSink fileSink;
+    private volatile Level level = Level.INFO;
+    private volatile int threshold = Level.INFO.intValue();
 
     public EnderLogger(String prefix, String hex, boolean useArrow) {
-        this.logger = this.getLogger(prefix, hex, useArrow);
+        this.name = prefix;
+        this.hex = hex;
+        this.useArrow = useArrow;
+        this.console();
     }
 
     public EnderLogger(String prefix, String hex) {
-        this.logger = this.getLogger(prefix, hex, true);
+        this(prefix, hex, true);
     }
 
     public EnderLogger(String prefix) {
-        this.logger = this.getLogger(prefix, "#6400d4", true);
+        this(prefix, "#6400d4", true);
+    }
+
+    /**
+     * Returns the JUL logger and prefix for the current color depth. The console prints the logger name as the
+     * prefix, so both are rebuilt when the depth was changed after this logger was created.
+     */
+    private Console console() {
+        ColorDepth depth = AnsiTextFormatter.getColorDepth();
+        Console console = this.console;
+
+        if (console == null || console.depth != depth) {
+            console = this.getConsole(depth);
+            this.console = console;
+            this.prefix = console.prefix;
+        }
+
+        return console;
     }
 
-    private Logger getLogger(String prefix, String hex, boolean useArrow) {
-        this.prefix = this.getPrefix(prefix, hex, useArrow);
+    private Console getConsole(ColorDepth depth) {
+        if (depth == ColorDepth.NONE) {
+            // Without escapes the console shows the plain "[name]" prefix, so the arrow and cursor moves are skipped
+            return new Console(depth, Logger.getLogger(this.name), this.name);
+        }
+
+        String prefix = this.getPrefix(this.name, this.hex, this.useArrow);
 
         StringBuilder sb = new StringBuilder();
 
         sb.append("\u001B[1D");
-        sb.append(this.prefix);
+        sb.append(prefix);
 
         sb.append(AnsiTextFormatter.RESET);
 
-        return Logger.getLogger(sb.toString());
+        return new Console(depth, Logger.getLogger(sb.toString()), prefix);
     }
 
     private String getPrefix(String prefix, String hex, boolean useArrow) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append(AnsiTextFormatter.textColor(hex));
+        AnsiTextFormatter.appendTextColor(sb, EnderColor.parseHex(hex, true));
         sb.append(prefix);
 
         if (useArrow) {
-            sb.append(AnsiTextFormatter.textColor("#777"));
+            AnsiTextFormatter.appendTextColor(sb, 0x777777);
             sb.append(" »");
         }
 
         return sb.toString();
     }
 
-    private StringBuilder getStringBuilder() {
+    private static StringBuilder getStringBuilder(Console console) {
+        if (console.depth == ColorDepth.NONE) {
+            return new StringBuilder();
+        }
+
         StringBuilder sb = new StringBuilder("\u001B[2D ");
         sb.append(AnsiTextFormatter.RESET);
 
         return sb;
     }
 
-    public void info(String... msg) {
-        StringBuilder sb = this.getStringBuilder();
+    // #region level
+    @Override
+    public void setLevel(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
 
-        for (String s : msg) {
-            sb.append(s);
+        this.level = level;
+        this.threshold = level.intValue();
+    }
+
+    @Override
+    public Level getLevel() {
+        return this.level;
+    }
+
+    @Override
+    public boolean isLoggable(Level level) {
+        int threshold = this.threshold;
+
+        return level.intValue() >= threshold && threshold != Level.OFF.intValue();
+    }
+    // #endregion
+
+    // #region async
+    @Override
+    public synchronized void enableAsync(int bufferSize, LogOverflowPolicy policy) {
+        this.disableAsync();
+
+        this.asyncWriter = new AsyncLogWriter(this, this.name, this.console().logger, bufferSize, policy);
+    }
+
+    @Override
+    public synchronized void disableAsync() {
+        AsyncLogWriter writer = this.asyncWriter;
+
+        if (writer == null) {
+            return;
         }
 
-        this.logger.info(sb.toString());
+        this.asyncWriter = null;
+        writer.shutdown();
     }
 
     @Override
-    public void warning(String... msg) {
-        StringBuilder sb = this.getStringBuilder();
+    public boolean isAsync() {
+        return this.asyncWriter != null;
+    }
 
-        for (String s : msg) {
-            sb.append(s);
+    @Override
+    public void flush() {
+        AsyncLogWriter writer = this.asyncWriter;
+
+        if (writer != null) {
+            writer.flush();
         }
+    }
+    // #endregion
+
+    // #region file
+    /**
+     * Additionally writes every record as a plain JSON line to {@code latest.jsonl} in {@code directory}.
+     * The file is rotated once it reaches {@code maxBytes} or gets older than {@code rotateInterval},
+     * rotated files are gzipped and only the newest {@code maxArchives} are kept.
+     *
+     * @throws IOException if the directory or file cannot be created
+     */
+    @Override
+    public synchronized void enableFileSink(Path directory, long maxBytes, Duration rotateInterval, int maxArchives) throws IOException {
+        this.disableFileSink();
 
-        this.logger.warning(sb.toString());
+        this.fileSink = new LogFileSink(directory, this.name, this.console().logger, maxBytes, rotateInterval.toMillis(), maxArchives);
     }
 
     @Override
-    public void error(String... msg) {
-        StringBuilder sb = this.getStringBuilder();
+    public synchronized void disableFileSink() {
+        LogFileSink sink = this.fileSink;
 
-        for (String s : msg) {
-            sb.append(s);
+        if (sink == null) {
+            return;
         }
 
-        this.logger.severe(sb.toString());
+        this.fileSink = null;
+        sink.close();
     }
 
     @Override
-    public void debug(String... msg) {
-        StringBuilder sb = this.getStringBuilder();
+    public boolean hasFileSink() {
+        return this.fileSink != null;
+    }
+    // #endregion
+
+    /**
+     * @return the number of records this logger has emitted, not counting filtered or rate-limited ones
+     */
+    @Override
+    public long getRecordCount() {
+        return this.records.sum();
+    }
+
+    // #region rate limit
+    /**
+     * Limits every message template or call site to {@code burst} messages at once and
+     * {@code permitsPerSecond} on average. Suppressed messages are summarized as
+     * "(repeated N times in the last Xs)".
+     */
+    @Override
+    public synchronized void enableRateLimit(double permitsPerSecond, int burst) {
+        this.disableRateLimit();
+
+        this.rateLimiter = new LogRateLimiter(this, permitsPerSecond, burst);
+    }
+
+    @Override
+    public synchronized void disableRateLimit() {
+        LogRateLimiter limiter = this.rateLimiter;
+
+        if (limiter == null) {
+            return;
+        }
+
+        this.rateLimiter = null;
+        limiter.flush();
+    }
+
+    @Override
+    public boolean isRateLimited() {
+        return this.rateLimiter != null;
+    }
+    // #endregion
+
+    private void submit(Level level, String[] msg, LogRateLimiter limiter, LogRateLimiter.Bucket bucket) {
+        if (bucket != null) {
+            msg = limiter.passed(bucket, level, msg);
+        }
+
+        this.submitUnlimited(level, msg);
+    }
+
+    void submitUnlimited(Level level, String[] msg) {
+        this.records.increment();
+
+        LogFileSink sink = this.fileSink;
+
+        if (sink != null) {
+            sink.append(level, msg);
+        }
+
+        AsyncLogWriter writer = this.asyncWriter;
+
+        if (writer != null && writer.offer(level, msg)) {
+            return;
+        }
+
+        this.write(level, msg, 1);
+    }
+
+    private static String format(String pattern, int count, Object arg1, Object arg2) {
+        String p = String.valueOf(pattern);
+        StringBuilder sb = new StringBuilder(p.length() + 16);
+
+        int start = 0;
+        int used = 0;
+
+        while (used < count) {
+            int index = p.indexOf("{}", start);
+
+            if (index < 0) {
+                break;
+            }
+
+            sb.append(p, start, index);
+            sb.append(used == 0 ? arg1 : arg2);
+
+            start = index + 2;
+            used++;
+        }
+
+        sb.append(p, start, p.length());
+
+        // Arguments without a placeholder are appended, so plain concatenation calls keep their output
+        for (; used < count; used++) {
+            sb.append(used == 0 ? arg1 : arg2);
+        }
+
+        return sb.toString();
+    }
+
+    // Text before the first placeholder, or all of it if there is none and the argument is appended
+    private static StringBuilder head(String p, int index) {
+        return new StringBuilder(p.length() + 24).append(p, 0, index < 0 ? p.length() : index);
+    }
+
+    private static String rest(StringBuilder sb, String p, int index) {
+        if (index >= 0) {
+            sb.append(p, index + 2, p.length());
+        }
+
+        return sb.toString();
+    }
+
+    void write(Level level, String[] msg, int repeats) {
+        this.write(level, msg, repeats, null);
+    }
+
+    private void write(Level level, String[] msg, int repeats, Throwable thrown) {
+        Console console = this.console();
+        StringBuilder sb = getStringBuilder(console);
 
         for (String s : msg) {
             sb.append(s);
         }
 
-        this.logger.info(sb.toString());
+        if (repeats > 1) {
+            sb.append(" (x").append(repeats).append(')');
+        }
+
+        // The server console drops everything below INFO, so records that passed our own threshold are raised to it
+        if (level.intValue() < Level.INFO.intValue()) {
+            level = Level.INFO;
+        }
+
+        console.logger.log(level, sb.toString(), thrown);
+    }
+
+    // #region info
+    @Override
+    public void info(String... msg) {
+        this.log(Level.INFO, msg);
+    }
+
+    @Override
+    public void info(Supplier<String> msg) {
+        this.log(Level.INFO, msg);
+    }
+
+    @Override
+    public void info(String pattern, Object arg) {
+        this.log(Level.INFO, pattern, arg);
+    }
+
+    @Override
+    public void info(String pattern, long arg) {
+        this.log(Level.INFO, pattern, arg);
+    }
+
+    @Override
+    public void info(String pattern, float arg) {
+        this.log(Level.INFO, pattern, arg);
+    }
+
+    @Override
+    public void info(String pattern, double arg) {
+        this.log(Level.INFO, pattern, arg);
+    }
+
+    @Override
+    public void info(String pattern, char arg) {
+        this.log(Level.INFO, pattern, arg);
+    }
+
+    @Override
+    public void info(String pattern, Object arg1, Object arg2) {
+        this.log(Level.INFO, pattern, arg1, arg2);
+    }
+    // #endregion
+
+    // #region warning
+    @Override
+    public void warning(String... msg) {
+        this.log(Level.WARNING, msg);
+    }
+
+    @Override
+    public void warning(Supplier<String> msg) {
+        this.log(Level.WARNING, msg);
+    }
+
+    @Override
+    public void warning(String pattern, Object arg) {
+        this.log(Level.WARNING, pattern, arg);
+    }
+
+    @Override
+    public void warning(String pattern, long arg) {
+        this.log(Level.WARNING, pattern, arg);
+    }
+
+    @Override
+    public void warning(String pattern, float arg) {
+        this.log(Level.WARNING, pattern, arg);
+    }
+
+    @Override
+    public void warning(String pattern, double arg) {
+        this.log(Level.WARNING, pattern, arg);
+    }
+
+    @Override
+    public void warning(String pattern, char arg) {
+        this.log(Level.WARNING, pattern, arg);
+    }
+
+    @Override
+    public void warning(String pattern, Object arg1, Object arg2) {
+        this.log(Level.WARNING, pattern, arg1, arg2);
+    }
+    // #endregion
+
+    // #region error
+    @Override
+    public void error(String... msg) {
+        this.log(Level.SEVERE, msg);
     }
 
+    @Override
+    public void error(Supplier<String> msg) {
+        this.log(Level.SEVERE, msg);
+    }
+
+    @Override
+    public void error(String pattern, Object arg) {
+        this.log(Level.SEVERE, pattern, arg);
+    }
+
+    @Override
+    public void error(String pattern, long arg) {
+        this.log(Level.SEVERE, pattern, arg);
+    }
+
+    @Override
+    public void error(String pattern, float arg) {
+        this.log(Level.SEVERE, pattern, arg);
+    }
+
+    @Override
+    public void error(String pattern, double arg) {
+        this.log(Level.SEVERE, pattern, arg);
+    }
+
+    @Override
+    public void error(String pattern, char arg) {
+        this.log(Level.SEVERE, pattern, arg);
+    }
+
+    @Override
+    public void error(String pattern, Object arg1, Object arg2) {
+        this.log(Level.SEVERE, pattern, arg1, arg2);
+    }
+    // #endregion
+
+    // #region debug
+    @Override
+    public void debug(String... msg) {
+        this.log(DEBUG, msg);
+    }
+
+    @Override
+    public void debug(Supplier<String> msg) {
+        this.log(DEBUG, msg);
+    }
+
+    @Override
+    public void debug(String pattern, Object arg) {
+        this.log(DEBUG, pattern, arg);
+    }
+
+    @Override
+    public void debug(String pattern, long arg) {
+        this.log(DEBUG, pattern, arg);
+    }
+
+    @Override
+    public void debug(String pattern, float arg) {
+        this.log(DEBUG, pattern, arg);
+    }
+
+    @Override
+    public void debug(String pattern, double arg) {
+        this.log(DEBUG, pattern, arg);
+    }
+
+    @Override
+    public void debug(String pattern, char arg) {
+        this.log(DEBUG, pattern, arg);
+    }
+
+    @Override
+    public void debug(String pattern, Object arg1, Object arg2) {
+        this.log(DEBUG, pattern, arg1, arg2);
+    }
+    // #endregion
+
+    // #region log
+    // Messages are keyed for rate limiting by their pattern, the class of the supplier lambda, which is one class
+    // per call site, or their full text
     @Override
     public void log(Level level, String... msg) {
-        StringBuilder sb = this.getStringBuilder();
+        if (!this.isLoggable(level)) {
+            return;
+        }
 
-        for (String s : msg) {
-            sb.append(s);
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(LogRateLimiter.key(msg))) == null) {
+            return;
+        }
+
+        this.submit(level, msg, limiter, bucket);
+    }
+
+    @Override
+    public void log(Level level, Supplier<String> msg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(msg.getClass())) == null) {
+            return;
+        }
+
+        this.submit(level, new String[]{msg.get()}, limiter, bucket);
+    }
+
+    @Override
+    public void log(Level level, String pattern, Object arg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        this.submit(level, new String[]{format(pattern, 1, arg, null)}, limiter, bucket);
+    }
+
+    // The primitive overloads format their argument without boxing it, so a disabled level allocates nothing
+    @Override
+    public void log(Level level, String pattern, long arg) {
+        if (!this.isLoggable(level)) {
+            return;
         }
 
-        this.logger.log(level, sb.toString());
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        String p = String.valueOf(pattern);
+        int index = p.indexOf("{}");
+
+        this.submit(level, new String[]{rest(head(p, index).append(arg), p, index)}, limiter, bucket);
+    }
+
+    @Override
+    public void log(Level level, String pattern, float arg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        String p = String.valueOf(pattern);
+        int index = p.indexOf("{}");
+
+        this.submit(level, new String[]{rest(head(p, index).append(arg), p, index)}, limiter, bucket);
+    }
+
+    @Override
+    public void log(Level level, String pattern, double arg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        String p = String.valueOf(pattern);
+        int index = p.indexOf("{}");
+
+        this.submit(level, new String[]{rest(head(p, index).append(arg), p, index)}, limiter, bucket);
+    }
+
+    @Override
+    public void log(Level level, String pattern, char arg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        String p = String.valueOf(pattern);
+        int index = p.indexOf("{}");
+
+        this.submit(level, new String[]{rest(head(p, index).append(arg), p, index)}, limiter, bucket);
     }
+
+    @Override
+    public void log(Level level, String pattern, Object arg1, Object arg2) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(pattern))) == null) {
+            return;
+        }
+
+        this.submit(level, new String[]{format(pattern, 2, arg1, arg2)}, limiter, bucket);
+    }
+
+    /**
+     * Logs components rendered for the console by {@link AnsiComponentRenderer}, so a message built for
+     * players (e.g. by {@code genMessage}) can be logged as is.
+     */
+    @Override
+    public void log(Level level, Component... msg) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        String[] rendered = new String[msg.length];
+
+        for (int i = 0; i < msg.length; i++) {
+            rendered[i] = AnsiComponentRenderer.render(msg[i]);
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(LogRateLimiter.key(rendered))) == null) {
+            return;
+        }
+
+        this.submit(level, rendered, limiter, bucket);
+    }
+
+    /**
+     * Logs {@code msg} with the stack trace of {@code thrown}. Records still queued for the asynchronous
+     * writer are written first, then this one on the calling thread, so it is never dropped on overflow.
+     * The file sink gets the message and {@code thrown} without the stack trace.
+     */
+    @Override
+    public void log(Level level, String msg, Throwable thrown) {
+        if (!this.isLoggable(level)) {
+            return;
+        }
+
+        LogRateLimiter limiter = this.rateLimiter;
+        LogRateLimiter.Bucket bucket = null;
+
+        if (limiter != null && (bucket = limiter.acquire(String.valueOf(msg))) == null) {
+            return;
+        }
+
+        String[] parts = new String[]{msg};
+
+        if (bucket != null) {
+            parts = limiter.passed(bucket, level, parts);
+        }
+
+        this.records.increment();
+
+        LogFileSink sink = this.fileSink;
+
+        if (sink != null) {
+            String[] withThrown = new String[parts.length + 2];
+            System.arraycopy(parts, 0, withThrown, 0, parts.length);
+            withThrown[parts.length] = ": ";
+            withThrown[parts.length + 1] = String.valueOf(thrown);
+
+            sink.append(level, withThrown);
+        }
+
+        this.flush();
+        this.write(level, parts, 1, thrown);
+    }
+    // #endregion
+
+    private record Console(ColorDepth depth, Logger logger, String prefix) {}
 }
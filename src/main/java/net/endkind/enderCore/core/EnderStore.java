@@ -0,0 +1,724 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.IEnderStore;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * A key-value store in a directory of append-only segment files.
+ * <p>
+ * {@link #put} and {@link #delete} only update an in-memory map of pending writes, a background thread
+ * appends them in batches to the newest segment and then points the in-memory index at the written
+ * record, so a lookup is one hash map access plus at most one positional read. Records carry a CRC32C
+ * checksum: on open, the index is rebuilt by replaying all segments in order and a torn record at the
+ * end of the newest segment is cut off. A damaged record in an older segment fails the open instead,
+ * since dropping the records after it could bring back values they overwrote or deleted.
+ * </p>
+ * <p>
+ * If the writer fails, the store stops accepting writes: pending and later {@link #flush()} futures
+ * complete exceptionally and {@link #put} throws.
+ * </p>
+ * <p>
+ * Overwritten and deleted records are dead space. Once at least half of a full segment is dead, the
+ * writer copies its live records to the newest segment and deletes the file.
+ * </p>
+ */
+public final class EnderStore implements IEnderStore {
+    private static final int HEADER = 12;
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+    private static final long COMPACTION_INTERVAL_MILLIS = 10_000;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+    private static final String SUFFIX = ".seg";
+    private static final byte[] DELETED = new byte[0];
+    private static final CompletableFuture<Void> STOP = new CompletableFuture<>();
+    private static final Logger LOGGER = Logger.getLogger(EnderStore.class.getName());
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final ConcurrentHashMap<String, byte[]> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    // Readers hold the read lock while they read from a segment, compaction the write lock to delete one
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final LinkedBlockingQueue<CompletableFuture<Void>> flushRequests = new LinkedBlockingQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private final Thread thread;
+
+    private Segment active;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Opens the store in {@code directory}, creating it if needed, and rebuilds the index from the segments.
+     *
+     * @param maxSegmentBytes the size after which the writer starts a new segment
+     * @throws IOException if the directory or a segment cannot be read, or an older segment is damaged
+     */
+    public EnderStore(Path directory, long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes < BUFFER_SIZE) {
+            throw new IllegalArgumentException("Segments must be allowed to grow to at least " + BUFFER_SIZE + " bytes");
+        }
+
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+
+        Files.createDirectories(directory);
+        this.recover();
+
+        this.thread = new Thread(this::run, "EnderStore-" + directory.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // #region api
+    /**
+     * @return the value of {@code key}, including writes that were not written to disk yet, or {@code null}
+     * @throws IOException if the segment holding the value cannot be read
+     */
+    @Override
+    public byte[] get(String key) throws IOException {
+        byte[] value = this.pending.get(key);
+
+        if (value != null) {
+            return value == DELETED ? null : value.clone();
+        }
+
+        while (true) {
+            Location location = this.index.get(key);
+
+            if (location == null || location.isTombstone()) {
+                return null;
+            }
+
+            this.segmentLock.readLock().lock();
+
+            try {
+                Segment segment = this.segments.get(location.segment);
+
+                // Moved by compaction between the index lookup and taking the lock
+                if (segment == null) {
+                    continue;
+                }
+
+                ByteBuffer target = ByteBuffer.allocate(location.valueLength);
+                long position = location.valueOffset;
+
+                while (target.hasRemaining()) {
+                    int read = segment.channel.read(target, position);
+
+                    if (read < 0) {
+                        throw new EOFException("Record of " + key + " is cut off in " + segment.path);
+                    }
+
+                    position += read;
+                }
+
+                return target.array();
+            } finally {
+                this.segmentLock.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public String getString(String key) throws IOException {
+        byte[] value = this.get(key);
+
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stores a copy of {@code value}. Returns immediately, the value is written by the background thread.
+     *
+     * @throws IllegalStateException if the store is closed or its writer failed
+     */
+    @Override
+    public void put(String key, byte[] value) {
+        this.checkKey(key);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null, use delete");
+        }
+
+        this.pending.put(key, value.clone());
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        this.put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void delete(String key) {
+        this.checkKey(key);
+
+        this.pending.put(key, DELETED);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        byte[] value = this.pending.get(key);
+
+        if (value != null) {
+            return value != DELETED;
+        }
+
+        Location location = this.index.get(key);
+
+        return location != null && !location.isTombstone();
+    }
+
+    /**
+     * @return a snapshot of all keys, including writes that were not written to disk yet
+     */
+    @Override
+    public Set<String> keys() {
+        Set<String> keys = new HashSet<>();
+
+        this.index.forEach((key, location) -> {
+            if (!location.isTombstone()) {
+                keys.add(key);
+            }
+        });
+
+        this.pending.forEach((key, value) -> {
+            if (value == DELETED) {
+                keys.remove(key);
+            } else {
+                keys.add(key);
+            }
+        });
+
+        return keys;
+    }
+
+    /**
+     * @return a future that completes once everything written before this call is on disk, or exceptionally
+     *         with the cause if the writer failed
+     */
+    @Override
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        if (this.closed) {
+            this.settle(future);
+            return future;
+        }
+
+        this.flushRequests.add(future);
+
+        // The writer may have stopped after the check, then nobody else completes the request
+        if (this.closed && this.flushRequests.remove(future)) {
+            this.settle(future);
+        }
+
+        return future;
+    }
+
+    /**
+     * Writes all pending changes and closes the segment files. Blocks for up to 30 seconds.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+
+        this.flushRequests.add(STOP);
+
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * @return the bytes of all segments, live and dead
+     */
+    public long getDiskBytes() {
+        long bytes = 0;
+
+        for (Segment segment : this.segments.values()) {
+            bytes += segment.size;
+        }
+
+        return bytes;
+    }
+
+    public long getDeadBytes() {
+        long bytes = 0;
+
+        for (Segment segment : this.segments.values()) {
+            bytes += segment.dead;
+        }
+
+        return bytes;
+    }
+
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * @return the error that stopped the writer, or {@code null} if it is running or was closed normally
+     */
+    public IOException getFailure() {
+        return this.failure;
+    }
+
+    private void checkKey(String key) {
+        if (key == null || key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Key must not be null or longer than " + MAX_KEY_BYTES + " bytes");
+        }
+
+        IOException failure = this.failure;
+
+        if (failure != null) {
+            throw new IllegalStateException("Writer of store " + this.directory + " failed", failure);
+        }
+
+        if (this.closed) {
+            throw new IllegalStateException("Store " + this.directory + " is closed");
+        }
+    }
+
+    private void settle(CompletableFuture<Void> future) {
+        IOException failure = this.failure;
+
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(null);
+        }
+    }
+    // #endregion
+
+    // #region writer
+    private void run() {
+        long nextCompaction = System.currentTimeMillis() + COMPACTION_INTERVAL_MILLIS;
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+
+        try {
+            while (true) {
+                CompletableFuture<Void> request = this.flushRequests.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (request != null) {
+                    requests.add(request);
+                    this.flushRequests.drainTo(requests);
+                }
+
+                // Requests taken before the batch are covered by it
+                this.writePending();
+
+                boolean stop = requests.remove(STOP);
+
+                for (CompletableFuture<Void> future : requests) {
+                    future.complete(null);
+                }
+
+                requests.clear();
+
+                if (stop) {
+                    break;
+                }
+
+                long now = System.currentTimeMillis();
+
+                if (now >= nextCompaction) {
+                    this.compact();
+                    nextCompaction = now + COMPACTION_INTERVAL_MILLIS;
+                }
+            }
+        } catch (InterruptedException e) {
+            this.failure = new InterruptedIOException("Writer of store " + this.directory + " was interrupted");
+            LOGGER.severe("Writer of store " + this.directory + " was interrupted, " + this.pending.size() + " pending writes are lost");
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            this.failure = e instanceof IOException io ? io : new IOException(e);
+            LOGGER.log(Level.SEVERE, "Writer of store " + this.directory + " stopped, " + this.pending.size() + " pending writes are lost", e);
+        } finally {
+            // Set before the requests are settled, so flush and put see the failure from now on
+            this.closed = true;
+            this.closeSegments();
+
+            requests.remove(STOP);
+
+            for (CompletableFuture<Void> future : requests) {
+                this.settle(future);
+            }
+
+            CompletableFuture<Void> future;
+
+            while ((future = this.flushRequests.poll()) != null) {
+                if (future != STOP) {
+                    this.settle(future);
+                }
+            }
+        }
+    }
+
+    private void writePending() throws IOException {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, byte[]>> batch = new ArrayList<>(this.pending.entrySet());
+        List<Location> locations = new ArrayList<>(batch.size());
+
+        for (Map.Entry<String, byte[]> entry : batch) {
+            locations.add(this.append(entry.getKey(), entry.getValue() == DELETED ? null : entry.getValue()));
+        }
+
+        this.flushBuffer();
+        this.active.channel.force(false);
+
+        // Only now the records can be read from disk, so only now the index and pending map may point there
+        for (int i = 0; i < batch.size(); i++) {
+            Map.Entry<String, byte[]> entry = batch.get(i);
+
+            this.publish(entry.getKey(), locations.get(i));
+            this.pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Encodes a record into the write buffer, {@code value} is {@code null} for a tombstone.
+     */
+    private Location append(String key, byte[] value) throws IOException {
+        if (this.active.size + this.buffer.position() >= this.maxSegmentBytes) {
+            this.flushBuffer();
+            this.active.channel.force(false);
+            this.active = this.createSegment(this.active.id + 1);
+        }
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? -1 : value.length;
+        int length = HEADER + keyBytes.length + Math.max(valueLength, 0);
+
+        ByteBuffer record = length <= this.buffer.capacity() ? this.buffer : ByteBuffer.allocate(length);
+
+        if (record == this.buffer && length > this.buffer.remaining()) {
+            this.flushBuffer();
+        }
+
+        long offset = this.active.size + this.buffer.position();
+        int start = record.position();
+
+        record.putInt(0);
+        record.putInt(keyBytes.length);
+        record.putInt(valueLength);
+        record.put(keyBytes);
+
+        if (value != null) {
+            record.put(value);
+        }
+
+        record.putInt(start, this.checksum(record, start + 4, length - 4));
+
+        if (record != this.buffer) {
+            this.flushBuffer();
+            record.flip();
+            this.writeFully(record);
+        }
+
+        return new Location(this.active.id, offset + HEADER + keyBytes.length, valueLength, length);
+    }
+
+    private int checksum(ByteBuffer record, int from, int length) {
+        ByteBuffer view = record.duplicate();
+        view.limit(from + length).position(from);
+
+        this.crc.reset();
+        this.crc.update(view);
+
+        return (int) this.crc.getValue();
+    }
+
+    private void flushBuffer() throws IOException {
+        this.buffer.flip();
+        this.writeFully(this.buffer);
+        this.buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            this.active.size += this.active.channel.write(source, this.active.size);
+        }
+    }
+
+    // Points the index at a new record and accounts the one it replaces as dead
+    private void publish(String key, Location location) {
+        Location previous = this.index.put(key, location);
+
+        if (previous != null) {
+            Segment segment = this.segments.get(previous.segment);
+
+            if (segment != null) {
+                segment.dead += previous.recordLength;
+            }
+        }
+
+        // A tombstone is only needed while an older record of the key may still be on disk
+        if (location.isTombstone() && previous == null) {
+            this.index.remove(key, location);
+
+            Segment segment = this.segments.get(location.segment);
+
+            if (segment != null) {
+                segment.dead += location.recordLength;
+            }
+        }
+    }
+    // #endregion
+
+    // #region compaction
+    private void compact() throws IOException {
+        for (Segment segment : new ArrayList<>(this.segments.values())) {
+            if (segment == this.active || segment.size == 0 || (double) segment.dead / segment.size < COMPACTION_THRESHOLD) {
+                continue;
+            }
+
+            this.compact(segment);
+
+            // Keep pending writes from waiting behind a long compaction
+            this.writePending();
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        boolean olderSegments = this.segments.firstKey() < segment.id;
+        List<String> keys = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+
+        this.scan(segment.path, segment.id, (key, location, value) -> {
+            if (!location.equals(this.index.get(key))) {
+                return;
+            }
+
+            if (location.isTombstone() && !olderSegments) {
+                this.index.remove(key, location);
+                return;
+            }
+
+            keys.add(key);
+            locations.add(this.append(key, value));
+        });
+
+        this.flushBuffer();
+        this.active.channel.force(false);
+
+        // Only the writer thread changes the index, so the copied records are still the live ones
+        for (int i = 0; i < keys.size(); i++) {
+            this.index.put(keys.get(i), locations.get(i));
+        }
+
+        this.segmentLock.writeLock().lock();
+
+        try {
+            this.segments.remove(segment.id);
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } finally {
+            this.segmentLock.writeLock().unlock();
+        }
+    }
+    // #endregion
+
+    // #region recovery
+    private void recover() throws IOException {
+        TreeMap<Integer, Path> files = new TreeMap<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+
+                try {
+                    files.put(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+
+        try {
+            for (Map.Entry<Integer, Path> entry : files.entrySet()) {
+                int id = entry.getKey();
+                Path file = entry.getValue();
+                Segment segment = new Segment(id, file, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                this.segments.put(id, segment);
+
+                long valid = this.scan(file, id, (key, location, value) -> this.publish(key, location));
+
+                if (valid < segment.channel.size()) {
+                    // Segments are forced to disk before the next one is created, so only the newest can have a torn write
+                    if (id != files.lastKey()) {
+                        throw new IOException("Segment " + file + " is damaged at offset " + valid
+                                + ", move it out of the directory to open the store without it");
+                    }
+
+                    LOGGER.warning("Dropping " + (segment.channel.size() - valid) + " damaged bytes at the end of " + file);
+                    segment.channel.truncate(valid);
+                }
+
+                segment.size = valid;
+                this.active = segment;
+            }
+
+            if (this.active == null) {
+                this.active = this.createSegment(1);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.closeSegments();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the records of a segment in order until its end or the first damaged record.
+     *
+     * @return the offset after the last intact record
+     */
+    private long scan(Path file, int id, RecordVisitor visitor) throws IOException {
+        long offset = 0;
+
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE))) {
+            while (true) {
+                int checksum;
+
+                try {
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    return offset;
+                }
+
+                int keyLength;
+                int valueLength;
+                byte[] key;
+                byte[] value;
+
+                try {
+                    keyLength = in.readInt();
+                    valueLength = in.readInt();
+
+                    if (keyLength < 0 || keyLength > MAX_KEY_BYTES || valueLength < -1) {
+                        return offset;
+                    }
+
+                    key = in.readNBytes(keyLength);
+                    value = valueLength < 0 ? null : in.readNBytes(valueLength);
+                } catch (EOFException e) {
+                    return offset;
+                }
+
+                if (key.length < keyLength || (value != null && value.length < valueLength)) {
+                    return offset;
+                }
+
+                this.crc.reset();
+                this.crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+                this.crc.update(key);
+
+                if (value != null) {
+                    this.crc.update(value);
+                }
+
+                if ((int) this.crc.getValue() != checksum) {
+                    return offset;
+                }
+
+                int length = HEADER + keyLength + Math.max(valueLength, 0);
+
+                visitor.visit(new String(key, StandardCharsets.UTF_8), new Location(id, offset + HEADER + keyLength, valueLength, length), value);
+                offset += length;
+            }
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path file = this.directory.resolve(String.format("%08d", id) + SUFFIX);
+        Segment segment = new Segment(id, file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+
+        this.segments.put(id, segment);
+
+        return segment;
+    }
+
+    private void closeSegments() {
+        this.segmentLock.writeLock().lock();
+
+        try {
+            for (Segment segment : this.segments.values()) {
+                try {
+                    segment.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        } finally {
+            this.segmentLock.writeLock().unlock();
+        }
+    }
+    // #endregion
+
+    private interface RecordVisitor {
+        void visit(String key, Location location, byte[] value) throws IOException;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private volatile long size;
+        private volatile long dead;
+
+        private Segment(int id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private record Location(int segment, long valueOffset, int valueLength, int recordLength) {
+        private boolean isTombstone() {
+            return this.valueLength < 0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package net.endkind.enderCore.core;
+
+/**
+ * Count-min sketch of 4-bit counters that estimates how often a key was seen recently.
+ * <p>
+ * Four counters per key are packed into a {@code long[]}, one per row, and the estimate is the smallest
+ * of them. Once the number of increments reaches ten times the width, every counter is halved, so old
+ * popularity fades. The width can grow with the number of entries, see {@link #ensureCapacity(long)}.
+ * Not thread-safe, {@link EnderCache} only touches it under its policy lock.
+ * </p>
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private long[] table;
+    private int mask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch(long expectedEntries) {
+        this.ensureCapacity(expectedEntries);
+    }
+
+    /**
+     * Widens the sketch to {@code expectedEntries} if it is narrower. The counters start over, they cannot
+     * be moved to a wider table.
+     */
+    void ensureCapacity(long expectedEntries) {
+        int width = (int) Math.min(Math.max(Long.highestOneBit(Math.max(expectedEntries, 256) - 1) << 1, 256), 1 << 24);
+
+        if (this.table != null && width <= this.table.length) {
+            return;
+        }
+
+        this.table = new long[width];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+        this.size = 0;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+
+        for (int row = 0; row < 4; row++) {
+            frequency = Math.min(frequency, this.counter(hash, row));
+        }
+
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+
+        for (int row = 0; row < 4; row++) {
+            int index = this.index(hash, row);
+            int shift = row << 4 | (hash >>> (row << 3) & 3) << 2;
+
+            if ((this.table[index] >>> shift & 15) < 15) {
+                this.table[index] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if (added && ++this.size >= this.sampleSize) {
+            this.reset();
+        }
+    }
+
+    private int counter(int hash, int row) {
+        int shift = row << 4 | (hash >>> (row << 3) & 3) << 2;
+
+        return (int) (this.table[this.index(hash, row)] >>> shift & 15);
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+
+        return (int) (h ^ h >>> 32) & this.mask;
+    }
+
+    private void reset() {
+        for (int i = 0; i < this.table.length; i++) {
+            this.table[i] = this.table[i] >>> 1 & RESET_MASK;
+        }
+
+        this.size >>>= 1;
+    }
+
+    private static int spread(int hash) {
+        hash = (hash ^ hash >>> 16) * 0x45d9f3b;
+
+        return hash ^ hash >>> 16;
+    }
+}
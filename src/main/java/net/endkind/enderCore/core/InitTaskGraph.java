@@ -0,0 +1,219 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.TaskAffinity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named init tasks with dependencies between them.
+ * <p>
+ * {@link #run(Executor)} starts every task as soon as all of its dependencies are done:
+ * {@link TaskAffinity#ASYNC} tasks on the given executor, {@link TaskAffinity#MAIN} tasks on the
+ * calling thread, which keeps running main tasks until the whole graph is done.
+ * </p>
+ */
+public final class InitTaskGraph {
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * @throws IllegalArgumentException if a task with the same name was already added
+     */
+    public synchronized void add(String name, TaskAffinity affinity, Runnable task, String... dependsOn) {
+        if (name == null || affinity == null || task == null) {
+            throw new IllegalArgumentException("Name, affinity and task must not be null");
+        }
+
+        if (this.nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Init task " + name + " is already registered");
+        }
+
+        this.nodes.put(name, new Node(name, affinity, task, dependsOn.clone()));
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.nodes.isEmpty();
+    }
+
+    /**
+     * Runs every task and blocks until all are done. Tasks depending on a failed task are skipped.
+     *
+     * @param executor runs the {@link TaskAffinity#ASYNC} tasks
+     * @return the timing of every task that ran, in the order they were started
+     * @throws IllegalArgumentException if a dependency is unknown or the dependencies form a cycle
+     * @throws IllegalStateException if a task failed, with the first failure as the cause
+     */
+    public List<Timing> run(Executor executor) {
+        List<Node> order;
+
+        synchronized (this) {
+            order = this.sort();
+        }
+
+        LinkedBlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+        Executor main = mainQueue::add;
+        List<Timing> timings = Collections.synchronizedList(new ArrayList<>(order.size()));
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        long origin = System.nanoTime();
+
+        for (Node node : order) {
+            CompletableFuture<?>[] dependencies = new CompletableFuture<?>[node.dependsOn.length];
+
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = futures.get(node.dependsOn[i]);
+            }
+
+            CompletableFuture<Void> future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                long start = System.nanoTime();
+
+                try {
+                    node.task.run();
+                } finally {
+                    timings.add(new Timing(node.name, node.affinity, Thread.currentThread().getName(), start - origin, System.nanoTime() - start));
+                }
+            }, node.affinity == TaskAffinity.MAIN ? main : executor);
+
+            futures.put(node.name, future);
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+
+        try {
+            while (!all.isDone() || !mainQueue.isEmpty()) {
+                Runnable task = mainQueue.poll(1, TimeUnit.MILLISECONDS);
+
+                if (task != null) {
+                    task.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running init tasks", e);
+        }
+
+        for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Init task " + entry.getKey() + " failed", e.getCause());
+            }
+        }
+
+        List<Timing> result = new ArrayList<>(timings);
+        result.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+
+        return result;
+    }
+
+    // Kahn's algorithm, keeping the registration order among tasks that are ready at the same time
+    private List<Node> sort() {
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        Map<String, List<Node>> dependents = new LinkedHashMap<>();
+        ArrayDeque<Node> ready = new ArrayDeque<>();
+
+        for (Node node : this.nodes.values()) {
+            for (String dependency : node.dependsOn) {
+                if (!this.nodes.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Init task " + node.name + " depends on unknown task " + dependency);
+                }
+
+                dependents.computeIfAbsent(dependency, d -> new ArrayList<>()).add(node);
+            }
+
+            pending.put(node.name, node.dependsOn.length);
+
+            if (node.dependsOn.length == 0) {
+                ready.add(node);
+            }
+        }
+
+        List<Node> order = new ArrayList<>(this.nodes.size());
+
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            order.add(node);
+
+            for (Node dependent : dependents.getOrDefault(node.name, List.of())) {
+                if (pending.merge(dependent.name, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (order.size() < this.nodes.size()) {
+            List<String> cycle = new ArrayList<>();
+
+            pending.forEach((name, count) -> {
+                if (count > 0) {
+                    cycle.add(name);
+                }
+            });
+
+            throw new IllegalArgumentException("Init tasks have cyclic dependencies: " + String.join(", ", cycle));
+        }
+
+        return order;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final TaskAffinity affinity;
+        private final Runnable task;
+        private final String[] dependsOn;
+
+        private Node(String name, TaskAffinity affinity, Runnable task, String[] dependsOn) {
+            this.name = name;
+            this.affinity = affinity;
+            this.task = task;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    public static final class Timing {
+        private final String name;
+        private final TaskAffinity affinity;
+        private final String thread;
+        private final long startNanos;
+        private final long durationNanos;
+
+        private Timing(String name, TaskAffinity affinity, String thread, long startNanos, long durationNanos) {
+            this.name = name;
+            this.affinity = affinity;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public TaskAffinity getAffinity() {
+            return this.affinity;
+        }
+
+        public String getThread() {
+            return this.thread;
+        }
+
+        /**
+         * @return when the task started, relative to the start of the graph
+         */
+        public long getStartNanos() {
+            return this.startNanos;
+        }
+
+        public long getDurationNanos() {
+            return this.durationNanos;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package net.endkind.enderCore.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Values are sorted into log-linear buckets: every power of two is split into 8 sub-buckets, which keeps the
+ * relative error of a percentile below 12.5% across the whole range with a few hundred counters.
+ * Recording is a single atomic increment plus two adders, so it can be called from hot paths on any thread.
+ * </p>
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        this.counts.incrementAndGet(index(nanos));
+        this.count.increment();
+        this.total.add(nanos);
+
+        long current;
+
+        while (nanos > (current = this.max.get())) {
+            if (this.max.compareAndSet(current, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotalNanos() {
+        return this.total.sum();
+    }
+
+    public long getMaxNanos() {
+        return this.max.get();
+    }
+
+    public double getMeanNanos() {
+        long count = this.count.sum();
+
+        return count == 0 ? 0 : (double) this.total.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound for the given percentile.
+     *
+     * @param percentile the percentile between 0 and 100 (e.g., 99 for p99)
+     * @return the upper bound of the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            count += snapshot[i];
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100.0 * count);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+
+        this.count.reset();
+        this.total.reset();
+        this.max.set(0);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
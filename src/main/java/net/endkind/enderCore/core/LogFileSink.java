@@ -0,0 +1,452 @@
+package net.endkind.enderCore.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes log records as JSON lines ({@code ts}, {@code level}, {@code plugin}, {@code thread},
+ * {@code msg}) to {@code latest.jsonl} in a directory, without ANSI escapes.
+ * <p>
+ * Records are queued without blocking and encoded by a background thread into a direct buffer that
+ * is written to a {@link FileChannel}. The file is rotated by size and age, and rotated files are
+ * gzipped on a shared background thread. If the queue is full, records are dropped and counted
+ * instead of slowing down the caller.
+ * </p>
+ * <p>
+ * Write errors are reported to the console logger. The writer then drops records until it manages to
+ * reopen {@code latest.jsonl}, which it retries every few seconds, and notes how many were lost.
+ * </p>
+ */
+final class LogFileSink {
+    private static final int QUEUE_CAPACITY = 16384;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long RETRY_MILLIS = 5000;
+    private static final String LATEST = "latest.jsonl";
+    private static final String FIRST_FIELD = "{\"ts\":\"";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final DateTimeFormatter ARCHIVE_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final ExecutorService COMPRESSOR = compressor();
+    private static final Entry STOP = new Entry(0, null, null, null);
+
+    private final Path directory;
+    private final String plugin;
+    private final Logger console;
+    private final long maxBytes;
+    private final long rotateMillis;
+    private final int maxArchives;
+    private final ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+
+    // null while the file is broken, until the next retry
+    private FileChannel channel;
+    private long size;
+    private long openedAt;
+    private long retryAt;
+    private boolean failing;
+    // Records encoded into the buffer but not written to the file yet
+    private int buffered;
+
+    /**
+     * @param console receives write errors, must not feed back into this sink
+     */
+    LogFileSink(Path directory, String plugin, Logger console, long maxBytes, long rotateMillis, int maxArchives) throws IOException {
+        if (maxBytes < BUFFER_SIZE) {
+            throw new IllegalArgumentException("Log files must be allowed to grow to at least " + BUFFER_SIZE + " bytes");
+        }
+
+        this.directory = directory;
+        this.plugin = plugin;
+        this.console = console;
+        this.maxBytes = maxBytes;
+        this.rotateMillis = rotateMillis;
+        this.maxArchives = maxArchives;
+
+        Files.createDirectories(directory);
+        this.open();
+
+        this.thread = new Thread(this::run, "EnderLogger-File-" + plugin);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a record. Never blocks, the record is dropped if the writer cannot keep up.
+     */
+    void append(Level level, String[] msg) {
+        Entry entry = new Entry(System.currentTimeMillis(), level, Thread.currentThread().getName(), msg);
+
+        if (!this.queue.offer(entry)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes everything queued so far and stops the writer.
+     */
+    void close() {
+        if (!this.thread.isAlive()) {
+            return;
+        }
+
+        try {
+            if (this.queue.offer(STOP, 5, TimeUnit.SECONDS)) {
+                this.thread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // #region writer
+    private void run() {
+        List<Entry> batch = new ArrayList<>(256);
+        long lastFlush = System.currentTimeMillis();
+
+        try {
+            while (true) {
+                Entry entry = this.queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (entry != null) {
+                    batch.add(entry);
+                    this.queue.drainTo(batch, 255);
+                }
+
+                // close() queues STOP last, so everything before it is in this batch
+                boolean stop = batch.remove(STOP);
+                long now = System.currentTimeMillis();
+
+                try {
+                    if (this.channel == null) {
+                        if (now < this.retryAt) {
+                            this.dropped.addAndGet(batch.size());
+                            batch.clear();
+
+                            if (stop) {
+                                break;
+                            }
+
+                            continue;
+                        }
+
+                        this.open();
+                        this.failing = false;
+                        this.console.info("Writing " + this.directory.resolve(LATEST) + " again");
+                    }
+
+                    for (Entry e : batch) {
+                        this.encode(e);
+                    }
+
+                    this.buffered += batch.size();
+                    batch.clear();
+
+                    long dropped = this.dropped.getAndSet(0);
+
+                    if (dropped > 0) {
+                        this.encode(new Entry(now, Level.WARNING, this.thread.getName(),
+                                new String[]{"Log file sink dropped " + dropped + " records"}));
+                    }
+
+                    if (stop || this.queue.isEmpty() || now - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+                        this.flush();
+                        lastFlush = now;
+                    }
+
+                    if (!stop && (this.size >= this.maxBytes || (this.rotateMillis > 0 && now - this.openedAt >= this.rotateMillis && this.size > 0))) {
+                        this.rotate();
+                    }
+                } catch (IOException e) {
+                    this.fail(e, batch.size(), now);
+                    batch.clear();
+                }
+
+                if (stop) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.closeChannel();
+        }
+    }
+
+    // Drops the broken file and the unwritten records, the next write after RETRY_MILLIS reopens it
+    private void fail(IOException e, int unwritten, long now) {
+        // Only the first error is reported, failed reopens are expected while the disk is full or gone
+        if (!this.failing) {
+            this.failing = true;
+            this.console.log(Level.WARNING, "Could not write " + this.directory.resolve(LATEST)
+                    + ", dropping log records and retrying every " + RETRY_MILLIS / 1000 + " seconds", e);
+        }
+
+        this.closeChannel();
+        this.buffer.clear();
+        this.dropped.addAndGet(this.buffered + unwritten);
+        this.buffered = 0;
+        this.retryAt = now + RETRY_MILLIS;
+    }
+
+    private void closeChannel() {
+        if (this.channel == null) {
+            return;
+        }
+
+        try {
+            this.channel.close();
+        } catch (IOException ignored) {
+        }
+
+        this.channel = null;
+    }
+
+    private void encode(Entry entry) throws IOException {
+        StringBuilder sb = this.line;
+        sb.setLength(0);
+
+        sb.append("{\"ts\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(entry.time), sb);
+        sb.append("\",\"level\":\"").append(levelName(entry.level));
+        sb.append("\",\"plugin\":");
+        appendJson(sb, this.plugin);
+        sb.append(",\"thread\":");
+        appendJson(sb, entry.thread);
+        sb.append(",\"msg\":\"");
+
+        for (String part : entry.msg) {
+            appendMessage(sb, String.valueOf(part));
+        }
+
+        sb.append("\"}\n");
+
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > this.buffer.remaining()) {
+            this.flush();
+        }
+
+        if (bytes.length > this.buffer.capacity()) {
+            this.size += this.channel.write(ByteBuffer.wrap(bytes));
+            return;
+        }
+
+        this.buffer.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+
+        while (this.buffer.hasRemaining()) {
+            this.size += this.channel.write(this.buffer);
+        }
+
+        this.buffer.clear();
+        this.buffered = 0;
+    }
+
+    private void open() throws IOException {
+        Path latest = this.directory.resolve(LATEST);
+
+        this.channel = FileChannel.open(latest, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.size = this.channel.size();
+        this.openedAt = this.size > 0 ? startedAt(latest) : System.currentTimeMillis();
+    }
+
+    // A file appended to right before a restart has a fresh modification time, so the age comes from its first record
+    private static long startedAt(Path latest) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(latest, StandardCharsets.UTF_8)) {
+            String first = reader.readLine();
+
+            if (first != null && first.startsWith(FIRST_FIELD)) {
+                int end = first.indexOf('"', FIRST_FIELD.length());
+
+                if (end > 0) {
+                    return Instant.parse(first.substring(FIRST_FIELD.length(), end)).toEpochMilli();
+                }
+            }
+        } catch (IOException | DateTimeParseException ignored) {
+            // Not one of our files or cut off, the file system has to tell
+        }
+
+        return Files.readAttributes(latest, BasicFileAttributes.class).creationTime().toMillis();
+    }
+
+    private void rotate() throws IOException {
+        this.flush();
+        this.closeChannel();
+
+        Path rotated = this.directory.resolve(ARCHIVE_NAME.format(Instant.now()) + ".jsonl");
+
+        for (int i = 1; Files.exists(rotated) || Files.exists(gzipped(rotated)); i++) {
+            rotated = this.directory.resolve(ARCHIVE_NAME.format(Instant.now()) + "-" + i + ".jsonl");
+        }
+
+        Files.move(this.directory.resolve(LATEST), rotated, StandardCopyOption.ATOMIC_MOVE);
+        this.open();
+
+        Path source = rotated;
+        COMPRESSOR.execute(() -> this.compress(source));
+    }
+    // #endregion
+
+    // #region archives
+    private void compress(Path source) {
+        Path target = gzipped(source);
+
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            this.console.log(Level.WARNING, "Could not compress " + source, e);
+            return;
+        }
+
+        try {
+            Files.delete(source);
+            this.prune();
+        } catch (IOException e) {
+            this.console.log(Level.WARNING, "Could not clean up old logs in " + this.directory, e);
+        }
+    }
+
+    private void prune() throws IOException {
+        if (this.maxArchives <= 0) {
+            return;
+        }
+
+        List<Path> archives = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*.jsonl.gz")) {
+            stream.forEach(archives::add);
+        }
+
+        // The names start with the rotation time, so they sort chronologically
+        Collections.sort(archives);
+
+        for (int i = 0; i < archives.size() - this.maxArchives; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+
+    private static Path gzipped(Path path) {
+        return path.resolveSibling(path.getFileName() + ".gz");
+    }
+
+    private static ExecutorService compressor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "EnderLogger-Compress");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        });
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+    // #endregion
+
+    // #region json
+    private static String levelName(Level level) {
+        return level == EnderLogger.DEBUG ? "DEBUG" : level.getName();
+    }
+
+    private static void appendJson(StringBuilder sb, String value) {
+        sb.append('"');
+        appendMessage(sb, value);
+        sb.append('"');
+    }
+
+    /**
+     * Appends {@code value} JSON-escaped, without ANSI escape sequences.
+     */
+    private static void appendMessage(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '\u001B') {
+                i = skipEscape(value, i);
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the index of the last character of the escape sequence starting at start
+    private static int skipEscape(String value, int start) {
+        if (start + 1 >= value.length() || value.charAt(start + 1) != '[') {
+            return start;
+        }
+
+        for (int i = start + 2; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= 0x40 && c <= 0x7E) {
+                return i;
+            }
+        }
+
+        return value.length() - 1;
+    }
+    // #endregion
+
+    private static final class Entry {
+        private final long time;
+        private final Level level;
+        private final String thread;
+        private final String[] msg;
+
+        private Entry(long time, Level level, String thread, String[] msg) {
+            this.time = time;
+            this.level = level;
+            this.thread = thread;
+            this.msg = msg;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package net.endkind.enderCore.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Per-key token buckets for {@link EnderLogger}. A key is the template or call site of a message, or the
+ * full text of a message without one, see {@link #key(String[])}. Buckets are CAS-updated cells in a
+ * {@link ConcurrentHashMap}, so logging never takes a lock shared between keys.
+ * <p>
+ * Suppressed messages are counted and reported as "(repeated N times in the last Xs)" on the next
+ * message of the key that passes, or by a sweep once the key has been quiet for a while.
+ * </p>
+ * <p>
+ * A bucket whose burst has fully refilled is in the same state as a new one, so such buckets are dropped
+ * when the table is full. Messages that still find no room, e.g. thousands of distinct texts within a few
+ * seconds, share one overflow bucket instead of bypassing the limit.
+ * </p>
+ */
+final class LogRateLimiter {
+    private static final int MAX_KEYS = 4096;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SUMMARY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final EnderLogger owner;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ConcurrentHashMap<Object, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket overflow = new Bucket(System.nanoTime(), true);
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    private final AtomicLong nextCompact = new AtomicLong(System.nanoTime());
+
+    LogRateLimiter(EnderLogger owner, double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second must be positive");
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1");
+        }
+
+        this.owner = owner;
+        this.intervalNanos = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), 1);
+        this.burstNanos = this.intervalNanos * (burst - 1);
+    }
+
+    /**
+     * @return the key of a message logged without a template, its whole text
+     */
+    static Object key(String[] msg) {
+        if (msg.length == 0) {
+            return "";
+        }
+
+        return msg.length == 1 ? String.valueOf(msg[0]) : Arrays.asList(msg);
+    }
+
+    /**
+     * Takes a permit for {@code key}.
+     *
+     * @return the bucket of the key if the message may be logged, {@code null} if it was suppressed
+     */
+    Bucket acquire(Object key) {
+        long now = System.nanoTime();
+
+        this.sweep(now);
+
+        Bucket bucket = this.buckets.get(key);
+
+        if (bucket == null) {
+            if (this.buckets.size() >= MAX_KEYS) {
+                this.compact(now);
+            }
+
+            // Too many distinct messages to track, they are limited together rather than growing without bound
+            bucket = this.buckets.size() < MAX_KEYS ? this.buckets.computeIfAbsent(key, k -> new Bucket(now, false)) : this.overflow;
+        }
+
+        bucket.lastSeen = now;
+
+        // Generic cell rate algorithm: one CAS on the theoretical arrival time replaces a token count and a refill timestamp
+        while (true) {
+            long tat = bucket.tat.get();
+            long start = Math.max(tat, now);
+
+            if (start - now > this.burstNanos) {
+                if (bucket.suppressed.sum() == 0) {
+                    bucket.firstSuppressed = now;
+                }
+
+                bucket.suppressed.increment();
+                return null;
+            }
+
+            if (bucket.tat.compareAndSet(tat, start + this.intervalNanos)) {
+                return bucket;
+            }
+        }
+    }
+
+    /**
+     * Remembers {@code msg} as the last logged message of {@code bucket} and appends the summary of the
+     * messages suppressed since the last one, if any.
+     */
+    String[] passed(Bucket bucket, Level level, String[] msg) {
+        bucket.lastLevel = level;
+        bucket.lastMessage = msg;
+
+        long suppressed = bucket.suppressed.sumThenReset();
+
+        if (suppressed == 0) {
+            return msg;
+        }
+
+        String[] annotated = new String[msg.length + 1];
+        System.arraycopy(msg, 0, annotated, 0, msg.length);
+        annotated[msg.length] = summary(bucket, suppressed, System.nanoTime() - bucket.firstSuppressed);
+
+        return annotated;
+    }
+
+    /**
+     * Reports the suppressed messages of every key, e.g. before the logger is replaced.
+     */
+    void flush() {
+        for (Bucket bucket : this.buckets.values()) {
+            this.report(bucket, System.nanoTime());
+        }
+
+        this.report(this.overflow, System.nanoTime());
+    }
+
+    // Drops the buckets that would behave like new ones, at most once per interval while the table is full
+    private void compact(long now) {
+        long next = this.nextCompact.get();
+
+        if (now - next < 0 || !this.nextCompact.compareAndSet(next, now + this.intervalNanos)) {
+            return;
+        }
+
+        this.buckets.values().removeIf(bucket -> bucket.tat.get() - now <= 0 && bucket.suppressed.sum() == 0);
+    }
+
+    private void sweep(long now) {
+        long next = this.nextSweep.get();
+
+        if (now - next < 0 || !this.nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+
+        Iterator<Bucket> iterator = this.buckets.values().iterator();
+
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+
+            if (now - bucket.lastSeen >= SUMMARY_DELAY_NANOS) {
+                this.report(bucket, now);
+            }
+
+            if (now - bucket.lastSeen >= IDLE_NANOS && bucket.suppressed.sum() == 0) {
+                iterator.remove();
+            }
+        }
+
+        if (now - this.overflow.lastSeen >= SUMMARY_DELAY_NANOS) {
+            this.report(this.overflow, now);
+        }
+    }
+
+    private void report(Bucket bucket, long now) {
+        String[] last = bucket.lastMessage;
+        long suppressed = bucket.suppressed.sumThenReset();
+
+        if (suppressed == 0 || last == null) {
+            return;
+        }
+
+        String summary = summary(bucket, suppressed, now - bucket.firstSuppressed);
+
+        // The last message of the overflow bucket is unrelated to the suppressed ones
+        if (bucket.overflow) {
+            this.owner.submitUnlimited(bucket.lastLevel, new String[]{summary.substring(1)});
+            return;
+        }
+
+        String[] msg = new String[last.length + 1];
+        System.arraycopy(last, 0, msg, 0, last.length);
+        msg[last.length] = summary;
+
+        this.owner.submitUnlimited(bucket.lastLevel, msg);
+    }
+
+    private static String summary(Bucket bucket, long suppressed, long nanos) {
+        return String.format(Locale.ROOT, bucket.overflow ? " (%d other messages suppressed in the last %ds)" : " (repeated %d times in the last %ds)",
+                suppressed, Math.max(TimeUnit.NANOSECONDS.toSeconds(nanos), 1));
+    }
+
+    static final class Bucket {
+        private final AtomicLong tat;
+        private final boolean overflow;
+        private final LongAdder suppressed = new LongAdder();
+        private volatile long firstSuppressed;
+        private volatile long lastSeen;
+        private volatile Level lastLevel;
+        private volatile String[] lastMessage;
+
+        private Bucket(long now, boolean overflow) {
+            this.tat = new AtomicLong(now);
+            this.overflow = overflow;
+            this.lastSeen = now;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.ICounter;
+import net.endkind.enderCore.api.IGauge;
+import net.endkind.enderCore.api.IMetricRegistry;
+import net.endkind.enderCore.api.ITimer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of counters, gauges and timers that renders the Prometheus text format.
+ * <p>
+ * Registration goes through concurrent maps, recording only touches the metric itself: counters are
+ * {@link LongAdder}s, timers are {@link LatencyHistogram}s and gauges are read when exported. Labels
+ * are given as alternating names and values, e.g. {@code counter("joins_total", "Player joins", "world", "lobby")}.
+ * </p>
+ */
+public final class MetricRegistry implements IMetricRegistry {
+    private static final MetricRegistry GLOBAL = new MetricRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentSkipListMap<String, Family> families;
+    private final String[] baseLabels;
+
+    public MetricRegistry() {
+        this(new ConcurrentSkipListMap<>(), new String[0]);
+    }
+
+    private MetricRegistry(ConcurrentSkipListMap<String, Family> families, String[] baseLabels) {
+        this.families = families;
+        this.baseLabels = baseLabels;
+    }
+
+    /**
+     * @return the registry shared by all EnderCore plugins
+     */
+    public static MetricRegistry global() {
+        return GLOBAL;
+    }
+
+    // #region register
+    @Override
+    public ICounter counter(String name, String help, String... labels) {
+        return (ICounter) this.register(name, help, Type.COUNTER, labels, Counter::new, false);
+    }
+
+    /**
+     * Registers a counter whose value is read from {@code count} on export, replacing an earlier one
+     * with the same name and labels.
+     */
+    @Override
+    public void counter(String name, String help, LongSupplier count, String... labels) {
+        this.register(name, help, Type.COUNTER, labels, () -> new FunctionCounter(count), true);
+    }
+
+    /**
+     * Registers a gauge whose value is read from {@code value} on export, replacing an earlier one
+     * with the same name and labels.
+     */
+    @Override
+    public IGauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return (IGauge) this.register(name, help, Type.GAUGE, labels, () -> new Gauge(value), true);
+    }
+
+    @Override
+    public ITimer timer(String name, String help, String... labels) {
+        return (ITimer) this.register(name, help, Type.SUMMARY, labels, Timer::new, false);
+    }
+
+    /**
+     * Returns a view of this registry that adds {@code labels} to every metric registered through it.
+     */
+    @Override
+    public MetricRegistry withLabels(String... labels) {
+        return new MetricRegistry(this.families, concat(this.baseLabels, labels));
+    }
+
+    /**
+     * Removes every metric that has all of {@code labels}, e.g. the metrics of a disabled plugin.
+     */
+    @Override
+    public void unregister(String... labels) {
+        String[] all = concat(this.baseLabels, labels);
+        String[] needles = new String[all.length / 2];
+
+        for (int i = 0; i < all.length; i += 2) {
+            StringBuilder sb = new StringBuilder();
+            appendLabel(sb, all[i], all[i + 1]);
+            needles[i / 2] = sb.toString();
+        }
+
+        for (Family family : this.families.values()) {
+            family.series.keySet().removeIf(key -> {
+                for (String needle : needles) {
+                    if (!key.contains("{" + needle) && !key.contains("," + needle)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            });
+        }
+    }
+
+    private Object register(String name, String help, Type type, String[] labels, Supplier<Series> factory, boolean replace) {
+        if (name == null || !name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) {
+            throw new IllegalArgumentException("Invalid metric name " + name);
+        }
+
+        String key = renderLabels(concat(this.baseLabels, labels));
+        Family family = this.families.computeIfAbsent(name, n -> new Family(help, type));
+
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.name);
+        }
+
+        if (replace) {
+            Series series = factory.get();
+            family.series.put(key, series);
+
+            return series;
+        }
+
+        return family.series.computeIfAbsent(key, k -> factory.get());
+    }
+    // #endregion
+
+    // #region export
+    @Override
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Map.Entry<String, Family> entry : this.families.entrySet()) {
+            Family family = entry.getValue();
+
+            if (family.series.isEmpty()) {
+                continue;
+            }
+
+            String name = entry.getKey();
+
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type.name).append('\n');
+
+            for (Map.Entry<String, Series> series : family.series.entrySet()) {
+                series.getValue().write(out, name, series.getKey());
+            }
+        }
+    }
+
+    private static void sample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name).append(labels).append(' ');
+
+        if (value == (long) value) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+
+        out.append('\n');
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+
+        if (labels.length == 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder("{");
+
+        for (int i = 0; i < labels.length; i += 2) {
+            if (labels[i] == null || !labels[i].matches("[a-zA-Z_][a-zA-Z0-9_]*")) {
+                throw new IllegalArgumentException("Invalid label name " + labels[i]);
+            }
+
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            appendLabel(sb, labels[i], labels[i + 1]);
+        }
+
+        return sb.append('}').toString();
+    }
+
+    private static void appendLabel(StringBuilder sb, String name, String value) {
+        sb.append(name).append("=\"");
+
+        String v = String.valueOf(value);
+
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+
+        sb.append('"');
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        StringBuilder sb = new StringBuilder();
+
+        if (labels.isEmpty()) {
+            sb.append('{');
+        } else {
+            sb.append(labels, 0, labels.length() - 1).append(',');
+        }
+
+        appendLabel(sb, name, value);
+
+        return sb.append('}').toString();
+    }
+
+    private static String escapeHelp(String help) {
+        return String.valueOf(help).replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+
+        String[] all = new String[a.length + b.length];
+        System.arraycopy(a, 0, all, 0, a.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+
+        return all;
+    }
+    // #endregion
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private interface Series {
+        void write(Appendable out, String name, String labels) throws IOException;
+    }
+
+    private static final class Counter implements ICounter, Series {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment() {
+            this.count.increment();
+        }
+
+        @Override
+        public void add(long amount) {
+            this.count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        @Override
+        public void write(Appendable out, String name, String labels) throws IOException {
+            sample(out, name, labels, this.count.sum());
+        }
+    }
+
+    private static final class FunctionCounter implements Series {
+        private final LongSupplier count;
+
+        private FunctionCounter(LongSupplier count) {
+            this.count = count;
+        }
+
+        @Override
+        public void write(Appendable out, String name, String labels) throws IOException {
+            sample(out, name, labels, this.count.getAsLong());
+        }
+    }
+
+    private static final class Gauge implements IGauge, Series {
+        private final DoubleSupplier value;
+
+        private Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public double getValue() {
+            return this.value.getAsDouble();
+        }
+
+        @Override
+        public void write(Appendable out, String name, String labels) throws IOException {
+            sample(out, name, labels, this.getValue());
+        }
+    }
+
+    private static final class Timer implements ITimer, Series {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        @Override
+        public void record(long nanos) {
+            this.histogram.record(nanos);
+        }
+
+        @Override
+        public void time(Runnable task) {
+            long start = System.nanoTime();
+
+            try {
+                task.run();
+            } finally {
+                this.histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public LatencyHistogram getHistogram() {
+            return this.histogram;
+        }
+
+        // Exported as a summary in seconds, as Prometheus expects for durations
+        @Override
+        public void write(Appendable out, String name, String labels) throws IOException {
+            for (double quantile : QUANTILES) {
+                sample(out, name, withLabel(labels, "quantile", Double.toString(quantile)), this.histogram.getPercentileNanos(quantile * 100) / 1e9);
+            }
+
+            sample(out, name + "_sum", labels, this.histogram.getTotalNanos() / 1e9);
+            sample(out, name + "_count", labels, this.histogram.getCount());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.endkind.enderCore.core;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports a {@link MetricRegistry} in the Prometheus text format, either on {@code /metrics} of a
+ * local HTTP server or by rewriting a file periodically (for the node exporter's textfile collector).
+ */
+public final class PrometheusExporter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(PrometheusExporter.class.getName());
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ScheduledExecutorService executor;
+
+    private PrometheusExporter(HttpServer server, ScheduledExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Serves {@code registry} on {@code http://host:port/metrics}.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public static PrometheusExporter http(MetricRegistry registry, String host, int port) throws IOException {
+        ScheduledExecutorService executor = newExecutor("EnderCore-Metrics-HTTP");
+        HttpServer server;
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            executor.shutdown();
+            throw e;
+        }
+
+        server.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                StringBuilder sb = new StringBuilder(4096);
+                registry.writePrometheus(sb);
+
+                byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+
+        server.setExecutor(executor);
+        server.start();
+
+        return new PrometheusExporter(server, executor);
+    }
+
+    /**
+     * Writes {@code registry} to {@code file} every {@code intervalSeconds}. The file is replaced
+     * atomically, so readers never see a partial export.
+     */
+    public static PrometheusExporter file(MetricRegistry registry, Path file, long intervalSeconds) {
+        if (intervalSeconds < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1 second");
+        }
+
+        ScheduledExecutorService executor = newExecutor("EnderCore-Metrics-File");
+
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                writeFile(registry, file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not write metrics to " + file, e);
+            }
+        }, 0, intervalSeconds, TimeUnit.SECONDS);
+
+        return new PrometheusExporter(null, executor);
+    }
+
+    private static void writeFile(MetricRegistry registry, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                registry.writePrometheus(writer);
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ScheduledExecutorService newExecutor(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() {
+        if (this.server != null) {
+            this.server.stop(0);
+        }
+
+        this.executor.shutdownNow();
+    }
+}
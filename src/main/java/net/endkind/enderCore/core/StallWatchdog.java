@@ -0,0 +1,266 @@
+package net.endkind.enderCore.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Detects stalls of a thread that is expected to call {@link #heartbeat()} regularly, usually the server
+ * main thread once per tick.
+ * <p>
+ * While the heartbeats arrive in time, the cost is one volatile write per heartbeat and a daemon thread
+ * waking up a few times per threshold. Once no heartbeat arrived for longer than the threshold, the daemon
+ * samples the stack of the watched thread at a fixed interval until the next heartbeat. The samples are
+ * aggregated into collapsed stacks, one line per distinct stack with its sample count, which flame graph
+ * tools read directly. Every stack is attributed to the owner of the frame closest to the top whose class
+ * is in a {@linkplain #registerOwner(String, String) registered package}, so the graph is grouped by plugin.
+ * Frames of a {@linkplain #registerLibrary(String, String) library} are skipped, since a library mostly runs
+ * on behalf of the plugins using it, and only count if no other owner is on the stack.
+ * </p>
+ */
+public final class StallWatchdog implements AutoCloseable {
+    private static final String UNATTRIBUTED = "server";
+    private static final Map<String, String> OWNERS = new ConcurrentHashMap<>();
+    private static final Set<String> LIBRARIES = ConcurrentHashMap.newKeySet();
+
+    private final Thread target;
+    private final long thresholdNanos;
+    private final long sampleIntervalNanos;
+    private final int maxSamples;
+    private final Consumer<Stall> handler;
+    private final Thread thread;
+    // Written by the watched thread only
+    private volatile long lastBeat;
+    private volatile boolean running = true;
+
+    /**
+     * Starts watching {@code target}.
+     *
+     * @param thresholdMillis      milliseconds without a heartbeat after which sampling starts
+     * @param sampleIntervalMillis milliseconds between two stack samples
+     * @param maxSamples           samples kept per stall, later ones only extend its duration
+     * @param handler              called on the watchdog thread once the stall is over
+     * @throws IllegalArgumentException if a value is not positive
+     */
+    public StallWatchdog(Thread target, long thresholdMillis, long sampleIntervalMillis, int maxSamples, Consumer<Stall> handler) {
+        if (thresholdMillis <= 0 || sampleIntervalMillis <= 0 || maxSamples <= 0) {
+            throw new IllegalArgumentException("Watchdog threshold, sample interval and max samples must be positive");
+        }
+
+        this.target = target;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+        this.maxSamples = maxSamples;
+        this.handler = handler;
+        this.lastBeat = System.nanoTime();
+
+        this.thread = new Thread(this::watch, "EnderCore-Watchdog");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // #region OWNERS
+    /**
+     * Attributes frames of classes in {@code packageName} and its subpackages to {@code owner}.
+     * The longest matching package wins.
+     */
+    public static void registerOwner(String packageName, String owner) {
+        OWNERS.put(packageName, owner);
+    }
+
+    /**
+     * Like {@link #registerOwner(String, String)}, but a stack is only attributed to {@code owner} if it has
+     * no frame of another owner.
+     */
+    public static void registerLibrary(String packageName, String owner) {
+        LIBRARIES.add(owner);
+        OWNERS.put(packageName, owner);
+    }
+
+    public static void unregisterOwner(String owner) {
+        OWNERS.values().removeIf(owner::equals);
+        LIBRARIES.remove(owner);
+    }
+
+    private static String ownerOf(String className) {
+        String owner = null;
+        int length = -1;
+
+        for (Map.Entry<String, String> entry : OWNERS.entrySet()) {
+            String packageName = entry.getKey();
+
+            if (packageName.length() > length && className.startsWith(packageName)
+                    && className.length() > packageName.length() && className.charAt(packageName.length()) == '.') {
+                owner = entry.getValue();
+                length = packageName.length();
+            }
+        }
+
+        return owner;
+    }
+    // #endregion
+
+    /**
+     * Marks the watched thread as alive. Must be called from the watched thread.
+     */
+    public void heartbeat() {
+        this.lastBeat = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+    }
+
+    private void watch() {
+        long checkInterval = Math.max(this.thresholdNanos / 4, TimeUnit.MILLISECONDS.toNanos(5));
+
+        while (this.running) {
+            LockSupport.parkNanos(checkInterval);
+
+            long beat = this.lastBeat;
+
+            if (System.nanoTime() - beat > this.thresholdNanos && this.running && this.target.isAlive()) {
+                this.sample(beat);
+            }
+        }
+    }
+
+    private void sample(long beat) {
+        Map<String, Integer> stacks = new HashMap<>();
+        Map<String, Integer> owners = new HashMap<>();
+        // Frames repeat between samples, owners are looked up once per class
+        Map<String, String> classOwners = new HashMap<>();
+        StringBuilder sb = new StringBuilder(4096);
+        int samples = 0;
+
+        while (this.running && this.lastBeat == beat && this.target.isAlive()) {
+            if (samples < this.maxSamples) {
+                StackTraceElement[] frames = this.target.getStackTrace();
+
+                if (frames.length > 0) {
+                    String owner = null;
+                    String library = null;
+
+                    for (StackTraceElement frame : frames) {
+                        String frameOwner = classOwners.computeIfAbsent(frame.getClassName(), StallWatchdog::ownerOf);
+
+                        if (frameOwner == null) {
+                            continue;
+                        }
+
+                        if (!LIBRARIES.contains(frameOwner)) {
+                            owner = frameOwner;
+                            break;
+                        }
+
+                        if (library == null) {
+                            library = frameOwner;
+                        }
+                    }
+
+                    if (owner == null) {
+                        owner = library != null ? library : UNATTRIBUTED;
+                    }
+
+                    sb.setLength(0);
+                    sb.append(owner);
+
+                    // Collapsed stacks go from the root to the top frame
+                    for (int i = frames.length - 1; i >= 0; i--) {
+                        sb.append(';').append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+                    }
+
+                    stacks.merge(sb.toString(), 1, Integer::sum);
+                    owners.merge(owner, 1, Integer::sum);
+                    samples++;
+                }
+            }
+
+            LockSupport.parkNanos(this.sampleIntervalNanos);
+        }
+
+        if (!this.running || !this.target.isAlive()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long start = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(now - beat);
+
+        this.handler.accept(new Stall(start, this.lastBeat - beat, samples, stacks, owners));
+    }
+
+    /**
+     * The samples of one stall.
+     */
+    public static final class Stall {
+        private final long startMillis;
+        private final long durationNanos;
+        private final int samples;
+        private final Map<String, Integer> stacks;
+        private final Map<String, Integer> owners;
+
+        private Stall(long startMillis, long durationNanos, int samples, Map<String, Integer> stacks, Map<String, Integer> owners) {
+            this.startMillis = startMillis;
+            this.durationNanos = durationNanos;
+            this.samples = samples;
+            this.stacks = Collections.unmodifiableMap(stacks);
+
+            Map<String, Integer> sorted = new LinkedHashMap<>();
+            owners.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEachOrdered(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            this.owners = Collections.unmodifiableMap(sorted);
+        }
+
+        /**
+         * @return the wall clock time of the last heartbeat before the stall
+         */
+        public long getStartMillis() {
+            return this.startMillis;
+        }
+
+        /**
+         * @return the time between the last heartbeat before and the first heartbeat after the stall
+         */
+        public long getDurationNanos() {
+            return this.durationNanos;
+        }
+
+        public int getSamples() {
+            return this.samples;
+        }
+
+        /**
+         * @return the sample count of every collapsed stack, whose first frame is the owner
+         */
+        public Map<String, Integer> getStacks() {
+            return this.stacks;
+        }
+
+        /**
+         * @return the sample count of every owner, most samples first
+         */
+        public Map<String, Integer> getOwners() {
+            return this.owners;
+        }
+
+        /**
+         * Appends the stacks in the collapsed format, {@code owner;root;...;top count} per line.
+         */
+        public StringBuilder appendCollapsed(StringBuilder sb) {
+            for (Map.Entry<String, Integer> entry : this.stacks.entrySet()) {
+                sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+
+            return sb;
+        }
+    }
+}
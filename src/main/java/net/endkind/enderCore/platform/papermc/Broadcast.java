@@ -0,0 +1,278 @@
+package net.endkind.enderCore.platform.papermc;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.translation.GlobalTranslator;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A message sent to a filtered set of online players.
+ * <p>
+ * The message is rendered once per locale instead of once per player. Large audiences can be
+ * spread over several ticks in fixed-size batches. Instances are created with
+ * {@link EnderPlugin#broadcast(Component)}, configured fluently and sent once.
+ * </p>
+ * <p>
+ * Only the translation is shared. Each recipient still gets its own {@code sendMessage} call, and Paper
+ * serializes the component into a chat packet for every one of them, so that cost grows with the audience.
+ * Batching spreads it over ticks but does not reduce it.
+ * </p>
+ * <p>
+ * Deliveries still running when the plugin is disabled are stopped by Bukkit, their futures complete
+ * with a {@link CancellationException}.
+ * </p>
+ */
+public final class Broadcast {
+    private static final Map<EnderPlugin, Set<CompletableFuture<BroadcastReport>>> PENDING = new ConcurrentHashMap<>();
+
+    private final EnderPlugin plugin;
+    private final Component message;
+
+    private Predicate<? super Player> filter = player -> true;
+    private int batchSize;
+    private long interval = 1;
+    private boolean sent;
+
+    Broadcast(EnderPlugin plugin, Component message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message cannot be null");
+        }
+
+        this.plugin = plugin;
+        this.message = message;
+    }
+
+    /**
+     * Only delivers to players matching {@code predicate}. Multiple filters are combined with AND.
+     */
+    public Broadcast filter(Predicate<? super Player> predicate) {
+        Predicate<? super Player> previous = this.filter;
+        this.filter = player -> previous.test(player) && predicate.test(player);
+
+        return this;
+    }
+
+    /**
+     * Only delivers to players that have {@code permission}.
+     */
+    public Broadcast permission(String permission) {
+        return this.filter(player -> player.hasPermission(permission));
+    }
+
+    /**
+     * Only delivers to players that are currently in {@code world}.
+     */
+    public Broadcast world(World world) {
+        return this.filter(player -> player.getWorld() == world);
+    }
+
+    /**
+     * Delivers to at most {@code batchSize} players per run, one run every {@code intervalTicks} ticks.
+     * A batch size of {@code 0} (the default) delivers everything at once.
+     *
+     * @throws IllegalArgumentException if {@code batchSize} is negative or {@code intervalTicks} is less than 1
+     */
+    public Broadcast batched(int batchSize, long intervalTicks) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("Batch size cannot be negative");
+        }
+
+        if (intervalTicks < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1 tick");
+        }
+
+        this.batchSize = batchSize;
+        this.interval = intervalTicks;
+
+        return this;
+    }
+
+    /**
+     * Selects the recipients and starts the delivery. Called off the main thread, the selection is
+     * moved to the next tick.
+     *
+     * @return a future that completes on the main thread once the last batch has been sent, or exceptionally
+     *         if the delivery failed or the plugin was disabled first
+     * @throws IllegalStateException if this broadcast was already sent
+     */
+    public CompletableFuture<BroadcastReport> send() {
+        if (this.sent) {
+            throw new IllegalStateException("Broadcast was already sent");
+        }
+
+        this.sent = true;
+
+        CompletableFuture<BroadcastReport> future = new CompletableFuture<>();
+        Set<CompletableFuture<BroadcastReport>> pending = PENDING.computeIfAbsent(this.plugin, plugin -> ConcurrentHashMap.newKeySet());
+
+        pending.add(future);
+        future.whenComplete((report, t) -> pending.remove(future));
+
+        // Checked after registering, a plugin disabled in between has already failed the pending futures
+        if (!this.plugin.isEnabled()) {
+            future.completeExceptionally(new CancellationException("Plugin disabled"));
+            return future;
+        }
+
+        try {
+            if (Bukkit.isPrimaryThread()) {
+                this.start(future);
+            } else {
+                Bukkit.getScheduler().runTask(this.plugin, () -> {
+                    try {
+                        this.start(future);
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Fails the deliveries of {@code plugin} that are still running, Bukkit cancels their tasks on disable.
+     */
+    static void unregister(EnderPlugin plugin) {
+        Set<CompletableFuture<BroadcastReport>> pending = PENDING.remove(plugin);
+
+        if (pending == null) {
+            return;
+        }
+
+        for (CompletableFuture<BroadcastReport> future : pending) {
+            future.completeExceptionally(new CancellationException("Plugin disabled"));
+        }
+    }
+
+    private void start(CompletableFuture<BroadcastReport> future) {
+        // Failed by unregister before the scheduled start ran
+        if (future.isDone()) {
+            return;
+        }
+
+        long renderStart = System.nanoTime();
+
+        List<Player> targets = new ArrayList<>();
+        List<Component> rendered = new ArrayList<>();
+        Map<Locale, Component> byLocale = new HashMap<>();
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (!this.filter.test(player)) {
+                continue;
+            }
+
+            targets.add(player);
+            rendered.add(byLocale.computeIfAbsent(player.locale(), locale -> GlobalTranslator.render(this.message, locale)));
+        }
+
+        long renderNanos = System.nanoTime() - renderStart;
+        int batchSize = this.batchSize == 0 ? Math.max(targets.size(), 1) : this.batchSize;
+
+        Delivery delivery = new Delivery(targets, rendered, batchSize, byLocale.size(), renderNanos, future);
+
+        delivery.run();
+
+        if (!delivery.isDone() && !future.isDone()) {
+            delivery.task = Bukkit.getScheduler().runTaskTimer(this.plugin, delivery, this.interval, this.interval);
+        }
+    }
+
+    private final class Delivery implements Runnable {
+        private final List<Player> targets;
+        private final List<Component> rendered;
+        private final int batchSize;
+        private final int locales;
+        private final long renderNanos;
+        private final CompletableFuture<BroadcastReport> future;
+        private final int startTick = Bukkit.getCurrentTick();
+
+        private BukkitTask task;
+        private int index;
+        private int delivered;
+        private int batches;
+        private long sendNanos;
+
+        private Delivery(List<Player> targets, List<Component> rendered, int batchSize, int locales, long renderNanos, CompletableFuture<BroadcastReport> future) {
+            this.targets = targets;
+            this.rendered = rendered;
+            this.batchSize = batchSize;
+            this.locales = locales;
+            this.renderNanos = renderNanos;
+            this.future = future;
+        }
+
+        private boolean isDone() {
+            return this.index >= this.targets.size();
+        }
+
+        @Override
+        public void run() {
+            if (this.future.isDone()) {
+                this.stop();
+                return;
+            }
+
+            try {
+                this.deliver();
+            } catch (RuntimeException e) {
+                this.stop();
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        private void stop() {
+            if (this.task != null) {
+                this.task.cancel();
+            }
+        }
+
+        private void deliver() {
+            long start = System.nanoTime();
+            int end = Math.min(this.index + this.batchSize, this.targets.size());
+
+            for (; this.index < end; this.index++) {
+                Player player = this.targets.get(this.index);
+
+                // Later batches can reach players that have left in the meantime
+                if (!player.isOnline()) {
+                    continue;
+                }
+
+                // Serialized again per player by Paper, the Bukkit API has no way to send a pre-built packet
+                player.sendMessage(this.rendered.get(this.index));
+                this.delivered++;
+            }
+
+            this.batches++;
+            this.sendNanos += System.nanoTime() - start;
+
+            if (!this.isDone()) {
+                return;
+            }
+
+            this.stop();
+
+            BroadcastReport report = new BroadcastReport(this.delivered, this.locales, this.batches, this.renderNanos, this.sendNanos, Bukkit.getCurrentTick() - this.startTick);
+
+            plugin.logger.debug("Broadcast finished: {}", report);
+            this.future.complete(report);
+        }
+    }
+}
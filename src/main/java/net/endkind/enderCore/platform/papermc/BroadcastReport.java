@@ -0,0 +1,82 @@
+package net.endkind.enderCore.platform.papermc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and delivery numbers of a single finished {@link Broadcast}.
+ */
+public final class BroadcastReport {
+    private final int recipients;
+    private final int locales;
+    private final int batches;
+    private final long renderNanos;
+    private final long sendNanos;
+    private final int ticks;
+
+    BroadcastReport(int recipients, int locales, int batches, long renderNanos, long sendNanos, int ticks) {
+        this.recipients = recipients;
+        this.locales = locales;
+        this.batches = batches;
+        this.renderNanos = renderNanos;
+        this.sendNanos = sendNanos;
+        this.ticks = ticks;
+    }
+
+    /**
+     * @return the number of players the message was delivered to
+     */
+    public int getRecipients() {
+        return this.recipients;
+    }
+
+    /**
+     * @return the number of distinct locales the message was rendered for
+     */
+    public int getLocales() {
+        return this.locales;
+    }
+
+    /**
+     * @return the number of batches the delivery was split into
+     */
+    public int getBatches() {
+        return this.batches;
+    }
+
+    /**
+     * @return the main-thread time spent rendering the message, in nanoseconds
+     */
+    public long getRenderNanos() {
+        return this.renderNanos;
+    }
+
+    /**
+     * @return the main-thread time spent sending the message, summed over all batches, in nanoseconds
+     */
+    public long getSendNanos() {
+        return this.sendNanos;
+    }
+
+    /**
+     * @return the number of ticks between the first and the last batch
+     */
+    public int getTicks() {
+        return this.ticks;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BroadcastReport{");
+
+        sb.append("recipients: ").append(this.recipients);
+        sb.append(", locales: ").append(this.locales);
+        sb.append(", batches: ").append(this.batches);
+        sb.append(", render: ").append(TimeUnit.NANOSECONDS.toMicros(this.renderNanos)).append("µs");
+        sb.append(", send: ").append(TimeUnit.NANOSECONDS.toMicros(this.sendNanos)).append("µs");
+        sb.append(", ticks: ").append(this.ticks);
+
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
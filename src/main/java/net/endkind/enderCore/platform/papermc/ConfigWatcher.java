@@ -0,0 +1,86 @@
+package net.endkind.enderCore.platform.papermc;
+
+import net.endkind.enderCore.core.EnderLogger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Watches a single file with a {@link WatchService} and calls back on a daemon thread when it changes.
+ * Bursts of events (editors often write a file in several steps) are collapsed into one callback.
+ */
+final class ConfigWatcher {
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final Supplier<EnderLogger> logger;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    ConfigWatcher(Path file, String name, Runnable onChange, Supplier<EnderLogger> logger) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.onChange = onChange;
+        this.logger = logger;
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.thread = new Thread(this::run, "EnderCore-ConfigWatcher-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void close() {
+        try {
+            this.watchService.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = this.watchService.take();
+                boolean changed = this.isChanged(key);
+
+                if (!changed) {
+                    continue;
+                }
+
+                // Swallow the rest of the burst before reading the file
+                while ((key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    this.isChanged(key);
+                }
+
+                try {
+                    this.onChange.run();
+                } catch (RuntimeException e) {
+                    this.logger.get().log(Level.SEVERE, "Could not handle the change of " + this.file, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    private boolean isChanged(WatchKey key) {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path path && path.equals(this.file.getFileName())) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+
+        return changed;
+    }
+}
@@ -0,0 +1,365 @@
+package net.endkind.enderCore.platform.papermc;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable, typed snapshot of a plugin's config.yml.
+ * <p>
+ * The YAML tree is flattened once into a map of full paths to leaf values, so lookups don't walk
+ * configuration sections. The keys EnderCore itself uses are parsed into fields up front.
+ * A snapshot is safe to share between threads.
+ * </p>
+ */
+public final class EnderConfig {
+    private final Map<String, Object> values;
+
+    private final int version;
+    private final String prefixName;
+    private final String prefixColor;
+    private final boolean prefixUseArrow;
+    private final String consoleColorDepth;
+    private final String loggerLevel;
+    private final boolean loggerAsync;
+    private final int loggerBufferSize;
+    private final String loggerOverflowPolicy;
+    private final boolean loggerRateLimit;
+    private final double loggerRateLimitPerSecond;
+    private final int loggerRateLimitBurst;
+    private final boolean loggerFile;
+    private final long loggerFileMaxSize;
+    private final double loggerFileRotateHours;
+    private final int loggerFileMaxArchives;
+    private final boolean watch;
+    private final double schedulerTickBudget;
+    private final int schedulerIoThreads;
+    private final boolean instrumentListeners;
+    private final boolean instrumentAllocations;
+    private final boolean metricsHttp;
+    private final String metricsHttpHost;
+    private final int metricsHttpPort;
+    private final boolean metricsFile;
+    private final String metricsFilePath;
+    private final int metricsFileInterval;
+    private final long cacheMemoryBudget;
+    private final String messagesDefaultLocale;
+    private final boolean watchdog;
+    private final long watchdogThreshold;
+    private final long watchdogSampleInterval;
+    private final int watchdogMaxFiles;
+
+    private EnderConfig(Map<String, Object> values) {
+        this.values = values;
+
+        this.version = this.getInt("version", 0);
+        this.prefixName = this.getString("prefix.name", null);
+        this.prefixColor = this.getString("prefix.color", "#6400d4");
+        this.prefixUseArrow = this.getBoolean("prefix.useArrow", true);
+        this.consoleColorDepth = this.getString("console.colorDepth", "AUTO");
+        this.loggerLevel = this.getString("logger.level", "INFO");
+        this.loggerAsync = this.getBoolean("logger.async", false);
+        this.loggerBufferSize = this.getInt("logger.bufferSize", 8192);
+        this.loggerOverflowPolicy = this.getString("logger.overflowPolicy", "BLOCK");
+        this.loggerRateLimit = this.getBoolean("logger.rateLimit.enabled", false);
+        this.loggerRateLimitPerSecond = this.getDouble("logger.rateLimit.perSecond", 1);
+        this.loggerRateLimitBurst = this.getInt("logger.rateLimit.burst", 10);
+        this.loggerFile = this.getBoolean("logger.file.enabled", false);
+        this.loggerFileMaxSize = this.getLong("logger.file.maxSizeMb", 16);
+        this.loggerFileRotateHours = this.getDouble("logger.file.rotateHours", 24);
+        this.loggerFileMaxArchives = this.getInt("logger.file.maxArchives", 10);
+        this.watch = this.getBoolean("config.watch", false);
+        this.schedulerTickBudget = this.getDouble("scheduler.tickBudget", 5);
+        this.schedulerIoThreads = this.getInt("scheduler.ioThreads", 4);
+        this.instrumentListeners = this.getBoolean("instrumentation.listeners", false);
+        this.instrumentAllocations = this.getBoolean("instrumentation.allocations", true);
+        this.metricsHttp = this.getBoolean("metrics.http.enabled", false);
+        this.metricsHttpHost = this.getString("metrics.http.host", "127.0.0.1");
+        this.metricsHttpPort = this.getInt("metrics.http.port", 9464);
+        this.metricsFile = this.getBoolean("metrics.file.enabled", false);
+        this.metricsFilePath = this.getString("metrics.file.path", "metrics.prom");
+        this.metricsFileInterval = this.getInt("metrics.file.intervalSeconds", 15);
+        this.cacheMemoryBudget = this.getLong("cache.memoryBudgetMb", 256);
+        this.messagesDefaultLocale = this.getString("messages.defaultLocale", "en_us");
+        this.watchdog = this.getBoolean("watchdog.enabled", true);
+        this.watchdogThreshold = this.getLong("watchdog.thresholdMs", 500);
+        this.watchdogSampleInterval = this.getLong("watchdog.sampleIntervalMs", 10);
+        this.watchdogMaxFiles = this.getInt("watchdog.maxFiles", 20);
+    }
+
+    /**
+     * Creates a snapshot of every leaf value in {@code section}, including its defaults.
+     *
+     * @param section the parsed configuration
+     * @return the snapshot
+     */
+    public static EnderConfig of(ConfigurationSection section) {
+        Map<String, Object> values = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : section.getValues(true).entrySet()) {
+            Object value = entry.getValue();
+
+            if (value instanceof ConfigurationSection) {
+                continue;
+            }
+
+            if (value instanceof List<?> list) {
+                value = Collections.unmodifiableList(new ArrayList<>(list));
+            }
+
+            values.put(entry.getKey(), value);
+        }
+
+        return new EnderConfig(Collections.unmodifiableMap(values));
+    }
+
+    // #region GETTER
+    public int getVersion() {
+        return this.version;
+    }
+
+    public String getPrefixName() {
+        return this.prefixName;
+    }
+
+    public String getPrefixColor() {
+        return this.prefixColor;
+    }
+
+    public boolean isPrefixUseArrow() {
+        return this.prefixUseArrow;
+    }
+
+    public String getConsoleColorDepth() {
+        return this.consoleColorDepth;
+    }
+
+    public String getLoggerLevel() {
+        return this.loggerLevel;
+    }
+
+    public boolean isLoggerAsync() {
+        return this.loggerAsync;
+    }
+
+    public int getLoggerBufferSize() {
+        return this.loggerBufferSize;
+    }
+
+    public String getLoggerOverflowPolicy() {
+        return this.loggerOverflowPolicy;
+    }
+
+    public boolean isLoggerRateLimit() {
+        return this.loggerRateLimit;
+    }
+
+    public double getLoggerRateLimitPerSecond() {
+        return this.loggerRateLimitPerSecond;
+    }
+
+    public int getLoggerRateLimitBurst() {
+        return this.loggerRateLimitBurst;
+    }
+
+    public boolean isLoggerFile() {
+        return this.loggerFile;
+    }
+
+    /**
+     * @return the size in megabytes at which logs/latest.jsonl is rotated
+     */
+    public long getLoggerFileMaxSize() {
+        return this.loggerFileMaxSize;
+    }
+
+    public double getLoggerFileRotateHours() {
+        return this.loggerFileRotateHours;
+    }
+
+    public int getLoggerFileMaxArchives() {
+        return this.loggerFileMaxArchives;
+    }
+
+    /**
+     * @return whether config.yml is watched for changes and hot reloaded
+     */
+    public boolean isWatch() {
+        return this.watch;
+    }
+
+    /**
+     * @return the milliseconds per tick the main-thread work queue may use
+     */
+    public double getSchedulerTickBudget() {
+        return this.schedulerTickBudget;
+    }
+
+    public int getSchedulerIoThreads() {
+        return this.schedulerIoThreads;
+    }
+
+    /**
+     * @return whether listeners registered through {@link EnderPlugin#registerListener} record per-handler latency
+     */
+    public boolean isInstrumentListeners() {
+        return this.instrumentListeners;
+    }
+
+    public boolean isInstrumentAllocations() {
+        return this.instrumentAllocations;
+    }
+
+    public boolean isMetricsHttp() {
+        return this.metricsHttp;
+    }
+
+    public String getMetricsHttpHost() {
+        return this.metricsHttpHost;
+    }
+
+    public int getMetricsHttpPort() {
+        return this.metricsHttpPort;
+    }
+
+    public boolean isMetricsFile() {
+        return this.metricsFile;
+    }
+
+    /**
+     * @return the export file, relative to the plugin folder unless absolute
+     */
+    public String getMetricsFilePath() {
+        return this.metricsFilePath;
+    }
+
+    public int getMetricsFileInterval() {
+        return this.metricsFileInterval;
+    }
+
+    /**
+     * @return the megabytes the weighted caches of all plugins may hold together, 0 for no limit
+     */
+    public long getCacheMemoryBudget() {
+        return this.cacheMemoryBudget;
+    }
+
+    /**
+     * @return the locale of the console and of players whose locale has no {@code lang} file, e.g. "en_us"
+     */
+    public String getMessagesDefaultLocale() {
+        return this.messagesDefaultLocale;
+    }
+
+    public boolean isWatchdog() {
+        return this.watchdog;
+    }
+
+    /**
+     * @return the milliseconds without a tick after which the main thread counts as stalled
+     */
+    public long getWatchdogThreshold() {
+        return this.watchdogThreshold;
+    }
+
+    public long getWatchdogSampleInterval() {
+        return this.watchdogSampleInterval;
+    }
+
+    /**
+     * @return the stall files to keep, older ones are deleted
+     */
+    public int getWatchdogMaxFiles() {
+        return this.watchdogMaxFiles;
+    }
+    // #endregion
+
+    // #region VALUES
+    /**
+     * Returns all leaf values of this snapshot, keyed by their full path (e.g., "prefix.name").
+     *
+     * @return an unmodifiable map of all leaf values
+     */
+    public Map<String, Object> getValues() {
+        return this.values;
+    }
+
+    public boolean contains(String path) {
+        return this.values.containsKey(path);
+    }
+
+    public Object get(String path) {
+        return this.values.get(path);
+    }
+
+    public String getString(String path, String def) {
+        Object value = this.values.get(path);
+
+        return value != null ? value.toString() : def;
+    }
+
+    public int getInt(String path, int def) {
+        return this.values.get(path) instanceof Number n ? n.intValue() : def;
+    }
+
+    public long getLong(String path, long def) {
+        return this.values.get(path) instanceof Number n ? n.longValue() : def;
+    }
+
+    public double getDouble(String path, double def) {
+        return this.values.get(path) instanceof Number n ? n.doubleValue() : def;
+    }
+
+    public boolean getBoolean(String path, boolean def) {
+        return this.values.get(path) instanceof Boolean b ? b : def;
+    }
+
+    public List<String> getStringList(String path) {
+        if (!(this.values.get(path) instanceof List<?> list)) {
+            return List.of();
+        }
+
+        List<String> strings = new ArrayList<>(list.size());
+
+        for (Object o : list) {
+            if (o != null) {
+                strings.add(o.toString());
+            }
+        }
+
+        return strings;
+    }
+    // #endregion
+
+    /**
+     * Returns the paths whose values differ between this snapshot and {@code other},
+     * including paths that only exist in one of them.
+     *
+     * @param other the snapshot to compare with
+     * @return the changed paths, sorted
+     */
+    public Set<String> diff(EnderConfig other) {
+        Set<String> changed = new TreeSet<>();
+
+        for (Map.Entry<String, Object> entry : this.values.entrySet()) {
+            if (!Objects.equals(entry.getValue(), other.values.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        for (String key : other.values.keySet()) {
+            if (!this.values.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+
+        return changed;
+    }
+}
@@ -1,12 +1,276 @@
 package net.endkind.enderCore.platform.papermc;
 
+import net.endkind.enderCore.core.CacheService;
+import net.endkind.enderCore.core.InitTaskGraph;
+import net.endkind.enderCore.core.MetricRegistry;
+import net.endkind.enderCore.core.PrometheusExporter;
+import net.endkind.enderCore.core.StallWatchdog;
+import net.endkind.enderCore.utils.AnsiTextFormatter;
+import net.endkind.enderCore.utils.ColorDepth;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
 public final class EnderCore extends EnderPlugin {
+    private static final long CACHE_CLEANUP_TICKS = 20 * 30;
+    private static final int WATCHDOG_MAX_SAMPLES = 2000;
+    private static final DateTimeFormatter STALL_FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final List<PrometheusExporter> exporters = new ArrayList<>();
+    private StallWatchdog watchdog;
+    private BukkitTask heartbeat;
+    private boolean ticking;
+
     @Override
-    public void onPluginEnable() {}
+    public void onPluginEnable() {
+        registerBukkitCommand(EnderCoreCommand.create(this));
+
+        getMetrics().gauge("minecraft_tps", "Ticks per second over the last minute", () -> Bukkit.getTPS()[0]);
+        getMetrics().gauge("minecraft_mspt", "Average milliseconds per tick", Bukkit::getAverageTickTime);
+
+        this.startExporters();
+        this.applyCacheBudget();
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, CacheService::cleanUpAll, CACHE_CLEANUP_TICKS, CACHE_CLEANUP_TICKS);
+
+        // The first tick runs once every plugin is enabled
+        Bukkit.getScheduler().runTask(this, () -> {
+            this.logStartupReport();
+            // Loading the worlds is no stall, so the watchdog starts with the ticks
+            this.ticking = true;
+            this.startWatchdog();
+        });
+    }
 
     @Override
-    public void onPluginDisable() {}
+    public void onPluginDisable() {
+        this.ticking = false;
+        this.stopWatchdog();
+        this.stopExporters();
+        CacheService.setMemoryBudget(0);
+    }
 
     @Override
     public void reload() {}
+
+    @Override
+    public void reload(Set<String> changedKeys) {
+        if (changedKeys.contains("console.colorDepth")) {
+            this.applyColorDepth();
+        }
+
+        if (changedKeys.contains("cache.memoryBudgetMb")) {
+            this.applyCacheBudget();
+        }
+
+        if (changedKeys.stream().anyMatch(key -> key.startsWith("metrics."))) {
+            this.stopExporters();
+            this.startExporters();
+        }
+
+        // Also when the watchdog was off, before the first tick it starts with the new settings anyway
+        if (this.ticking && changedKeys.stream().anyMatch(key -> key.startsWith("watchdog."))) {
+            this.stopWatchdog();
+            this.startWatchdog();
+        }
+
+        super.reload(changedKeys);
+    }
+
+    @Override
+    public void loadConfig() {
+        super.loadConfig();
+
+        this.applyColorDepth();
+    }
+
+    // The console is shared by every plugin, so EnderCore decides how it is colored before the others enable
+    private void applyColorDepth() {
+        String depth = getEnderConfig().getConsoleColorDepth();
+
+        try {
+            AnsiTextFormatter.setColorDepth(ColorDepth.parse(depth));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown console.colorDepth ", depth, ", falling back to AUTO");
+            AnsiTextFormatter.setColorDepth(ColorDepth.detect());
+        }
+    }
+
+    private void applyCacheBudget() {
+        long megabytes = getEnderConfig().getCacheMemoryBudget();
+
+        if (megabytes < 0) {
+            logger.warning("cache.memoryBudgetMb must not be negative, falling back to no limit");
+            megabytes = 0;
+        }
+
+        CacheService.setMemoryBudget(megabytes * 1024 * 1024);
+    }
+
+    private void logStartupReport() {
+        List<StartupReport> reports = StartupReport.getReports();
+        long total = 0;
+
+        for (StartupReport report : reports) {
+            total += report.getTotalNanos();
+        }
+
+        logger.info("Enabled ", String.valueOf(reports.size()), " EnderCore plugins in ", EnderCoreCommand.formatNanos(total));
+
+        for (StartupReport report : reports) {
+            for (String line : formatStartupReport(report)) {
+                logger.info(line);
+            }
+        }
+    }
+
+    static List<String> formatStartupReport(StartupReport report) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder phases = new StringBuilder();
+
+        for (Map.Entry<String, Long> phase : report.getPhases().entrySet()) {
+            if (!phases.isEmpty()) {
+                phases.append(", ");
+            }
+
+            phases.append(phase.getKey()).append(' ').append(EnderCoreCommand.formatNanos(phase.getValue()));
+        }
+
+        lines.add("  " + report.getPlugin() + " " + EnderCoreCommand.formatNanos(report.getTotalNanos()) + " (" + phases + ")");
+
+        if (!report.getTasks().isEmpty()) {
+            lines.add("    " + report.getTasks().size() + " init tasks, " + EnderCoreCommand.formatNanos(report.getTaskNanos()) + " if run one after another");
+        }
+
+        for (InitTaskGraph.Timing task : report.getTasks()) {
+            lines.add(String.format(Locale.ROOT, "    %s %s at +%s on %s (%s)",
+                    task.getName(),
+                    EnderCoreCommand.formatNanos(task.getDurationNanos()),
+                    EnderCoreCommand.formatNanos(task.getStartNanos()),
+                    task.getThread(),
+                    task.getAffinity().name()));
+        }
+
+        return lines;
+    }
+
+    // The registry is shared, so one exporter in EnderCore covers every EnderCore-based plugin
+    private void startExporters() {
+        EnderConfig config = getEnderConfig();
+        MetricRegistry registry = MetricRegistry.global();
+
+        if (config.isMetricsHttp()) {
+            try {
+                this.exporters.add(PrometheusExporter.http(registry, config.getMetricsHttpHost(), config.getMetricsHttpPort()));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warning("Could not start the metrics endpoint on ", config.getMetricsHttpHost(), ":",
+                        String.valueOf(config.getMetricsHttpPort()), ": ", String.valueOf(e.getMessage()));
+            }
+        }
+
+        if (config.isMetricsFile()) {
+            Path file = getDataFolder().toPath().resolve(config.getMetricsFilePath());
+
+            try {
+                this.exporters.add(PrometheusExporter.file(registry, file, config.getMetricsFileInterval()));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid metrics.file settings: ", e.getMessage());
+            }
+        }
+    }
+
+    private void stopExporters() {
+        for (PrometheusExporter exporter : this.exporters) {
+            exporter.close();
+        }
+
+        this.exporters.clear();
+    }
+
+    private void startWatchdog() {
+        EnderConfig config = getEnderConfig();
+
+        if (!config.isWatchdog()) {
+            return;
+        }
+
+        try {
+            this.watchdog = new StallWatchdog(Thread.currentThread(), config.getWatchdogThreshold(),
+                    config.getWatchdogSampleInterval(), WATCHDOG_MAX_SAMPLES, this::reportStall);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid watchdog settings: ", e.getMessage());
+            return;
+        }
+
+        this.heartbeat = Bukkit.getScheduler().runTaskTimer(this, this.watchdog::heartbeat, 1, 1);
+    }
+
+    private void stopWatchdog() {
+        if (this.heartbeat != null) {
+            this.heartbeat.cancel();
+            this.heartbeat = null;
+        }
+
+        if (this.watchdog != null) {
+            this.watchdog.close();
+            this.watchdog = null;
+        }
+    }
+
+    // Runs on the watchdog thread right after the stall
+    private void reportStall(StallWatchdog.Stall stall) {
+        StringBuilder owners = new StringBuilder();
+
+        for (Map.Entry<String, Integer> owner : stall.getOwners().entrySet()) {
+            if (!owners.isEmpty()) {
+                owners.append(", ");
+            }
+
+            owners.append(owner.getKey()).append(' ').append(owner.getValue() * 100 / Math.max(stall.getSamples(), 1)).append('%');
+        }
+
+        String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(stall.getStartMillis()), ZoneId.systemDefault()).format(STALL_FILE_TIME);
+        Path directory = getDataFolder().toPath().resolve("stalls");
+        Path file = directory.resolve("stall-" + time + ".folded");
+
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(file, stall.appendCollapsed(new StringBuilder(stall.getStacks().size() * 512)), StandardCharsets.UTF_8);
+            this.deleteOldStalls(directory);
+        } catch (IOException e) {
+            logger.warning("Could not write ", file.toString(), ": ", String.valueOf(e.getMessage()));
+            file = null;
+        }
+
+        logger.warning("Main thread stalled for ", EnderCoreCommand.formatNanos(stall.getDurationNanos()), ", ",
+                String.valueOf(stall.getSamples()), " samples (", owners.toString(), ")",
+                file != null ? ", stacks in stalls/" + file.getFileName() : "");
+    }
+
+    private void deleteOldStalls(Path directory) throws IOException {
+        int maxFiles = Math.max(getEnderConfig().getWatchdogMaxFiles(), 1);
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.list(directory)) {
+            // The timestamp in the name sorts them from old to new
+            files = stream.filter(path -> path.getFileName().toString().endsWith(".folded")).sorted().toList();
+        }
+
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package net.endkind.enderCore.platform.papermc;
+
+import net.endkind.enderCore.core.CacheService;
+import net.endkind.enderCore.core.EnderCache;
+import net.endkind.enderCore.core.LatencyHistogram;
+import net.endkind.enderCore.platform.papermc.command.ArgumentParsers;
+import net.endkind.enderCore.platform.papermc.command.CommandDispatcher;
+import net.endkind.enderCore.platform.papermc.command.CommandNode;
+import net.endkind.enderCore.platform.papermc.command.EnderCommand;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code /endercore} command tree.
+ */
+final class EnderCoreCommand {
+    private static final TextColor GRAY = TextColor.color(170, 170, 170);
+
+    private final EnderCore plugin;
+
+    private EnderCoreCommand(EnderCore plugin) {
+        this.plugin = plugin;
+    }
+
+    static EnderCommand create(EnderCore plugin) {
+        EnderCoreCommand command = new EnderCoreCommand(plugin);
+
+        return EnderCommand.literal("endercore")
+                .description("EnderCore diagnostics")
+                .permission("endercore.admin")
+                .then(EnderCommand.literal("handlers")
+                        .executes(ctx -> command.handlers(ctx.getSender(), 10))
+                        .then(EnderCommand.literal("reset")
+                                .executes(ctx -> command.resetHandlers(ctx.getSender())))
+                        .then(EnderCommand.argument("count", ArgumentParsers.integer(1, 1000))
+                                .executes(ctx -> command.handlers(ctx.getSender(), ctx.get("count")))))
+                .then(EnderCommand.literal("commands")
+                        .executes(ctx -> command.commands(ctx.getSender())))
+                .then(EnderCommand.literal("startup")
+                        .executes(ctx -> command.startup(ctx.getSender())))
+                .then(EnderCommand.literal("caches")
+                        .executes(ctx -> command.caches(ctx.getSender())));
+    }
+
+    private void handlers(CommandSender sender, int count) {
+        if (ListenerProfiler.isEmpty()) {
+            sender.sendMessage(this.plugin.genMessage(Component.text("No instrumented handlers, enable instrumentation.listeners in the plugin configs")));
+            return;
+        }
+
+        sender.sendMessage(this.plugin.genMessage(Component.text("Top " + count + " handlers by p99 latency")));
+
+        for (ListenerProfiler.HandlerStats stats : ListenerProfiler.getTopHandlers(count)) {
+            long calls = stats.getHistogram().getCount();
+            long allocated = calls == 0 ? 0 : stats.getAllocatedBytes() / calls;
+
+            String line = String.format(Locale.ROOT, "p99 %s, avg %s, %s/tick, %d calls, %d B/call",
+                    formatNanos(stats.getHistogram().getPercentileNanos(99)),
+                    formatNanos(stats.getHistogram().getMeanNanos()),
+                    formatNanos(stats.getNanosPerTick()),
+                    calls,
+                    allocated);
+
+            sender.sendMessage(Component.text(stats.getPlugin() + " " + stats.getName() + " ")
+                    .append(Component.text(line).color(GRAY)));
+        }
+    }
+
+    private void resetHandlers(CommandSender sender) {
+        ListenerProfiler.reset();
+        sender.sendMessage(this.plugin.genMessage(Component.text("Handler statistics reset")));
+    }
+
+    private void commands(CommandSender sender) {
+        List<Map.Entry<String, CommandNode>> executed = new ArrayList<>();
+
+        for (CommandDispatcher dispatcher : CommandDispatcher.getDispatchers()) {
+            collectExecuted(dispatcher.getPlugin().getName(), dispatcher.getRoot(), executed);
+        }
+
+        if (executed.isEmpty()) {
+            sender.sendMessage(this.plugin.genMessage(Component.text("No commands executed yet")));
+            return;
+        }
+
+        executed.sort(Comparator.comparingLong((Map.Entry<String, CommandNode> e) -> e.getValue().getLatency().getPercentileNanos(99)).reversed());
+
+        sender.sendMessage(this.plugin.genMessage(Component.text("Commands by p99 latency")));
+
+        for (Map.Entry<String, CommandNode> entry : executed) {
+            LatencyHistogram latency = entry.getValue().getLatency();
+
+            String line = String.format(Locale.ROOT, "p99 %s, avg %s, max %s, %d calls",
+                    formatNanos(latency.getPercentileNanos(99)),
+                    formatNanos(latency.getMeanNanos()),
+                    formatNanos(latency.getMaxNanos()),
+                    latency.getCount());
+
+            sender.sendMessage(Component.text(entry.getKey() + " /" + entry.getValue().getPath() + " ")
+                    .append(Component.text(line).color(GRAY)));
+        }
+    }
+
+    private void startup(CommandSender sender) {
+        List<StartupReport> reports = StartupReport.getReports();
+
+        sender.sendMessage(this.plugin.genMessage(Component.text("Startup of " + reports.size() + " plugins")));
+
+        for (StartupReport report : reports) {
+            for (String line : EnderCore.formatStartupReport(report)) {
+                sender.sendMessage(Component.text(line.stripLeading()).color(line.startsWith("    ") ? GRAY : null));
+            }
+        }
+    }
+
+    private void caches(CommandSender sender) {
+        Map<String, List<EnderCache<?, ?>>> caches = CacheService.getCaches();
+
+        if (caches.isEmpty()) {
+            sender.sendMessage(this.plugin.genMessage(Component.text("No caches registered")));
+            return;
+        }
+
+        long budget = CacheService.getMemoryBudget();
+
+        sender.sendMessage(this.plugin.genMessage(Component.text("Caches, " + formatBytes(CacheService.getTotalWeight())
+                + " of " + (budget > 0 ? formatBytes(budget) : "unlimited") + " used")));
+
+        for (Map.Entry<String, List<EnderCache<?, ?>>> entry : caches.entrySet()) {
+            for (EnderCache<?, ?> cache : entry.getValue()) {
+                String line = String.format(Locale.ROOT, "%d entries, %s, %.1f%% hits, %d evictions",
+                        cache.size(),
+                        cache.isWeighted() ? formatBytes(cache.getWeight()) + " of " + formatBytes(cache.getMaximum()) : "max " + cache.getMaximum(),
+                        cache.getHitRate() * 100,
+                        cache.getEvictionCount());
+
+                sender.sendMessage(Component.text(entry.getKey() + " " + cache.getName() + " ")
+                        .append(Component.text(line).color(GRAY)));
+            }
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024));
+        }
+
+        return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+    }
+
+    private static void collectExecuted(String plugin, CommandNode node, List<Map.Entry<String, CommandNode>> executed) {
+        if (node.isExecutable() && node.getLatency().getCount() > 0) {
+            executed.add(Map.entry(plugin, node));
+        }
+
+        for (CommandNode child : node.getChildren()) {
+            collectExecuted(plugin, child, executed);
+        }
+    }
+
+    static String formatNanos(double nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000);
+        }
+
+        return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000);
+    }
+}
@@ -1,37 +1,128 @@
 package net.endkind.enderCore.platform.papermc;
 
+import net.endkind.enderCore.api.ICounter;
 import net.endkind.enderCore.api.IEnderPlugin;
+import net.endkind.enderCore.api.LogOverflowPolicy;
+import net.endkind.enderCore.api.TaskAffinity;
+import net.endkind.enderCore.core.CacheService;
+import net.endkind.enderCore.core.EnderCache;
 import net.endkind.enderCore.core.EnderLogger;
+import net.endkind.enderCore.core.EnderStore;
+import net.endkind.enderCore.core.InitTaskGraph;
+import net.endkind.enderCore.core.MetricRegistry;
+import net.endkind.enderCore.core.StallWatchdog;
+import net.endkind.enderCore.platform.papermc.command.CommandDispatcher;
+import net.endkind.enderCore.platform.papermc.command.EnderCommand;
+import net.endkind.enderCore.platform.papermc.message.MessageCatalog;
+import net.endkind.enderCore.platform.papermc.message.MessageTemplate;
+import net.endkind.enderCore.platform.papermc.message.MessageTemplateCache;
 import net.endkind.enderCore.utils.EnderColor;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.format.TextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandMap;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
 public abstract class EnderPlugin extends JavaPlugin implements IEnderPlugin {
-    protected EnderLogger logger = new EnderLogger(getPluginMeta().getName());
+    private static final TextColor WHITE = TextColor.color(255, 255, 255);
+    private static final TextColor ARROW = TextColor.color(119, 119, 119);
+    private static final long STORE_SEGMENT_BYTES = 16 * 1024 * 1024;
+    // Shared by all plugins, they are enabled one after another
+    private static final ForkJoinPool INIT_POOL = initPool();
+
+    // Replaced when the logger settings are reloaded, read by background threads such as the config watcher
+    protected volatile EnderLogger logger = new EnderLogger(getPluginMeta().getName());
     protected FileConfiguration config;
+    private volatile EnderConfig enderConfig;
+    private volatile CompletableFuture<EnderConfig> pendingConfig;
+    private volatile TextComponent messagePrefix;
+    private final MessageTemplateCache templates = new MessageTemplateCache(512);
+    private volatile MessageCatalog messageCatalog;
+    private YamlConfiguration bundledConfig;
+    private ConfigWatcher configWatcher;
+    private EnderScheduler scheduler;
+    private MetricRegistry metrics;
+    private ICounter messageCounter;
+    // Records of the loggers replaced by getEnderLogger, so the exported count never goes backwards
+    private volatile long retiredLogRecords;
+    private final InitTaskGraph initTasks = new InitTaskGraph();
+    private final Map<String, EnderStore> stores = new HashMap<>();
+    private final List<Command> mappedCommands = new ArrayList<>();
+
+    @Override
+    public void onLoad() {
+        // Read (and if needed write) config.yml while the server is still loading the other plugins
+        this.pendingConfig = CompletableFuture.supplyAsync(this::readConfig);
+    }
 
     @Override
     public void onEnable() {
+        StartupReport report = new StartupReport(getPluginMeta().getName());
+        long start = System.nanoTime();
+
         this.onCoreEnable();
+        report.phase("core", System.nanoTime() - start);
+
+        if (!this.initTasks.isEmpty()) {
+            start = System.nanoTime();
+            report.setTasks(this.initTasks.run(INIT_POOL));
+            report.phase("tasks", System.nanoTime() - start);
+        }
+
+        start = System.nanoTime();
         this.onPluginEnable();
+        report.phase("plugin", System.nanoTime() - start);
+
+        report.publish();
     }
 
     @Override
     public void onDisable() {
         this.onCoreDisable();
-        this.onPluginDisable();
+
+        try {
+            this.onPluginDisable();
+        } finally {
+            // Stopped last, onPluginDisable is where plugins usually save their data, often through the I/O executor
+            if (this.scheduler != null) {
+                this.scheduler.shutdown();
+                this.scheduler = null;
+            }
+
+            this.closeStores();
+        }
     }
 
     @Override
@@ -39,76 +130,517 @@ public abstract class EnderPlugin extends JavaPlugin implements IEnderPlugin {
         this.loadConfig();
         this.logger = this.getEnderLogger();
         logger.info("Enabling ", getPluginMeta().getName(), " (", getPluginMeta().getVersion(), ")");
+        this.updateConfigWatcher();
+
+        this.scheduler = new EnderScheduler(this, this.getTickBudget(this.enderConfig), this.enderConfig.getSchedulerIoThreads());
+        this.scheduler.start();
+
+        this.registerMetrics();
+
+        if (this instanceof EnderCore) {
+            // Base classes and helpers of the library run on behalf of the other plugins
+            StallWatchdog.registerLibrary("net.endkind.enderCore", getPluginMeta().getName());
+        } else {
+            StallWatchdog.registerOwner(getClass().getPackageName(), getPluginMeta().getName());
+        }
     }
 
     @Override
     public void onCoreDisable() {
         logger.info("Disabling ", getPluginMeta().getName(), " (", getPluginMeta().getVersion(), ")");
+
+        if (this.configWatcher != null) {
+            this.configWatcher.close();
+            this.configWatcher = null;
+        }
+
+        ListenerProfiler.unregister(this);
+        CommandDispatcher.unregister(this);
+        this.unregisterMappedCommands();
+        StartupReport.unregister(this);
+        Broadcast.unregister(this);
+        StallWatchdog.unregisterOwner(getPluginMeta().getName());
+        CacheService.unregister(getPluginMeta().getName());
+        logger.disableRateLimit();
+        logger.disableAsync();
+        logger.disableFileSink();
+
+        MetricRegistry.global().unregister("plugin", getPluginMeta().getName());
+        this.messageCounter = null;
+    }
+
+    /**
+     * Adds a task to run while the plugin is enabled, after {@link #onCoreEnable()} and before
+     * {@link #onPluginEnable()}. Tasks start as soon as the tasks named in {@code dependsOn} are done,
+     * {@link TaskAffinity#ASYNC} ones in parallel on a shared fork/join pool. Register them from the
+     * constructor or {@code onLoad}, they run again if the plugin is re-enabled.
+     *
+     * @throws IllegalArgumentException if a task with the same name is already registered
+     * @throws IllegalStateException if the plugin is already enabled
+     */
+    @Override
+    public void registerInitTask(String name, TaskAffinity affinity, Runnable task, String... dependsOn) {
+        if (isEnabled()) {
+            throw new IllegalStateException("Init tasks must be registered before the plugin is enabled");
+        }
+
+        this.initTasks.add(name, affinity, task, dependsOn);
+    }
+
+    /**
+     * Builds a cache owned by this plugin. Its statistics are exported through {@link #getMetrics()},
+     * a weighted cache counts towards the memory budget shared by all plugins, and the cache is
+     * emptied when the plugin is disabled.
+     *
+     * @throws IllegalArgumentException if the builder has no bound or the name is already used by this plugin
+     */
+    @Override
+    public <K, V> EnderCache<K, V> registerCache(String name, EnderCache.Builder<K, V> builder) {
+        EnderCache<K, V> cache = builder.build(name);
+
+        CacheService.register(getPluginMeta().getName(), cache);
+
+        MetricRegistry metrics = this.getMetrics();
+
+        metrics.counter("endercore_cache_hits_total", "Cache lookups that found a value", cache::getHitCount, "cache", name);
+        metrics.counter("endercore_cache_misses_total", "Cache lookups that found no value", cache::getMissCount, "cache", name);
+        metrics.counter("endercore_cache_evictions_total", "Entries evicted to keep a cache within its bounds", cache::getEvictionCount, "cache", name);
+        metrics.counter("endercore_cache_load_failures_total", "Cache loads that threw", cache::getLoadFailureCount, "cache", name);
+        metrics.gauge("endercore_cache_size", "Entries in a cache", cache::size, "cache", name);
+        metrics.gauge("endercore_cache_weight", "Summed weight of a cache, estimated bytes for weighted caches", cache::getWeight, "cache", name);
+
+        return cache;
+    }
+
+    /**
+     * Opens the key-value store {@code name} in {@code stores/<name>} of the data folder, or returns it
+     * if it is already open. Writes are persisted by a background thread, so they are safe to call from
+     * the main thread. The store is flushed and closed when the plugin is disabled.
+     *
+     * @throws IOException if the store cannot be read
+     * @throws IllegalArgumentException if {@code name} is not a plain directory name
+     */
+    @Override
+    public synchronized EnderStore openStore(String name) throws IOException {
+        if (name == null || !name.matches("[a-zA-Z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid store name " + name);
+        }
+
+        EnderStore store = this.stores.get(name);
+
+        // A store whose writer failed rejects writes, reopening recovers what reached the disk
+        if (store != null && store.isClosed()) {
+            logger.warning("Reopening store ", name, " after its writer stopped");
+            store = null;
+        }
+
+        if (store == null) {
+            store = new EnderStore(getDataFolder().toPath().resolve("stores").resolve(name), STORE_SEGMENT_BYTES);
+            this.stores.put(name, store);
+        }
+
+        return store;
+    }
+
+    private synchronized void closeStores() {
+        for (EnderStore store : this.stores.values()) {
+            store.close();
+        }
+
+        this.stores.clear();
+    }
+
+    private static ForkJoinPool initPool() {
+        return new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors(), 2), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("EnderCore-Init-" + thread.getPoolIndex());
+
+            return thread;
+        }, null, false);
+    }
+
+    private void registerMetrics() {
+        MetricRegistry metrics = this.getMetrics();
+
+        this.messageCounter = metrics.counter("endercore_messages_total", "Messages built through genMessage");
+        metrics.counter("endercore_log_records_total", "Records written by the plugin's EnderLogger",
+                () -> this.retiredLogRecords + this.logger.getRecordCount());
     }
 
     public Component getPrefix(String prefix, String hex, boolean useArrow) {
-        int[] rgb = EnderColor.hexToRgb(hex);
+        return this.buildPrefix(prefix, hex, useArrow);
+    }
 
-        Component msg = Component.text("").color(TextColor.color(255, 255, 255))
-                .append(Component.text(prefix).color(TextColor.color(rgb[0], rgb[1], rgb[2])));
+    private TextComponent buildPrefix(String prefix, String hex, boolean useArrow) {
+        TextComponent.Builder builder = Component.text().color(WHITE)
+                .append(Component.text(prefix).color(TextColor.color(EnderColor.of(hex).rgb())));
 
         if (useArrow) {
-            msg = msg.append(Component.text(" »").color(TextColor.color(119, 119, 119)));
+            builder.append(Component.text(" »").color(ARROW));
         }
 
-        return msg.append(Component.text(" ").color(TextColor.color(255, 255, 255)));
+        return builder.append(Component.text(" ").color(WHITE)).build();
+    }
+
+    private TextComponent getMessagePrefix() {
+        TextComponent prefix = this.messagePrefix;
+
+        if (prefix == null) {
+            EnderConfig snapshot = this.enderConfig;
+
+            prefix = this.buildPrefix(this.getPrefixName(snapshot), snapshot.getPrefixColor(), snapshot.isPrefixUseArrow());
+
+            this.messagePrefix = prefix;
+        }
+
+        return prefix;
+    }
+
+    private String getPrefixName(EnderConfig snapshot) {
+        String name = snapshot.getPrefixName();
+
+        return name != null ? name : getPluginMeta().getName();
     }
 
     @Override
     public void loadConfig() {
+        CompletableFuture<EnderConfig> pending = this.pendingConfig;
+        EnderConfig snapshot = null;
+
+        this.pendingConfig = null;
+
+        if (pending != null) {
+            try {
+                snapshot = pending.join();
+            } catch (CompletionException e) {
+                logger.error("Could not load config.yml in the background: ", String.valueOf(e.getCause()));
+            }
+        }
+
+        if (snapshot == null) {
+            snapshot = this.readConfig();
+        }
+
+        this.config = getConfig();
+        this.enderConfig = snapshot;
+        this.messagePrefix = null;
+        this.templates.clear();
+        this.reloadMessageCatalog();
+
+        if (this.getRequiredConfigVersion() != snapshot.getVersion()) {
+            logger.error("Config version musst be " + this.getRequiredConfigVersion());
+        }
+    }
+
+    /**
+     * @return the configuration last loaded by {@link #loadConfig()}, {@link #reloadConfig()} or a hot reload
+     */
+    @Override
+    public FileConfiguration getConfig() {
+        FileConfiguration config = this.config;
+
+        return config != null ? config : super.getConfig();
+    }
+
+    @Override
+    public void reloadConfig() {
+        super.reloadConfig();
+
+        this.config = super.getConfig();
+    }
+
+    private EnderConfig readConfig() {
         File configFile = new File(getDataFolder(), "config.yml");
 
         if (!configFile.exists()) {
             saveResource("config.yml", false);
         }
 
-        this.config = getConfig();
+        reloadConfig();
 
-        this.config.options().copyDefaults(true);
-        saveConfig();
+        FileConfiguration config = getConfig();
+        config.options().copyDefaults(true);
 
-        if (this.getRequiredConfigVersion() != this.config.getInt("version")) {
-            logger.error("Config version musst be " + this.getRequiredConfigVersion());
+        this.saveConfigIfChanged(config, configFile.toPath());
+
+        return EnderConfig.of(config);
+    }
+
+    private void saveConfigIfChanged(FileConfiguration config, Path path) {
+        String content = config.saveToString();
+
+        try {
+            if (Files.exists(path) && content.equals(Files.readString(path, StandardCharsets.UTF_8))) {
+                return;
+            }
+        } catch (IOException ignored) {
+            // Unreadable content is simply replaced
+        }
+
+        try {
+            Path temp = Files.createTempFile(path.getParent(), "config", ".yml.tmp");
+
+            try {
+                Files.writeString(temp, content, StandardCharsets.UTF_8);
+
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.error("Could not save config.yml: ", e.getMessage());
+        }
+    }
+
+    private synchronized YamlConfiguration getBundledConfig() {
+        if (this.bundledConfig == null) {
+            InputStream configStream = getResource("config.yml");
+
+            this.bundledConfig = configStream == null
+                    ? new YamlConfiguration()
+                    : YamlConfiguration.loadConfiguration(new InputStreamReader(configStream, StandardCharsets.UTF_8));
+        }
+
+        return this.bundledConfig;
+    }
+
+    @Override
+    public EnderConfig getEnderConfig() {
+        return this.enderConfig;
+    }
+
+    // #region hot reload
+    private void updateConfigWatcher() {
+        boolean watch = this.enderConfig.isWatch();
+
+        if (watch && this.configWatcher == null) {
+            try {
+                this.configWatcher = new ConfigWatcher(new File(getDataFolder(), "config.yml").toPath(), getPluginMeta().getName(), this::onConfigFileChanged, () -> this.logger);
+            } catch (IOException e) {
+                logger.error("Could not watch config.yml: ", e.getMessage());
+            }
+        } else if (!watch && this.configWatcher != null) {
+            this.configWatcher.close();
+            this.configWatcher = null;
+        }
+    }
+
+    private void onConfigFileChanged() {
+        YamlConfiguration yaml = new YamlConfiguration();
+
+        try {
+            yaml.load(new File(getDataFolder(), "config.yml"));
+        } catch (IOException | InvalidConfigurationException e) {
+            // Usually a half-written file, the next save triggers another attempt
+            logger.warning("Ignoring change to config.yml: ", e.getMessage());
+            return;
+        }
+
+        yaml.setDefaults(this.getBundledConfig());
+        yaml.options().copyDefaults(true);
+
+        EnderConfig next = EnderConfig.of(yaml);
+        Set<String> changed = this.enderConfig.diff(next);
+
+        if (changed.isEmpty() || !isEnabled()) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(this, () -> this.applyConfig(yaml, next, changed));
+    }
+
+    // Takes the file the watcher has already parsed instead of reading it again on the main thread
+    private void applyConfig(YamlConfiguration yaml, EnderConfig next, Set<String> changed) {
+        this.config = yaml;
+        this.enderConfig = next;
+        this.messagePrefix = null;
+        // Templates usually come from the config, drop them before the plugin re-reads its messages
+        this.templates.clear();
+        this.reloadMessageCatalog();
+
+        for (String key : changed) {
+            if (key.startsWith("prefix.") || key.startsWith("logger.")) {
+                this.logger = this.getEnderLogger();
+                break;
+            }
+        }
+
+        if (this.scheduler != null) {
+            this.scheduler.setTickBudgetMillis(this.getTickBudget(next));
+        }
+
+        logger.info("Reloaded config.yml, changed: ", String.join(", ", changed));
+
+        this.reload(changed);
+        this.updateConfigWatcher();
+    }
+
+    @Override
+    public void reload(Set<String> changedKeys) {
+        this.reload();
+    }
+    // #endregion
+
+    private double getTickBudget(EnderConfig snapshot) {
+        double budget = snapshot.getSchedulerTickBudget();
+
+        if (!(budget > 0)) {
+            logger.warning("scheduler.tickBudget must be positive, falling back to 5");
+            return 5;
         }
+
+        return budget;
+    }
+
+    @Override
+    public EnderScheduler getEnderScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Returns this plugin's view of the {@linkplain MetricRegistry#global() shared registry}. Every metric
+     * registered through it is labeled with the plugin name and removed when the plugin is disabled.
+     */
+    @Override
+    public MetricRegistry getMetrics() {
+        if (this.metrics == null) {
+            this.metrics = MetricRegistry.global().withLabels("plugin", getPluginMeta().getName());
+        }
+
+        return this.metrics;
     }
 
     @Override
     public EnderLogger getEnderLogger() {
-        String prefix = config.getString("prefix.name");
-        String color = config.getString("prefix.color");
-        boolean useArrow = config.getBoolean("prefix.useArrow");
+        EnderConfig snapshot = this.enderConfig;
+
+        if (this.logger != null) {
+            this.logger.disableRateLimit();
+            this.logger.disableAsync();
+            this.logger.disableFileSink();
+            this.retiredLogRecords += this.logger.getRecordCount();
+        }
+
+        this.logger = new EnderLogger(this.getPrefixName(snapshot), snapshot.getPrefixColor(), snapshot.isPrefixUseArrow());
+        this.logger.setLevel(this.getLogLevel(snapshot.getLoggerLevel()));
+
+        if (snapshot.isLoggerAsync()) {
+            this.logger.enableAsync(snapshot.getLoggerBufferSize(), this.getLogOverflowPolicy(snapshot.getLoggerOverflowPolicy()));
+        }
+
+        if (snapshot.isLoggerFile()) {
+            try {
+                this.logger.enableFileSink(getDataFolder().toPath().resolve("logs"),
+                        snapshot.getLoggerFileMaxSize() * 1024 * 1024,
+                        Duration.ofMinutes((long) (snapshot.getLoggerFileRotateHours() * 60)),
+                        snapshot.getLoggerFileMaxArchives());
+            } catch (IOException | IllegalArgumentException e) {
+                this.logger.warning("Could not open the log file: ", String.valueOf(e.getMessage()));
+            }
+        }
+
+        if (snapshot.isLoggerRateLimit()) {
+            try {
+                this.logger.enableRateLimit(snapshot.getLoggerRateLimitPerSecond(), snapshot.getLoggerRateLimitBurst());
+            } catch (IllegalArgumentException e) {
+                this.logger.warning("Invalid logger.rateLimit settings: ", e.getMessage());
+            }
+        }
 
-        this.logger = new EnderLogger(prefix, color, useArrow);
         return this.logger;
     }
 
+    private Level getLogLevel(String level) {
+        if (level.trim().equalsIgnoreCase("DEBUG")) {
+            return EnderLogger.DEBUG;
+        }
+
+        try {
+            return Level.parse(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown logger.level ", level, ", falling back to INFO");
+            return Level.INFO;
+        }
+    }
+
+    private LogOverflowPolicy getLogOverflowPolicy(String policy) {
+        try {
+            return LogOverflowPolicy.valueOf(policy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown logger.overflowPolicy ", policy, ", falling back to BLOCK");
+            return LogOverflowPolicy.BLOCK;
+        }
+    }
+
     @Override
     public int getRequiredConfigVersion() {
-        InputStream configStream = getResource("config.yml");
+        return this.getBundledConfig().getInt("version");
+    }
 
-        FileConfiguration config = YamlConfiguration.loadConfiguration(new InputStreamReader(configStream, StandardCharsets.UTF_8));
+    @Override
+    public Component genMessage(Component... msg) {
+        ICounter counter = this.messageCounter;
+
+        if (counter != null) {
+            counter.increment();
+        }
 
-        return config.getInt("version");
+        TextComponent prefix = this.getMessagePrefix();
+
+        if (msg.length == 0) {
+            return prefix;
+        }
+
+        // One builder pass instead of an append (and a copy of the children) per message part
+        return prefix.toBuilder().append(msg).build();
     }
 
     @Override
-    public Component genMessage(Component... msg) {
-        String prefix = config.getString("prefix.name");
-        String color = config.getString("prefix.color");
-        boolean useArrow = config.getBoolean("prefix.useArrow");
+    public Component genMessage(String template, Object... values) {
+        return this.genMessage(this.getMessageTemplate(template).render(values));
+    }
+
+    @Override
+    public MessageTemplate getMessageTemplate(String source) {
+        return this.templates.get(source);
+    }
+
+    @Override
+    public MessageCatalog getMessageCatalog() {
+        MessageCatalog catalog = this.messageCatalog;
 
-        Component message = getPrefix(prefix, color, useArrow);
+        if (catalog == null) {
+            synchronized (this) {
+                catalog = this.messageCatalog;
 
-        for (Component c : msg) {
-            message = message.append(c);
+                if (catalog == null) {
+                    catalog = new MessageCatalog(getDataFolder().toPath().resolve("lang"), this::getResource,
+                            this.getEnderConfig().getMessagesDefaultLocale(), message -> this.genMessage(message),
+                            warning -> this.logger.warning(warning));
+                    this.messageCatalog = catalog;
+                }
+            }
         }
 
-        return message;
+        return catalog;
+    }
+
+    private void reloadMessageCatalog() {
+        MessageCatalog catalog = this.messageCatalog;
+
+        // Ids handed out before stay valid, only the loaded locales are dropped
+        if (catalog != null) {
+            catalog.reload(this.getEnderConfig().getMessagesDefaultLocale());
+        }
+    }
+
+    @Override
+    public Broadcast broadcast(Component message) {
+        return new Broadcast(this, message);
     }
 
     @Override
@@ -123,8 +655,77 @@ public abstract class EnderPlugin extends JavaPlugin implements IEnderPlugin {
         cmd.setExecutor(cmdExecutor);
     }
 
+    @Override
+    public void registerBukkitCommand(EnderCommand command) {
+        CommandDispatcher dispatcher = new CommandDispatcher(this, command);
+        PluginCommand cmd = getCommand(command.getName());
+
+        if (cmd != null) {
+            cmd.setExecutor(dispatcher);
+            cmd.setTabCompleter(dispatcher);
+            return;
+        }
+
+        // Paper plugins have no commands section, register straight in the command map
+        Command bukkitCommand = dispatcher.asBukkitCommand();
+
+        getServer().getCommandMap().register(getName().toLowerCase(Locale.ROOT), bukkitCommand);
+        this.mappedCommands.add(bukkitCommand);
+    }
+
+    private void unregisterMappedCommands() {
+        if (this.mappedCommands.isEmpty()) {
+            return;
+        }
+
+        CommandMap commandMap = getServer().getCommandMap();
+        Map<String, Command> knownCommands = commandMap.getKnownCommands();
+
+        for (Command command : this.mappedCommands) {
+            command.unregister(commandMap);
+            // The map keeps the plain and prefixed label and every alias, another plugin's command of the same name stays
+            knownCommands.values().removeIf(known -> known == command);
+        }
+
+        this.mappedCommands.clear();
+    }
+
     @Override
     public void registerListener(Listener listener) {
+        EnderConfig snapshot = this.enderConfig;
+
+        if (snapshot != null && snapshot.isInstrumentListeners()) {
+            ListenerProfiler.register(this, listener, snapshot.isInstrumentAllocations());
+            return;
+        }
+
         Bukkit.getPluginManager().registerEvents(listener, this);
     }
+
+    /**
+     * Registers every {@link org.bukkit.event.EventHandler} method of {@code listener}, calling it only for
+     * events that pass {@code filter}. Each handler keeps its own filter state.
+     *
+     * @throws IllegalArgumentException if the filter does not fit the event of a handler
+     */
+    @Override
+    public void registerListener(Listener listener, EventFilter filter) {
+        EnderConfig snapshot = this.enderConfig;
+        boolean instrument = snapshot != null && snapshot.isInstrumentListeners();
+
+        ListenerProfiler.register(this, listener, filter, instrument, instrument && snapshot.isInstrumentAllocations());
+    }
+
+    /**
+     * Collects the events of {@code eventClass} that pass {@code filter} (may be {@code null}) and calls
+     * {@code handler} once at the end of every tick with the latest event of each player or entity.
+     * The handler runs after the events were fired, so cancelled events are left out and it cannot
+     * cancel or change them anymore.
+     *
+     * @throws IllegalArgumentException if the event has no player or entity, or the filter does not fit it
+     */
+    @Override
+    public <E extends Event> void registerCoalescing(Class<E> eventClass, EventFilter filter, Consumer<List<E>> handler) {
+        EventCoalescer.register(this, eventClass, filter, handler);
+    }
 }
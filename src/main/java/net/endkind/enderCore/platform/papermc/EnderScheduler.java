@@ -0,0 +1,268 @@
+package net.endkind.enderCore.platform.papermc;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Execution model shared by all EnderCore-based plugins.
+ * <p>
+ * Blocking work goes to an I/O executor backed by virtual threads when the server runs on Java 21 or newer,
+ * and by a bounded thread pool otherwise. Work that has to happen on the main thread is queued and drained
+ * every tick, but only until the configured tick budget is used up; the rest waits for the next tick.
+ * </p>
+ * <p>
+ * Once the plugin is disabled, new work is rejected with a {@link RejectedExecutionException}, or a future
+ * completed with one where the method returns a future.
+ * </p>
+ */
+public final class EnderScheduler {
+    private final EnderPlugin plugin;
+    private final ExecutorService ioExecutor;
+    private final Executor mainExecutor = this::runOnMain;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    private volatile long tickBudgetNanos;
+    private volatile boolean shutdown;
+    private long deadline;
+    private BukkitTask drainTask;
+
+    EnderScheduler(EnderPlugin plugin, double tickBudgetMillis, int ioThreads) {
+        this.plugin = plugin;
+        this.ioExecutor = createIoExecutor(plugin.getPluginMeta().getName(), ioThreads);
+        this.setTickBudgetMillis(tickBudgetMillis);
+    }
+
+    private static ExecutorService createIoExecutor(String name, int threads) {
+        // Resolved reflectively so the jar keeps targeting Java 17
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ignored) {}
+
+        AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(threads, 1);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    void start() {
+        this.drainTask = Bukkit.getScheduler().runTaskTimer(this.plugin, this::drain, 1, 1);
+    }
+
+    void shutdown() {
+        if (this.drainTask != null) {
+            this.drainTask.cancel();
+            this.drainTask = null;
+        }
+
+        // I/O tasks finish first, so the continuations they queue for the main thread are drained below
+        this.ioExecutor.shutdown();
+
+        try {
+            if (!this.ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.plugin.logger.warning("I/O tasks of ", this.plugin.getPluginMeta().getName(), " did not finish within 5 seconds");
+                this.ioExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Continuations still waiting for the main thread run now, long iterations are abandoned
+        this.deadline = Long.MAX_VALUE;
+        this.drainRemaining();
+
+        // Tasks queued by other threads while shutdown is set are either rejected or still drained here
+        this.shutdown = true;
+        this.drainRemaining();
+    }
+
+    private void drainRemaining() {
+        Runnable task;
+
+        while ((task = this.queue.poll()) != null) {
+            if (task instanceof SplitTask<?> split) {
+                split.future.completeExceptionally(new CancellationException("Plugin disabled"));
+                continue;
+            }
+
+            this.runSafely(task);
+        }
+    }
+
+    // #region budget
+    public double getTickBudgetMillis() {
+        return this.tickBudgetNanos / 1_000_000.0;
+    }
+
+    /**
+     * Sets how long the main-thread queue may run per tick. At least one queued task runs every tick regardless.
+     *
+     * @throws IllegalArgumentException if {@code millis} is not positive
+     */
+    public void setTickBudgetMillis(double millis) {
+        if (!(millis > 0)) {
+            throw new IllegalArgumentException("Tick budget must be positive");
+        }
+
+        this.tickBudgetNanos = (long) (millis * 1_000_000);
+    }
+    // #endregion
+
+    // #region executors
+    /**
+     * @return the executor for blocking work such as file, database or web access
+     */
+    public ExecutorService getIoExecutor() {
+        return this.ioExecutor;
+    }
+
+    /**
+     * @return an executor that runs tasks through the budgeted main-thread queue, rejecting them once the plugin is disabled
+     */
+    public Executor getMainExecutor() {
+        return this.mainExecutor;
+    }
+
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, this.ioExecutor);
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, this.ioExecutor);
+    }
+
+    /**
+     * Returns a future that completes on the main thread with the result of {@code future}, so
+     * callbacks chained on it may use the Bukkit API.
+     */
+    public <T> CompletableFuture<T> onMain(CompletableFuture<T> future) {
+        if (this.shutdown) {
+            return CompletableFuture.failedFuture(this.rejected());
+        }
+
+        // A task rejected later completes the returned future exceptionally
+        return future.thenApplyAsync(Function.identity(), this.mainExecutor);
+    }
+
+    /**
+     * Queues {@code task} to run on the main thread within the tick budget.
+     *
+     * @throws RejectedExecutionException if the plugin is disabled
+     */
+    public void runOnMain(Runnable task) {
+        if (this.shutdown) {
+            throw this.rejected();
+        }
+
+        this.queue.add(task);
+
+        if (this.shutdown && this.queue.remove(task)) {
+            throw this.rejected();
+        }
+    }
+
+    private RejectedExecutionException rejected() {
+        return new RejectedExecutionException("Scheduler of " + this.plugin.getPluginMeta().getName() + " is shut down");
+    }
+    // #endregion
+
+    /**
+     * Calls {@code consumer} for every element of {@code items} on the main thread, spread over as many
+     * ticks as needed to stay within the tick budget. The elements are copied up front, so later changes
+     * to {@code items} are not seen.
+     *
+     * @return a future that completes on the main thread once every element has been consumed, or exceptionally
+     *         if the plugin is disabled first
+     */
+    public <T> CompletableFuture<Void> splitAcrossTicks(Collection<? extends T> items, Consumer<? super T> consumer) {
+        SplitTask<T> task = new SplitTask<>(new ArrayList<T>(items).iterator(), consumer);
+
+        try {
+            this.runOnMain(task);
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+        }
+
+        return task.future;
+    }
+
+    private void drain() {
+        this.deadline = System.nanoTime() + this.tickBudgetNanos;
+        Runnable task;
+
+        while ((task = this.queue.poll()) != null) {
+            this.runSafely(task);
+
+            if (System.nanoTime() >= this.deadline) {
+                break;
+            }
+        }
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            this.plugin.logger.log(Level.SEVERE, "Queued task of " + this.plugin.getPluginMeta().getName() + " failed", t);
+        }
+    }
+
+    private final class SplitTask<T> implements Runnable {
+        private final Iterator<T> iterator;
+        private final Consumer<? super T> consumer;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private SplitTask(Iterator<T> iterator, Consumer<? super T> consumer) {
+            this.iterator = iterator;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (this.iterator.hasNext()) {
+                    this.consumer.accept(this.iterator.next());
+
+                    if (System.nanoTime() >= deadline && this.iterator.hasNext()) {
+                        // Back to the end of the queue, so other queued work gets its share next tick
+                        runOnMain(this);
+                        return;
+                    }
+                }
+            } catch (Throwable t) {
+                this.future.completeExceptionally(t);
+                return;
+            }
+
+            this.future.complete(null);
+        }
+    }
+}
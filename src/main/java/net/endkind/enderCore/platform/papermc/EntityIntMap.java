@@ -0,0 +1,136 @@
+package net.endkind.enderCore.platform.papermc;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Open addressing map from entity id to an int, without boxing. Not thread-safe.
+ */
+final class EntityIntMap {
+    static final int MISSING = Integer.MIN_VALUE;
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 64;
+
+    private int[] ids;
+    private int[] values;
+    private int size;
+
+    EntityIntMap() {
+        this.allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return whether the next new id makes the table grow
+     */
+    boolean isFull() {
+        return (this.size + 1) * 2 > this.ids.length;
+    }
+
+    /**
+     * @return the value of {@code id}, or {@link #MISSING}
+     */
+    int get(int id) {
+        int mask = this.ids.length - 1;
+
+        for (int i = mix(id) & mask; this.ids[i] != FREE; i = (i + 1) & mask) {
+            if (this.ids[i] == id) {
+                return this.values[i];
+            }
+        }
+
+        return MISSING;
+    }
+
+    void put(int id, int value) {
+        int mask = this.ids.length - 1;
+        int i = mix(id) & mask;
+
+        while (this.ids[i] != FREE) {
+            if (this.ids[i] == id) {
+                this.values[i] = value;
+                return;
+            }
+
+            i = (i + 1) & mask;
+        }
+
+        if (this.isFull()) {
+            this.rebuild(this.ids.length * 2, v -> true);
+            this.put(id, value);
+            return;
+        }
+
+        this.ids[i] = id;
+        this.values[i] = value;
+        this.size++;
+    }
+
+    /**
+     * Removes every entry whose value does not match {@code filter}, shrinking the table if it got sparse.
+     */
+    void retain(IntPredicate filter) {
+        int live = 0;
+
+        for (int i = 0; i < this.ids.length; i++) {
+            if (this.ids[i] != FREE && filter.test(this.values[i])) {
+                live++;
+            }
+        }
+
+        int capacity = MIN_CAPACITY;
+
+        while ((live + 1) * 4 > capacity) {
+            capacity *= 2;
+        }
+
+        this.rebuild(capacity, filter);
+    }
+
+    void clear() {
+        if (this.size > 0) {
+            Arrays.fill(this.ids, FREE);
+            this.size = 0;
+        }
+    }
+
+    private void rebuild(int capacity, IntPredicate filter) {
+        int[] oldIds = this.ids;
+        int[] oldValues = this.values;
+
+        this.allocate(capacity);
+
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] == FREE || !filter.test(oldValues[i])) {
+                continue;
+            }
+
+            int j = mix(oldIds[i]) & mask;
+
+            while (this.ids[j] != FREE) {
+                j = (j + 1) & mask;
+            }
+
+            this.ids[j] = oldIds[i];
+            this.values[j] = oldValues[i];
+            this.size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.ids = new int[capacity];
+        this.values = new int[capacity];
+        this.size = 0;
+        Arrays.fill(this.ids, FREE);
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,90 @@
+package net.endkind.enderCore.platform.papermc;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Collects the events of one type during a tick, keeps only the latest one per player or entity and hands
+ * them to the handler in one batch at the end of the tick.
+ */
+final class EventCoalescer<E extends Event> implements Listener {
+    private final EnderPlugin plugin;
+    private final Class<E> eventClass;
+    private final EventFilter.Gate gate;
+    private final Consumer<List<E>> handler;
+    // Main thread only: index of the latest event of every entity in the batch
+    private final EntityIntMap positions = new EntityIntMap();
+    private List<E> batch = new ArrayList<>();
+
+    private EventCoalescer(EnderPlugin plugin, Class<E> eventClass, EventFilter.Gate gate, Consumer<List<E>> handler) {
+        this.plugin = plugin;
+        this.eventClass = eventClass;
+        this.gate = gate;
+        this.handler = handler;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code eventClass} has no player or entity, or the filter does not fit it
+     */
+    static <E extends Event> void register(EnderPlugin plugin, Class<E> eventClass, EventFilter filter, Consumer<List<E>> handler) {
+        if (!EventFilter.hasEntity(eventClass)) {
+            throw new IllegalArgumentException("Only player and entity events can be coalesced, not " + eventClass.getSimpleName());
+        }
+
+        EventFilter.Gate gate = filter != null ? filter.gate(eventClass) : null;
+        EventCoalescer<E> coalescer = new EventCoalescer<>(plugin, eventClass, gate, handler);
+
+        // The batch is handed out after it cannot change anymore, so cancelled events are left out
+        Bukkit.getPluginManager().registerEvent(eventClass, coalescer, EventPriority.MONITOR,
+                (listener, event) -> coalescer.collect(event), plugin, true);
+        Bukkit.getPluginManager().registerEvent(ServerTickEndEvent.class, coalescer, EventPriority.MONITOR,
+                (listener, event) -> coalescer.flush(), plugin, false);
+    }
+
+    private void collect(Event event) {
+        // Bukkit also hands subclasses of unrelated events to an executor registered for a parent class
+        if (!this.eventClass.isInstance(event) || event.isAsynchronous()) {
+            return;
+        }
+
+        if (this.gate != null && !this.gate.test(event)) {
+            return;
+        }
+
+        E typed = this.eventClass.cast(event);
+        int id = EventFilter.entityId(event);
+        int position = this.positions.get(id);
+
+        if (position == EntityIntMap.MISSING) {
+            this.positions.put(id, this.batch.size());
+            this.batch.add(typed);
+        } else {
+            this.batch.set(position, typed);
+        }
+    }
+
+    private void flush() {
+        if (this.batch.isEmpty()) {
+            return;
+        }
+
+        List<E> events = this.batch;
+
+        this.batch = new ArrayList<>(events.size());
+        this.positions.clear();
+
+        try {
+            this.handler.accept(events);
+        } catch (RuntimeException e) {
+            this.plugin.logger.log(Level.SEVERE, "Coalesced " + this.eventClass.getSimpleName() + " handler failed", e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package net.endkind.enderCore.platform.papermc;
+
+import io.papermc.paper.event.entity.EntityMoveEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.Event;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+/**
+ * Declarative conditions an event has to meet before a handler registered with
+ * {@link EnderPlugin#registerListener(org.bukkit.event.Listener, EventFilter)} or
+ * {@link EnderPlugin#registerCoalescing} is called. They are checked with a few primitive comparisons
+ * in the event executor, so a handler for high-frequency events like {@link PlayerMoveEvent} is not
+ * even invoked for the calls it would return from right away.
+ * <pre>{@code
+ * plugin.registerListener(new RegionListener(), EventFilter.builder()
+ *         .blockChanged()
+ *         .world("world")
+ *         .minIntervalTicks(5)
+ *         .build());
+ * }</pre>
+ * The per-entity interval is tracked for events fired on the main thread, asynchronous events pass it.
+ */
+public final class EventFilter {
+    private final boolean blockChanged;
+    private final String world;
+    private final int minIntervalTicks;
+
+    private EventFilter(Builder builder) {
+        this.blockChanged = builder.blockChanged;
+        this.world = builder.world;
+        this.minIntervalTicks = builder.minIntervalTicks;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isBlockChanged() {
+        return this.blockChanged;
+    }
+
+    /**
+     * @return the name of the only world events are accepted from, or {@code null} for every world
+     */
+    public String getWorld() {
+        return this.world;
+    }
+
+    public int getMinIntervalTicks() {
+        return this.minIntervalTicks;
+    }
+
+    /**
+     * Creates the checks of this filter for one handler of {@code eventClass}.
+     *
+     * @throws IllegalArgumentException if a condition cannot be checked for {@code eventClass}
+     */
+    Gate gate(Class<? extends Event> eventClass) {
+        return new Gate(this, eventClass);
+    }
+
+    /**
+     * @return the id of the player or entity of {@code event}, or -1 if it has none
+     */
+    static int entityId(Event event) {
+        if (event instanceof PlayerEvent playerEvent) {
+            return playerEvent.getPlayer().getEntityId();
+        }
+
+        if (event instanceof EntityEvent entityEvent) {
+            return entityEvent.getEntity().getEntityId();
+        }
+
+        return -1;
+    }
+
+    static boolean hasEntity(Class<? extends Event> eventClass) {
+        return PlayerEvent.class.isAssignableFrom(eventClass) || EntityEvent.class.isAssignableFrom(eventClass);
+    }
+
+    private static boolean isMove(Class<? extends Event> eventClass) {
+        return PlayerMoveEvent.class.isAssignableFrom(eventClass) || EntityMoveEvent.class.isAssignableFrom(eventClass);
+    }
+
+    /**
+     * The state of a filter for one registered handler.
+     */
+    static final class Gate {
+        private final boolean blockChanged;
+        private final String world;
+        private final int minIntervalTicks;
+        private final EntityIntMap lastTicks;
+        // Worlds are compared by reference first, the name only when a different world object shows up
+        private World matchedWorld;
+
+        private Gate(EventFilter filter, Class<? extends Event> eventClass) {
+            if (filter.blockChanged && !isMove(eventClass)) {
+                throw new IllegalArgumentException("blockChanged needs a PlayerMoveEvent or EntityMoveEvent, not " + eventClass.getSimpleName());
+            }
+
+            if ((filter.world != null || filter.minIntervalTicks > 0) && !hasEntity(eventClass)) {
+                throw new IllegalArgumentException("world and minIntervalTicks need a player or entity event, not " + eventClass.getSimpleName());
+            }
+
+            this.blockChanged = filter.blockChanged;
+            this.world = filter.world;
+            this.minIntervalTicks = filter.minIntervalTicks;
+            this.lastTicks = filter.minIntervalTicks > 0 ? new EntityIntMap() : null;
+        }
+
+        /**
+         * @return whether the handler should be called for {@code event}
+         */
+        boolean test(Event event) {
+            Location to = null;
+
+            if (this.blockChanged) {
+                Location from;
+
+                if (event instanceof PlayerMoveEvent move) {
+                    from = move.getFrom();
+                    to = move.getTo();
+                } else {
+                    EntityMoveEvent move = (EntityMoveEvent) event;
+                    from = move.getFrom();
+                    to = move.getTo();
+                }
+
+                if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+                        && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld()) {
+                    return false;
+                }
+            }
+
+            if (this.world != null && !this.matchesWorld(to != null ? to.getWorld() : entity(event).getWorld())) {
+                return false;
+            }
+
+            // Checked last, only events that pass everything else count as delivered
+            if (this.lastTicks != null && !event.isAsynchronous()) {
+                int id = entityId(event);
+                int tick = Bukkit.getCurrentTick();
+                int last = this.lastTicks.get(id);
+
+                if (last != EntityIntMap.MISSING && tick - last < this.minIntervalTicks) {
+                    return false;
+                }
+
+                // Entries whose interval has passed would be accepted anyway, so they are dropped instead of growing
+                if (last == EntityIntMap.MISSING && this.lastTicks.isFull()) {
+                    this.lastTicks.retain(value -> tick - value < this.minIntervalTicks);
+                }
+
+                this.lastTicks.put(id, tick);
+            }
+
+            return true;
+        }
+
+        private boolean matchesWorld(World world) {
+            if (world == null) {
+                return false;
+            }
+
+            if (world == this.matchedWorld) {
+                return true;
+            }
+
+            if (world.getName().equals(this.world)) {
+                this.matchedWorld = world;
+                return true;
+            }
+
+            return false;
+        }
+
+        private static Entity entity(Event event) {
+            return event instanceof PlayerEvent playerEvent ? playerEvent.getPlayer() : ((EntityEvent) event).getEntity();
+        }
+    }
+
+    public static final class Builder {
+        private boolean blockChanged;
+        private String world;
+        private int minIntervalTicks;
+
+        private Builder() {}
+
+        /**
+         * Only accepts {@link PlayerMoveEvent}s and {@link EntityMoveEvent}s that change the block position
+         * (or the world), not head rotations and movement within a block.
+         */
+        public Builder blockChanged() {
+            this.blockChanged = true;
+            return this;
+        }
+
+        /**
+         * Only accepts player and entity events in the world named {@code name}.
+         */
+        public Builder world(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("World name must not be null");
+            }
+
+            this.world = name;
+            return this;
+        }
+
+        /**
+         * Accepts an event of a player or entity only if the last accepted one of the same player or entity
+         * is at least {@code ticks} ticks ago.
+         */
+        public Builder minIntervalTicks(int ticks) {
+            if (ticks < 1) {
+                throw new IllegalArgumentException("Interval must be at least 1 tick");
+            }
+
+            this.minIntervalTicks = ticks;
+            return this;
+        }
+
+        public EventFilter build() {
+            return new EventFilter(this);
+        }
+    }
+}
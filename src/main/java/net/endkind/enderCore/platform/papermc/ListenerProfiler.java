@@ -0,0 +1,249 @@
+package net.endkind.enderCore.platform.papermc;
+
+import net.endkind.enderCore.core.LatencyHistogram;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registers {@link EventHandler} methods with a timing wrapper and keeps latency and allocation statistics
+ * for every handler of every EnderCore-based plugin. Also registers handlers behind an {@link EventFilter}.
+ */
+public final class ListenerProfiler {
+    private static final List<HandlerStats> HANDLERS = new CopyOnWriteArrayList<>();
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+
+    private ListenerProfiler() {}
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+
+            return bean;
+        }
+
+        return null;
+    }
+
+    /**
+     * Registers every {@link EventHandler} method of {@code listener} like
+     * {@link org.bukkit.plugin.PluginManager#registerEvents}, but with a wrapper that records each invocation.
+     *
+     * @param trackAllocations whether to also record the bytes allocated by the handler thread
+     */
+    static void register(EnderPlugin plugin, Listener listener, boolean trackAllocations) {
+        register(plugin, listener, null, true, trackAllocations);
+    }
+
+    /**
+     * Registers every {@link EventHandler} method of {@code listener} like
+     * {@link org.bukkit.plugin.PluginManager#registerEvents}, calling a handler only for events that pass
+     * {@code filter}. Each handler gets its own filter state, e.g. for the per-player interval.
+     *
+     * @param filter           checked before the handler is called, {@code null} to call it for every event
+     * @param instrument       whether to record each invocation
+     * @param trackAllocations whether to also record the bytes allocated by the handler thread
+     * @throws IllegalArgumentException if the filter does not fit the event of a handler
+     */
+    static void register(EnderPlugin plugin, Listener listener, EventFilter filter, boolean instrument, boolean trackAllocations) {
+        com.sun.management.ThreadMXBean allocations = instrument && trackAllocations ? THREAD_MX_BEAN : null;
+        Set<Method> methods = getHandlerMethods(listener.getClass());
+        List<EventFilter.Gate> gates = new ArrayList<>();
+
+        // Fail before anything is registered if the filter does not fit one of the handlers
+        for (Method method : methods) {
+            gates.add(filter != null ? filter.gate(method.getParameterTypes()[0].asSubclass(Event.class)) : null);
+        }
+
+        int index = 0;
+
+        for (Method method : methods) {
+            EventFilter.Gate gate = gates.get(index++);
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+
+            MethodHandle handle;
+
+            try {
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method)
+                        .asType(MethodType.methodType(void.class, Listener.class, Event.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                plugin.logger.error("Cannot instrument ", listener.getClass().getName() + "#" + method.getName(), ": " + e);
+                continue;
+            }
+
+            HandlerStats stats = null;
+
+            if (instrument) {
+                stats = new HandlerStats(plugin.getPluginMeta().getName(), listener.getClass().getSimpleName(), method.getName(), eventClass.getSimpleName());
+                HANDLERS.add(stats);
+            }
+
+            HandlerStats handlerStats = stats;
+
+            EventExecutor executor = (l, event) -> {
+                // Bukkit also hands subclasses of unrelated events to an executor registered for a parent class
+                if (!eventClass.isInstance(event)) {
+                    return;
+                }
+
+                if (gate != null && !gate.test(event)) {
+                    return;
+                }
+
+                if (handlerStats == null) {
+                    try {
+                        handle.invokeExact(l, event);
+                    } catch (Throwable t) {
+                        throw new EventException(t);
+                    }
+
+                    return;
+                }
+
+                long allocated = allocations != null ? allocations.getCurrentThreadAllocatedBytes() : 0;
+                long start = System.nanoTime();
+
+                try {
+                    handle.invokeExact(l, event);
+                } catch (Throwable t) {
+                    throw new EventException(t);
+                } finally {
+                    handlerStats.histogram.record(System.nanoTime() - start);
+
+                    if (allocations != null) {
+                        handlerStats.allocatedBytes.add(allocations.getCurrentThreadAllocatedBytes() - allocated);
+                    }
+                }
+            };
+
+            Bukkit.getPluginManager().registerEvent(eventClass, listener, annotation.priority(), executor, plugin, annotation.ignoreCancelled());
+        }
+    }
+
+    private static Set<Method> getHandlerMethods(Class<?> listenerClass) {
+        Set<Method> candidates = new LinkedHashSet<>();
+        Set<Method> methods = new LinkedHashSet<>();
+
+        // Same lookup as Bukkit: public methods including inherited ones, plus all declared ones
+        candidates.addAll(List.of(listenerClass.getMethods()));
+        candidates.addAll(List.of(listenerClass.getDeclaredMethods()));
+
+        for (Method method : candidates) {
+            if (method.isBridge() || method.isSynthetic() || method.getAnnotation(EventHandler.class) == null) {
+                continue;
+            }
+
+            if (method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+
+            methods.add(method);
+        }
+
+        return methods;
+    }
+
+    /**
+     * Returns a snapshot of all instrumented handlers, sorted by p99 latency, slowest first.
+     *
+     * @param limit the maximum number of handlers to return
+     */
+    public static List<HandlerStats> getTopHandlers(int limit) {
+        List<HandlerStats> handlers = new ArrayList<>(HANDLERS);
+
+        handlers.sort(Comparator.comparingLong((HandlerStats stats) -> stats.histogram.getPercentileNanos(99)).reversed());
+
+        return handlers.subList(0, Math.min(limit, handlers.size()));
+    }
+
+    public static boolean isEmpty() {
+        return HANDLERS.isEmpty();
+    }
+
+    public static void reset() {
+        for (HandlerStats stats : HANDLERS) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Drops the statistics of a disabled plugin.
+     */
+    static void unregister(EnderPlugin plugin) {
+        String name = plugin.getPluginMeta().getName();
+
+        HANDLERS.removeIf(stats -> stats.plugin.equals(name));
+    }
+
+    public static final class HandlerStats {
+        private final String plugin;
+        private final String listener;
+        private final String method;
+        private final String event;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private volatile int startTick = Bukkit.getCurrentTick();
+
+        private HandlerStats(String plugin, String listener, String method, String event) {
+            this.plugin = plugin;
+            this.listener = listener;
+            this.method = method;
+            this.event = event;
+        }
+
+        public String getPlugin() {
+            return this.plugin;
+        }
+
+        /**
+         * @return the handler in {@code Listener#method(Event)} form
+         */
+        public String getName() {
+            return this.listener + "#" + this.method + "(" + this.event + ")";
+        }
+
+        public LatencyHistogram getHistogram() {
+            return this.histogram;
+        }
+
+        public long getAllocatedBytes() {
+            return this.allocatedBytes.sum();
+        }
+
+        /**
+         * @return the average time this handler took per server tick since registration or the last reset
+         */
+        public double getNanosPerTick() {
+            int ticks = Math.max(Bukkit.getCurrentTick() - this.startTick, 1);
+
+            return (double) this.histogram.getTotalNanos() / ticks;
+        }
+
+        private void reset() {
+            this.histogram.reset();
+            this.allocatedBytes.reset();
+            this.startTick = Bukkit.getCurrentTick();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.endkind.enderCore.platform.papermc;
+
+import net.endkind.enderCore.core.InitTaskGraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * How long each EnderCore-based plugin took to enable, split into phases and init tasks.
+ */
+public final class StartupReport {
+    private static final List<StartupReport> REPORTS = new CopyOnWriteArrayList<>();
+
+    private final String plugin;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private List<InitTaskGraph.Timing> tasks = List.of();
+
+    StartupReport(String plugin) {
+        this.plugin = plugin;
+    }
+
+    void phase(String name, long nanos) {
+        this.phases.put(name, nanos);
+    }
+
+    void setTasks(List<InitTaskGraph.Timing> tasks) {
+        this.tasks = Collections.unmodifiableList(new ArrayList<>(tasks));
+    }
+
+    /**
+     * Publishes this report, replacing an earlier one of the same plugin.
+     */
+    void publish() {
+        REPORTS.removeIf(report -> report.plugin.equals(this.plugin));
+        REPORTS.add(this);
+    }
+
+    /**
+     * @return the reports of all enabled plugins, in enable order
+     */
+    public static List<StartupReport> getReports() {
+        return List.copyOf(REPORTS);
+    }
+
+    static void unregister(EnderPlugin plugin) {
+        String name = plugin.getPluginMeta().getName();
+
+        REPORTS.removeIf(report -> report.plugin.equals(name));
+    }
+
+    public String getPlugin() {
+        return this.plugin;
+    }
+
+    /**
+     * @return the duration of every phase of {@code onEnable} by name, in the order they ran
+     */
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(this.phases);
+    }
+
+    public List<InitTaskGraph.Timing> getTasks() {
+        return this.tasks;
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+
+        for (long nanos : this.phases.values()) {
+            total += nanos;
+        }
+
+        return total;
+    }
+
+    /**
+     * @return the time the init tasks would have taken one after another, to compare with the "tasks" phase
+     */
+    public long getTaskNanos() {
+        long total = 0;
+
+        for (InitTaskGraph.Timing timing : this.tasks) {
+            total += timing.getDurationNanos();
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,41 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+/**
+ * Turns a command argument into a typed value and suggests values for tab completion.
+ *
+ * @param <T> the type of the parsed value
+ */
+public interface ArgumentParser<T> {
+    /**
+     * Parses {@code input}.
+     *
+     * @throws IllegalArgumentException with a message for the sender if the input is invalid
+     */
+    T parse(CommandSender sender, String input);
+
+    /**
+     * Returns the values starting with {@code prefix} (already lower case) to offer for tab completion.
+     */
+    default List<String> suggest(CommandSender sender, String prefix) {
+        return List.of();
+    }
+
+    /**
+     * Returns whether {@link #suggest} gives the same answer for every sender, so its results may be
+     * shared between senders for a short time.
+     */
+    default boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Returns whether this argument consumes the rest of the command line.
+     */
+    default boolean isGreedy() {
+        return false;
+    }
+}
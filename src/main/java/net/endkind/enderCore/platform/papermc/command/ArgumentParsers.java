@@ -0,0 +1,206 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The built-in {@link ArgumentParser}s.
+ */
+public final class ArgumentParsers {
+    private static final ArgumentParser<String> WORD = (sender, input) -> input;
+    private static final ArgumentParser<Boolean> BOOL = new ArgumentParser<>() {
+        @Override
+        public Boolean parse(CommandSender sender, String input) {
+            if (input.equalsIgnoreCase("true")) {
+                return true;
+            }
+
+            if (input.equalsIgnoreCase("false")) {
+                return false;
+            }
+
+            throw new IllegalArgumentException("Expected true or false, got " + input);
+        }
+
+        @Override
+        public List<String> suggest(CommandSender sender, String prefix) {
+            return startingWith(List.of("true", "false"), prefix);
+        }
+    };
+
+    private ArgumentParsers() {}
+
+    /**
+     * A single word, as typed.
+     */
+    public static ArgumentParser<String> word() {
+        return WORD;
+    }
+
+    /**
+     * The rest of the command line, joined with single spaces.
+     */
+    public static ArgumentParser<String> greedy() {
+        return new ArgumentParser<>() {
+            @Override
+            public String parse(CommandSender sender, String input) {
+                return input;
+            }
+
+            @Override
+            public boolean isGreedy() {
+                return true;
+            }
+        };
+    }
+
+    public static ArgumentParser<Boolean> bool() {
+        return BOOL;
+    }
+
+    public static ArgumentParser<Integer> integer(int min, int max) {
+        return (sender, input) -> {
+            int value;
+
+            try {
+                value = Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + input);
+            }
+
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Number must be between " + min + " and " + max);
+            }
+
+            return value;
+        };
+    }
+
+    public static ArgumentParser<Double> decimal(double min, double max) {
+        return (sender, input) -> {
+            double value;
+
+            try {
+                value = Double.parseDouble(input);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + input);
+            }
+
+            if (!(value >= min && value <= max)) {
+                throw new IllegalArgumentException("Number must be between " + min + " and " + max);
+            }
+
+            return value;
+        };
+    }
+
+    /**
+     * One of a fixed set of words, case-insensitive. The parsed value is the choice as declared.
+     */
+    public static ArgumentParser<String> choice(String... choices) {
+        List<String> values = Arrays.asList(choices.clone());
+
+        return new ArgumentParser<>() {
+            @Override
+            public String parse(CommandSender sender, String input) {
+                for (String value : values) {
+                    if (value.equalsIgnoreCase(input)) {
+                        return value;
+                    }
+                }
+
+                throw new IllegalArgumentException("Expected one of " + String.join(", ", values));
+            }
+
+            @Override
+            public List<String> suggest(CommandSender sender, String prefix) {
+                return startingWith(values, prefix);
+            }
+        };
+    }
+
+    /**
+     * An online player, by exact name. Suggestions respect which players the sender can see.
+     */
+    public static ArgumentParser<Player> player() {
+        return new ArgumentParser<>() {
+            @Override
+            public Player parse(CommandSender sender, String input) {
+                Player player = Bukkit.getPlayerExact(input);
+
+                if (player == null || (sender instanceof Player viewer && !viewer.canSee(player))) {
+                    throw new IllegalArgumentException("Player " + input + " is not online");
+                }
+
+                return player;
+            }
+
+            @Override
+            public List<String> suggest(CommandSender sender, String prefix) {
+                List<String> names = new ArrayList<>();
+
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    if (sender instanceof Player viewer && !viewer.canSee(player)) {
+                        continue;
+                    }
+
+                    if (player.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                        names.add(player.getName());
+                    }
+                }
+
+                return names;
+            }
+
+            @Override
+            public boolean isCacheable() {
+                return false;
+            }
+        };
+    }
+
+    public static ArgumentParser<World> world() {
+        return new ArgumentParser<>() {
+            @Override
+            public World parse(CommandSender sender, String input) {
+                World world = Bukkit.getWorld(input);
+
+                if (world == null) {
+                    throw new IllegalArgumentException("Unknown world " + input);
+                }
+
+                return world;
+            }
+
+            @Override
+            public List<String> suggest(CommandSender sender, String prefix) {
+                List<String> names = new ArrayList<>();
+
+                for (World world : Bukkit.getWorlds()) {
+                    names.add(world.getName());
+                }
+
+                return startingWith(names, prefix);
+            }
+        };
+    }
+
+    private static List<String> startingWith(List<String> values, String prefix) {
+        List<String> matches = new ArrayList<>();
+
+        for (String value : values) {
+            if (value.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                matches.add(value);
+            }
+        }
+
+        return matches;
+    }
+}
@@ -0,0 +1,6 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+@FunctionalInterface
+public interface CommandAction {
+    void execute(CommandContext context);
+}
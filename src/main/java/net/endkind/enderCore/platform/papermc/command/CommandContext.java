@@ -0,0 +1,62 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.Map;
+
+/**
+ * The sender and the parsed arguments of a single command execution.
+ */
+public final class CommandContext {
+    private final CommandSender sender;
+    private final String label;
+    private final String[] args;
+    private final Map<String, Object> values;
+
+    CommandContext(CommandSender sender, String label, String[] args, Map<String, Object> values) {
+        this.sender = sender;
+        this.label = label;
+        this.args = args;
+        this.values = values;
+    }
+
+    public CommandSender getSender() {
+        return this.sender;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    /**
+     * @return the raw arguments as typed
+     */
+    public String[] getArgs() {
+        return this.args;
+    }
+
+    public boolean has(String name) {
+        return this.values.containsKey(name);
+    }
+
+    /**
+     * Returns the parsed value of the argument {@code name}.
+     *
+     * @throws IllegalArgumentException if the command path that was executed has no such argument
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name) {
+        if (!this.values.containsKey(name)) {
+            throw new IllegalArgumentException("No argument named " + name);
+        }
+
+        return (T) this.values.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, T def) {
+        Object value = this.values.get(name);
+
+        return value != null ? (T) value : def;
+    }
+}
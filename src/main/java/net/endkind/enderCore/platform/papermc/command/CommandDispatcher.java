@@ -0,0 +1,248 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import net.endkind.enderCore.platform.papermc.EnderPlugin;
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Executes and tab-completes an {@link EnderCommand} tree. Works as the executor of a plugin.yml
+ * command or, through {@link #asBukkitCommand()}, as a command registered directly in the command map.
+ */
+public final class CommandDispatcher implements CommandExecutor, TabCompleter {
+    private static final List<CommandDispatcher> DISPATCHERS = new CopyOnWriteArrayList<>();
+
+    private final EnderPlugin plugin;
+    private final EnderCommand command;
+    private final CommandNode root;
+
+    public CommandDispatcher(EnderPlugin plugin, EnderCommand command) {
+        this.plugin = plugin;
+        this.command = command;
+        this.root = command.compile(null);
+
+        DISPATCHERS.add(this);
+    }
+
+    public EnderPlugin getPlugin() {
+        return this.plugin;
+    }
+
+    public CommandNode getRoot() {
+        return this.root;
+    }
+
+    // #region dispatch
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        this.dispatch(sender, label, args);
+        return true;
+    }
+
+    public void dispatch(CommandSender sender, String label, String[] args) {
+        CommandNode node = this.root;
+
+        if (!node.canUse(sender)) {
+            this.reply(sender, "You don't have permission to use this command");
+            return;
+        }
+
+        Map<String, Object> values = null;
+
+        for (int i = 0; i < args.length; i++) {
+            CommandNode next = node.literal(args[i]);
+            String error = null;
+
+            if (next == null) {
+                for (CommandNode argument : node.getArguments()) {
+                    ArgumentParser<?> parser = argument.getParser();
+                    String input = parser.isGreedy() ? String.join(" ", List.of(args).subList(i, args.length)) : args[i];
+
+                    try {
+                        Object value = parser.parse(sender, input);
+
+                        if (values == null) {
+                            values = new HashMap<>();
+                        }
+
+                        values.put(argument.getName(), value);
+                        next = argument;
+
+                        if (parser.isGreedy()) {
+                            i = args.length - 1;
+                        }
+
+                        break;
+                    } catch (IllegalArgumentException e) {
+                        if (error == null) {
+                            error = e.getMessage();
+                        }
+                    }
+                }
+            }
+
+            if (next == null) {
+                this.reply(sender, (error != null ? error : "Unknown argument " + args[i]) + ". Usage: " + usage(label, node));
+                return;
+            }
+
+            if (!next.canUse(sender)) {
+                this.reply(sender, "You don't have permission to use this command");
+                return;
+            }
+
+            node = next;
+        }
+
+        if (!node.isExecutable()) {
+            this.reply(sender, "Usage: " + usage(label, node));
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            node.getAction().execute(new CommandContext(sender, label, args, values != null ? values : Map.of()));
+        } finally {
+            node.getLatency().record(System.nanoTime() - start);
+        }
+    }
+
+    private void reply(CommandSender sender, String message) {
+        sender.sendMessage(this.plugin.genMessage(Component.text(message)));
+    }
+
+    private static String usage(String label, CommandNode node) {
+        StringBuilder sb = new StringBuilder("/").append(label);
+        int space = node.getPath().indexOf(' ');
+
+        if (space >= 0) {
+            sb.append(node.getPath(), space, node.getPath().length());
+        }
+
+        List<String> options = new ArrayList<>();
+
+        for (CommandNode child : node.getChildren()) {
+            options.add(child.getParser() == null ? child.getName() : "<" + child.getName() + ">");
+        }
+
+        if (!options.isEmpty()) {
+            sb.append(' ').append(String.join("|", options));
+        }
+
+        return sb.toString();
+    }
+    // #endregion
+
+    // #region tab completion
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        return this.complete(sender, args);
+    }
+
+    public List<String> complete(CommandSender sender, String[] args) {
+        CommandNode node = this.root;
+
+        if (args.length == 0 || !node.canUse(sender)) {
+            return List.of();
+        }
+
+        for (int i = 0; i < args.length - 1; i++) {
+            CommandNode next = node.literal(args[i]);
+
+            if (next == null) {
+                for (CommandNode argument : node.getArguments()) {
+                    ArgumentParser<?> parser = argument.getParser();
+
+                    if (parser.isGreedy()) {
+                        // Everything from here on belongs to this argument
+                        return argument.canUse(sender) ? parser.suggest(sender, args[args.length - 1].toLowerCase(Locale.ROOT)) : List.of();
+                    }
+
+                    try {
+                        parser.parse(sender, args[i]);
+                        next = argument;
+                        break;
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+            }
+
+            if (next == null || !next.canUse(sender)) {
+                return List.of();
+            }
+
+            node = next;
+        }
+
+        return node.complete(sender, args[args.length - 1].toLowerCase(Locale.ROOT));
+    }
+    // #endregion
+
+    // #region registry
+    /**
+     * Wraps this dispatcher in a {@link Command} for {@code CommandMap#register}, for plugins without a
+     * plugin.yml commands section.
+     */
+    public Command asBukkitCommand() {
+        return new MappedCommand(this);
+    }
+
+    /**
+     * @return all dispatchers created so far, e.g. to report command latencies
+     */
+    public static List<CommandDispatcher> getDispatchers() {
+        return List.copyOf(DISPATCHERS);
+    }
+
+    public static void unregister(Plugin plugin) {
+        DISPATCHERS.removeIf(dispatcher -> dispatcher.plugin == plugin);
+    }
+
+    /**
+     * Drops all memoized tab completions, e.g. after the data behind a parser's suggestions changed.
+     */
+    public void clearCompletions() {
+        this.root.clearCompletions();
+    }
+    // #endregion
+
+    private static final class MappedCommand extends Command implements PluginIdentifiableCommand {
+        private final CommandDispatcher dispatcher;
+
+        private MappedCommand(CommandDispatcher dispatcher) {
+            super(dispatcher.command.getName(), dispatcher.command.getDescription(),
+                    "/" + dispatcher.command.getName(), dispatcher.command.getAliases());
+
+            this.dispatcher = dispatcher;
+            this.setPermission(dispatcher.command.getPermission());
+        }
+
+        @Override
+        public boolean execute(CommandSender sender, String label, String[] args) {
+            this.dispatcher.dispatch(sender, label, args);
+            return true;
+        }
+
+        @Override
+        public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
+            return this.dispatcher.complete(sender, args);
+        }
+
+        @Override
+        public Plugin getPlugin() {
+            return this.dispatcher.plugin;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import net.endkind.enderCore.core.LatencyHistogram;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled, immutable node of a command trie. Literal children are looked up by hash for dispatch
+ * and by binary search over their sorted names for prefix completion.
+ */
+public final class CommandNode {
+    static final long COMPLETION_TTL_NANOS = 2_000_000_000L;
+    private static final int MAX_CACHED_PREFIXES = 256;
+
+    private final String name;
+    private final String path;
+    private final ArgumentParser<?> parser;
+    private final List<String> aliases;
+    private final String permission;
+    private final CommandAction action;
+    private final Map<String, CommandNode> literals;
+    private final String[] literalNames;
+    private final CommandNode[] literalNodes;
+    private final CommandNode[] arguments;
+    private final List<CommandNode> children;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentHashMap<String, Completion> completions = new ConcurrentHashMap<>();
+
+    CommandNode(String name, String path, ArgumentParser<?> parser, List<String> aliases, String permission,
+                CommandAction action, List<CommandNode> children) {
+        this.name = name;
+        this.path = path;
+        this.parser = parser;
+        this.aliases = aliases;
+        this.permission = permission;
+        this.action = action;
+        this.children = List.copyOf(children);
+
+        Map<String, CommandNode> literals = new HashMap<>();
+        List<CommandNode> literalNodes = new ArrayList<>();
+        List<CommandNode> arguments = new ArrayList<>();
+
+        for (CommandNode child : children) {
+            if (child.parser != null) {
+                arguments.add(child);
+                continue;
+            }
+
+            literalNodes.add(child);
+            putLiteral(literals, child.name, child);
+
+            for (String alias : child.aliases) {
+                putLiteral(literals, alias, child);
+            }
+        }
+
+        literalNodes.sort((a, b) -> a.key().compareTo(b.key()));
+
+        this.literals = literals;
+        this.literalNodes = literalNodes.toArray(new CommandNode[0]);
+        this.literalNames = new String[this.literalNodes.length];
+        this.arguments = arguments.toArray(new CommandNode[0]);
+
+        for (int i = 0; i < this.literalNodes.length; i++) {
+            this.literalNames[i] = this.literalNodes[i].key();
+        }
+    }
+
+    private static void putLiteral(Map<String, CommandNode> literals, String name, CommandNode node) {
+        if (literals.putIfAbsent(name.toLowerCase(Locale.ROOT), node) != null) {
+            throw new IllegalArgumentException("Duplicate subcommand " + name + " in " + node.path);
+        }
+    }
+
+    private String key() {
+        return this.name.toLowerCase(Locale.ROOT);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the path from the root, e.g. {@code shop buy <item>}
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    public String getPermission() {
+        return this.permission;
+    }
+
+    public boolean isExecutable() {
+        return this.action != null;
+    }
+
+    public List<CommandNode> getChildren() {
+        return this.children;
+    }
+
+    /**
+     * @return execution latency of this node's action
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    ArgumentParser<?> getParser() {
+        return this.parser;
+    }
+
+    CommandAction getAction() {
+        return this.action;
+    }
+
+    CommandNode[] getArguments() {
+        return this.arguments;
+    }
+
+    boolean canUse(CommandSender sender) {
+        return this.permission == null || sender.hasPermission(this.permission);
+    }
+
+    CommandNode literal(String token) {
+        if (this.literals.isEmpty()) {
+            return null;
+        }
+
+        return this.literals.get(token.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the completions for {@code prefix} (lower case) below this node. Matching literals and
+     * sender-independent suggestions are memoized per prefix for {@link #COMPLETION_TTL_NANOS}; literal
+     * permissions and sender-dependent parsers are still evaluated on every call.
+     */
+    List<String> complete(CommandSender sender, String prefix) {
+        long now = System.nanoTime();
+        Completion completion = this.completions.get(prefix);
+
+        if (completion == null || now - completion.createdAt > COMPLETION_TTL_NANOS) {
+            completion = this.computeCompletion(sender, prefix, now);
+
+            if (this.completions.size() >= MAX_CACHED_PREFIXES) {
+                this.completions.clear();
+            }
+
+            this.completions.put(prefix, completion);
+        }
+
+        List<String> result = new ArrayList<>(completion.literals.length + completion.suggestions.size());
+
+        for (CommandNode literal : completion.literals) {
+            if (literal.canUse(sender)) {
+                result.add(literal.name);
+            }
+        }
+
+        result.addAll(completion.suggestions);
+
+        for (CommandNode argument : this.arguments) {
+            if ((!argument.parser.isCacheable() || argument.permission != null) && argument.canUse(sender)) {
+                result.addAll(argument.parser.suggest(sender, prefix));
+            }
+        }
+
+        return result;
+    }
+
+    private Completion computeCompletion(CommandSender sender, String prefix, long now) {
+        int from = Arrays.binarySearch(this.literalNames, prefix);
+
+        if (from < 0) {
+            from = -from - 1;
+        }
+
+        int to = from;
+
+        while (to < this.literalNames.length && this.literalNames[to].startsWith(prefix)) {
+            to++;
+        }
+
+        List<String> suggestions = new ArrayList<>();
+
+        for (CommandNode argument : this.arguments) {
+            // Permission-restricted arguments are not shared, the check depends on the sender
+            if (argument.parser.isCacheable() && argument.permission == null) {
+                suggestions.addAll(argument.parser.suggest(sender, prefix));
+            }
+        }
+
+        return new Completion(now, Arrays.copyOfRange(this.literalNodes, from, to), List.copyOf(suggestions));
+    }
+
+    void clearCompletions() {
+        this.completions.clear();
+
+        for (CommandNode child : this.children) {
+            child.clearCompletions();
+        }
+    }
+
+    private static final class Completion {
+        private final long createdAt;
+        private final CommandNode[] literals;
+        private final List<String> suggestions;
+
+        private Completion(long createdAt, CommandNode[] literals, List<String> suggestions) {
+            this.createdAt = createdAt;
+            this.literals = literals;
+            this.suggestions = suggestions;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.endkind.enderCore.platform.papermc.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder for a command tree.
+ * <pre>{@code
+ * EnderCommand.literal("shop")
+ *         .then(EnderCommand.literal("buy")
+ *                 .then(EnderCommand.argument("item", ArgumentParsers.word())
+ *                         .then(EnderCommand.argument("amount", ArgumentParsers.integer(1, 64))
+ *                                 .executes(ctx -> buy(ctx.getSender(), ctx.get("item"), ctx.get("amount"))))));
+ * }</pre>
+ * At every position literal children are tried first, then argument children in declaration order.
+ */
+public final class EnderCommand {
+    private final String name;
+    private final ArgumentParser<?> parser;
+    private final List<String> aliases;
+    private final List<EnderCommand> children = new ArrayList<>();
+    private String permission;
+    private String description = "";
+    private CommandAction action;
+
+    private EnderCommand(String name, ArgumentParser<?> parser, List<String> aliases) {
+        if (name == null || name.isBlank() || name.contains(" ")) {
+            throw new IllegalArgumentException("Command name must be a single word");
+        }
+
+        this.name = name;
+        this.parser = parser;
+        this.aliases = aliases;
+    }
+
+    public static EnderCommand literal(String name, String... aliases) {
+        return new EnderCommand(name, null, List.of(aliases));
+    }
+
+    public static EnderCommand argument(String name, ArgumentParser<?> parser) {
+        if (parser == null) {
+            throw new IllegalArgumentException("Parser cannot be null");
+        }
+
+        return new EnderCommand(name, parser, List.of());
+    }
+
+    /**
+     * Requires {@code permission} for this node and everything below it.
+     */
+    public EnderCommand permission(String permission) {
+        this.permission = permission;
+        return this;
+    }
+
+    public EnderCommand description(String description) {
+        this.description = description;
+        return this;
+    }
+
+    public EnderCommand executes(CommandAction action) {
+        this.action = action;
+        return this;
+    }
+
+    public EnderCommand then(EnderCommand child) {
+        this.children.add(child);
+        return this;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public List<String> getAliases() {
+        return this.aliases;
+    }
+
+    public String getPermission() {
+        return this.permission;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+    CommandNode compile(String parentPath) {
+        String display = this.parser == null ? this.name : "<" + this.name + ">";
+        String path = parentPath == null ? display : parentPath + " " + display;
+
+        List<CommandNode> compiled = new ArrayList<>(this.children.size());
+
+        for (EnderCommand child : this.children) {
+            compiled.add(child.compile(path));
+        }
+
+        return new CommandNode(this.name, path, this.parser, this.aliases, this.permission, this.action, compiled);
+    }
+}
@@ -0,0 +1,406 @@
+package net.endkind.enderCore.platform.papermc.message;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Localized messages from {@code lang/<locale>.yml} files, e.g. {@code lang/en_us.yml} and {@code lang/de_de.yml}.
+ * <p>
+ * A locale is loaded the first time a message is needed in it: the file in the data folder is read with
+ * the bundled file of the same name as defaults, and every message is compiled into a {@link MessageTemplate}
+ * stored at the index of its {@link MessageId}. Sending a message is then an array access and a render.
+ * Missing locales fall back to their language ({@code de_at} to {@code de}) and then to the default locale,
+ * missing keys to the default locale.
+ * </p>
+ * <p>
+ * Only the default locale is held strongly, the others are softly referenced and dropped by the garbage
+ * collector under memory pressure, to be loaded again when they are needed.
+ * </p>
+ */
+public final class MessageCatalog {
+    private static final int INITIAL_ID_CAPACITY = 64;
+
+    private final Path directory;
+    private final Function<String, InputStream> resources;
+    private final UnaryOperator<Component> decorator;
+    private final Consumer<String> warnings;
+
+    // Open addressing table of the interned ids, written under idLock and read without locking
+    private final Object idLock = new Object();
+    private volatile MessageId[] idTable = new MessageId[INITIAL_ID_CAPACITY];
+    private int idCount;
+
+    private final ConcurrentHashMap<Locale, SoftReference<Bundle>> byLocale = new ConcurrentHashMap<>();
+    private final Map<String, SoftReference<Bundle>> byTag = new HashMap<>();
+    private final Set<MessageId> missing = ConcurrentHashMap.newKeySet();
+    private volatile String defaultLocale;
+    private volatile Bundle defaultBundle;
+
+    /**
+     * @param directory the directory of the locale files, usually {@code lang} in the data folder
+     * @param resources opens a bundled resource such as {@code lang/en_us.yml}, or returns {@code null}
+     * @param decorator applied to every sent message, e.g. to add the plugin prefix
+     * @param warnings receives problems with the locale files
+     */
+    public MessageCatalog(Path directory, Function<String, InputStream> resources, String defaultLocale,
+                          UnaryOperator<Component> decorator, Consumer<String> warnings) {
+        this.directory = directory;
+        this.resources = resources;
+        this.decorator = decorator;
+        this.warnings = warnings;
+        this.defaultLocale = normalize(defaultLocale);
+    }
+
+    // #region ids
+    /**
+     * Returns the id of {@code key}, interning it on first use.
+     */
+    public MessageId id(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Message key cannot be null");
+        }
+
+        MessageId id = find(this.idTable, key);
+
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this.idLock) {
+            MessageId[] table = this.idTable;
+            id = find(table, key);
+
+            if (id != null) {
+                return id;
+            }
+
+            if ((this.idCount + 1) * 2 > table.length) {
+                table = grow(table);
+            }
+
+            id = new MessageId(this, key, this.idCount++);
+            insert(table, id);
+            this.idTable = table;
+
+            return id;
+        }
+    }
+
+    private static MessageId find(MessageId[] table, String key) {
+        int mask = table.length - 1;
+
+        for (int i = spread(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+            MessageId id = table[i];
+
+            if (id == null) {
+                return null;
+            }
+
+            if (id.getKey().equals(key)) {
+                return id;
+            }
+        }
+    }
+
+    private static void insert(MessageId[] table, MessageId id) {
+        int mask = table.length - 1;
+        int i = spread(id.getKey().hashCode()) & mask;
+
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+
+        table[i] = id;
+    }
+
+    private static MessageId[] grow(MessageId[] table) {
+        MessageId[] grown = new MessageId[table.length * 2];
+
+        for (MessageId id : table) {
+            if (id != null) {
+                insert(grown, id);
+            }
+        }
+
+        return grown;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    // #endregion
+
+    // #region render
+    /**
+     * Renders {@code id} in {@code locale} without the decorator. A key that no locale file defines is
+     * rendered as the key itself.
+     *
+     * @param locale the locale, {@code null} for the default locale
+     * @throws IllegalArgumentException if the values do not match the slots of the message
+     */
+    public Component render(Locale locale, MessageId id, Object... values) {
+        MessageTemplate template = this.getTemplate(locale, id);
+
+        if (template == null) {
+            if (this.missing.add(id)) {
+                this.warnings.accept("Missing message " + id + " in lang/" + this.defaultLocale + ".yml");
+            }
+
+            return Component.text(id.getKey());
+        }
+
+        return template.render(values);
+    }
+
+    /**
+     * @param locale the locale, {@code null} for the default locale
+     * @return the template of {@code id} in {@code locale} or the default locale, or {@code null} if neither defines it
+     */
+    public MessageTemplate getTemplate(Locale locale, MessageId id) {
+        if (id.getCatalog() != this) {
+            throw new IllegalArgumentException("Message id " + id + " belongs to another catalog");
+        }
+
+        Bundle bundle = this.getBundle(locale);
+        MessageTemplate template = bundle.get(id);
+
+        if (template == null && bundle != this.defaultBundle) {
+            template = this.getDefaultBundle().get(id);
+        }
+
+        return template;
+    }
+
+    /**
+     * Sends {@code id} to {@code audience}, in the locale of the player or the default locale for anything else.
+     */
+    public void send(Audience audience, MessageId id, Object... values) {
+        Locale locale = audience instanceof Player player ? player.locale() : null;
+
+        audience.sendMessage(this.decorator.apply(this.render(locale, id, values)));
+    }
+
+    /**
+     * Sends {@code id} to every player, rendering it once per distinct locale.
+     */
+    public void send(Collection<? extends Player> players, MessageId id, Object... values) {
+        Map<Locale, Component> rendered = new HashMap<>();
+
+        for (Player player : players) {
+            Locale locale = player.locale();
+            Component message = rendered.get(locale);
+
+            if (message == null) {
+                message = this.decorator.apply(this.render(locale, id, values));
+                rendered.put(locale, message);
+            }
+
+            player.sendMessage(message);
+        }
+    }
+    // #endregion
+
+    // #region bundles
+    /**
+     * Drops all loaded locales, e.g. after the files were edited. Ids stay valid.
+     */
+    public synchronized void reload(String defaultLocale) {
+        this.defaultLocale = normalize(defaultLocale);
+        this.defaultBundle = null;
+        this.byLocale.clear();
+        this.byTag.clear();
+        this.missing.clear();
+    }
+
+    public String getDefaultLocale() {
+        return this.defaultLocale;
+    }
+
+    /**
+     * @return the locales that are currently loaded
+     */
+    public synchronized List<String> getLoadedLocales() {
+        return this.byTag.entrySet().stream()
+                .filter(entry -> entry.getValue().get() != null)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    private Bundle getBundle(Locale locale) {
+        if (locale == null) {
+            return this.getDefaultBundle();
+        }
+
+        SoftReference<Bundle> reference = this.byLocale.get(locale);
+        Bundle bundle = reference != null ? reference.get() : null;
+
+        if (bundle != null) {
+            return bundle;
+        }
+
+        bundle = this.resolve(locale);
+        this.byLocale.put(locale, new SoftReference<>(bundle));
+
+        return bundle;
+    }
+
+    private Bundle getDefaultBundle() {
+        Bundle bundle = this.defaultBundle;
+
+        if (bundle != null) {
+            return bundle;
+        }
+
+        synchronized (this) {
+            if (this.defaultBundle == null) {
+                Bundle loaded = this.loadTag(this.defaultLocale);
+
+                if (loaded == null) {
+                    this.warnings.accept("No lang/" + this.defaultLocale + ".yml found, messages are shown as their keys");
+                    loaded = new Bundle(new MessageTemplate[0]);
+                }
+
+                this.defaultBundle = loaded;
+            }
+
+            return this.defaultBundle;
+        }
+    }
+
+    private synchronized Bundle resolve(Locale locale) {
+        String tag = normalize(locale.toString());
+        Bundle bundle = this.loadTag(tag);
+
+        if (bundle == null && !locale.getLanguage().isEmpty()) {
+            bundle = this.loadTag(normalize(locale.getLanguage()));
+        }
+
+        return bundle != null ? bundle : this.getDefaultBundle();
+    }
+
+    // Returns the bundle of tag, loading it if needed, or null if there is no file for it
+    private Bundle loadTag(String tag) {
+        if (tag.equals(this.defaultLocale) && this.defaultBundle != null) {
+            return this.defaultBundle;
+        }
+
+        SoftReference<Bundle> reference = this.byTag.get(tag);
+        Bundle bundle = reference != null ? reference.get() : null;
+
+        if (bundle != null) {
+            return bundle;
+        }
+
+        YamlConfiguration yaml = this.readYaml(tag);
+
+        if (yaml == null) {
+            return null;
+        }
+
+        Map<MessageId, MessageTemplate> templates = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : yaml.getValues(true).entrySet()) {
+            String source;
+
+            if (entry.getValue() instanceof String string) {
+                source = string;
+            } else if (entry.getValue() instanceof List<?> lines) {
+                source = String.join("<newline>", lines.stream().map(String::valueOf).toList());
+            } else {
+                continue;
+            }
+
+            try {
+                templates.put(this.id(entry.getKey()), MessageTemplate.compile(source));
+            } catch (IllegalArgumentException e) {
+                this.warnings.accept("Invalid message " + entry.getKey() + " in lang/" + tag + ".yml: " + e.getMessage());
+            }
+        }
+
+        MessageTemplate[] array = new MessageTemplate[this.idCount];
+
+        for (Map.Entry<MessageId, MessageTemplate> entry : templates.entrySet()) {
+            array[entry.getKey().getIndex()] = entry.getValue();
+        }
+
+        bundle = new Bundle(array);
+        this.byTag.put(tag, new SoftReference<>(bundle));
+
+        return bundle;
+    }
+
+    private YamlConfiguration readYaml(String tag) {
+        String name = tag + ".yml";
+        YamlConfiguration bundled = null;
+
+        try (InputStream stream = this.resources.apply("lang/" + name)) {
+            if (stream != null) {
+                bundled = YamlConfiguration.loadConfiguration(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            this.warnings.accept("Could not read the bundled lang/" + name + ": " + e.getMessage());
+        }
+
+        Path file = this.directory.resolve(name);
+
+        if (!Files.isRegularFile(file)) {
+            return bundled;
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            YamlConfiguration yaml = YamlConfiguration.loadConfiguration(reader);
+
+            // Messages added to the bundled file by a plugin update are missing from older copies in the data folder
+            if (bundled != null) {
+                yaml.setDefaults(bundled);
+                yaml.options().copyDefaults(true);
+            }
+
+            return yaml;
+        } catch (IOException e) {
+            this.warnings.accept("Could not read " + file + ": " + e.getMessage());
+            return bundled;
+        }
+    }
+
+    private static String normalize(String locale) {
+        return locale.trim().replace('-', '_').toLowerCase(Locale.ROOT);
+    }
+    // #endregion
+
+    private static final class Bundle {
+        private final MessageTemplate[] templates;
+
+        private Bundle(MessageTemplate[] templates) {
+            this.templates = templates;
+        }
+
+        private MessageTemplate get(MessageId id) {
+            int index = id.getIndex();
+
+            return index < this.templates.length ? this.templates[index] : null;
+        }
+    }
+}
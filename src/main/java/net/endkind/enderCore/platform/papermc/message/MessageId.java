@@ -0,0 +1,34 @@
+package net.endkind.enderCore.platform.papermc.message;
+
+/**
+ * A message key interned by a {@link MessageCatalog}. Looking up a message by id is an array access,
+ * so keep ids in constants instead of interning the key on every send.
+ */
+public final class MessageId {
+    private final MessageCatalog catalog;
+    private final String key;
+    private final int index;
+
+    MessageId(MessageCatalog catalog, String key, int index) {
+        this.catalog = catalog;
+        this.key = key;
+        this.index = index;
+    }
+
+    MessageCatalog getCatalog() {
+        return this.catalog;
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    @Override
+    public String toString() {
+        return this.key;
+    }
+}
@@ -0,0 +1,333 @@
+package net.endkind.enderCore.platform.papermc.message;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A MiniMessage string compiled once into an immutable Component tree with typed slots.
+ * <p>
+ * Slots are written as {@code {name}} or {@code {name:type}}, where type is one of {@code text}
+ * (the default), {@code number}, {@code decimal} or {@code component}. Rendering copies only the
+ * nodes on the path to a slot, every other subtree is shared with the compiled tree.
+ * </p>
+ * <pre>{@code
+ * MessageTemplate template = MessageTemplate.compile("<gray>{player} has <gold>{coins:number}</gold> coins");
+ * Component message = template.render(player.getName(), 250);
+ * }</pre>
+ * Slots are not supported inside tag arguments such as hover texts or click commands.
+ */
+public final class MessageTemplate {
+    // Private use characters around the slot index, they survive MiniMessage parsing as plain text
+    private static final char MARK_START = '\uE000';
+    private static final char MARK_END = '\uE001';
+
+    private final String source;
+    private final List<String> slots;
+    private final SlotType[] types;
+    private final Component component;
+    private final Node root;
+
+    private MessageTemplate(String source, List<String> slots, SlotType[] types, Component component, Node root) {
+        this.source = source;
+        this.slots = slots;
+        this.types = types;
+        this.component = component;
+        this.root = root;
+    }
+
+    /**
+     * Compiles {@code source}.
+     *
+     * @throws IllegalArgumentException if a slot has an unknown type, is declared twice with different
+     *                                  types or is placed inside a tag argument
+     */
+    public static MessageTemplate compile(String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Template cannot be null");
+        }
+
+        Map<String, SlotType> slots = new LinkedHashMap<>();
+        StringBuilder marked = new StringBuilder(source.length());
+        int occurrences = 0;
+
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            int end = c == '{' ? slotEnd(source, i + 1) : -1;
+
+            if (end < 0) {
+                marked.append(c);
+                continue;
+            }
+
+            String slot = source.substring(i + 1, end);
+            int colon = slot.indexOf(':');
+            String name = colon < 0 ? slot : slot.substring(0, colon);
+            SlotType type = colon < 0 ? SlotType.TEXT : SlotType.parse(slot.substring(colon + 1));
+
+            SlotType previous = slots.putIfAbsent(name, type);
+
+            if (previous != null && previous != type) {
+                throw new IllegalArgumentException("Slot {" + name + "} is declared as " + previous + " and " + type);
+            }
+
+            marked.append(MARK_START).append(indexOf(slots, name)).append(MARK_END);
+            occurrences++;
+            i = end;
+        }
+
+        Component component = MiniMessage.miniMessage().deserialize(marked.toString());
+        int[] found = new int[1];
+        Node root = compile(component, found);
+
+        if (found[0] != occurrences) {
+            throw new IllegalArgumentException("Slots cannot be used inside tag arguments: " + source);
+        }
+
+        return new MessageTemplate(source, List.copyOf(slots.keySet()), slots.values().toArray(new SlotType[0]), component, root);
+    }
+
+    private static int slotEnd(String source, int from) {
+        for (int i = from; i < source.length(); i++) {
+            char c = source.charAt(i);
+
+            if (c == '}') {
+                return i > from ? i : -1;
+            }
+
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':') {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int indexOf(Map<String, SlotType> slots, String name) {
+        int index = 0;
+
+        for (String slot : slots.keySet()) {
+            if (slot.equals(name)) {
+                return index;
+            }
+
+            index++;
+        }
+
+        return -1;
+    }
+
+    // #region compile
+    private static Node compile(Component component, int[] found) {
+        List<Component> children = component.children();
+        Node[] nodes = null;
+
+        for (int i = 0; i < children.size(); i++) {
+            Node child = compile(children.get(i), found);
+
+            if (child != null) {
+                if (nodes == null) {
+                    nodes = new Node[children.size()];
+                }
+
+                nodes[i] = child;
+            }
+        }
+
+        if (component instanceof TextComponent text && text.content().indexOf(MARK_START) >= 0) {
+            return split(text, children, nodes, found);
+        }
+
+        return nodes == null ? null : new Node(component, -1, nodes);
+    }
+
+    /**
+     * Moves the text of {@code text} into children, so every slot becomes a child of its own. The
+     * style stays on {@code text} and is inherited by the pieces.
+     */
+    private static Node split(TextComponent text, List<Component> children, Node[] childNodes, int[] found) {
+        String content = text.content();
+        List<Component> parts = new ArrayList<>();
+        List<Node> partNodes = new ArrayList<>();
+        int start = 0;
+        int mark;
+
+        while ((mark = content.indexOf(MARK_START, start)) >= 0) {
+            int end = content.indexOf(MARK_END, mark);
+
+            if (mark > start) {
+                parts.add(Component.text(content.substring(start, mark)));
+                partNodes.add(null);
+            }
+
+            parts.add(Component.empty());
+            partNodes.add(new Node(null, Integer.parseInt(content.substring(mark + 1, end)), null));
+            found[0]++;
+            start = end + 1;
+        }
+
+        if (start < content.length()) {
+            parts.add(Component.text(content.substring(start)));
+            partNodes.add(null);
+        }
+
+        for (int i = 0; i < children.size(); i++) {
+            parts.add(children.get(i));
+            partNodes.add(childNodes != null ? childNodes[i] : null);
+        }
+
+        Component component = text.content("").children(parts);
+
+        return new Node(component, -1, partNodes.toArray(new Node[0]));
+    }
+    // #endregion
+
+    public String getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return the slot names in order of first appearance, which is the order of {@link #render(Object...)}
+     */
+    public List<String> getSlots() {
+        return this.slots;
+    }
+
+    // #region render
+    /**
+     * Renders the template with one value per slot, in the order of {@link #getSlots()}.
+     *
+     * @throws IllegalArgumentException if the number of values does not match or a value does not fit its slot type
+     */
+    public Component render(Object... values) {
+        if (values.length != this.types.length) {
+            throw new IllegalArgumentException("Expected " + this.types.length + " values for " + this.slots + ", got " + values.length);
+        }
+
+        if (this.root == null) {
+            return this.component;
+        }
+
+        Component[] rendered = new Component[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            rendered[i] = this.types[i].toComponent(this.slots.get(i), values[i]);
+        }
+
+        return render(this.root, rendered);
+    }
+
+    /**
+     * Renders the template with the values of {@code values} by slot name.
+     *
+     * @throws IllegalArgumentException if a slot has no value or a value does not fit its slot type
+     */
+    public Component render(Map<String, ?> values) {
+        Object[] ordered = new Object[this.slots.size()];
+
+        for (int i = 0; i < ordered.length; i++) {
+            String slot = this.slots.get(i);
+
+            if (!values.containsKey(slot)) {
+                throw new IllegalArgumentException("Missing value for {" + slot + "}");
+            }
+
+            ordered[i] = values.get(slot);
+        }
+
+        return this.render(ordered);
+    }
+
+    private static Component render(Node node, Component[] values) {
+        if (node.slot >= 0) {
+            return values[node.slot];
+        }
+
+        List<Component> original = node.component.children();
+        List<Component> children = new ArrayList<>(original.size());
+
+        for (int i = 0; i < original.size(); i++) {
+            Node child = node.children[i];
+            children.add(child == null ? original.get(i) : render(child, values));
+        }
+
+        return node.component.children(children);
+    }
+    // #endregion
+
+    @Override
+    public String toString() {
+        return "MessageTemplate{" + this.source + "}";
+    }
+
+    /**
+     * A node on the path to at least one slot. {@code children} is parallel to the component's
+     * children and {@code null} where a child holds no slot.
+     */
+    private static final class Node {
+        private final Component component;
+        private final int slot;
+        private final Node[] children;
+
+        private Node(Component component, int slot, Node[] children) {
+            this.component = component;
+            this.slot = slot;
+            this.children = children;
+        }
+    }
+
+    private enum SlotType {
+        TEXT,
+        NUMBER,
+        DECIMAL,
+        COMPONENT;
+
+        static SlotType parse(String type) {
+            switch (type.toLowerCase(Locale.ROOT)) {
+                case "text":
+                case "string":
+                    return TEXT;
+                case "number":
+                case "int":
+                    return NUMBER;
+                case "decimal":
+                    return DECIMAL;
+                case "component":
+                    return COMPONENT;
+                default:
+                    throw new IllegalArgumentException("Unknown slot type " + type);
+            }
+        }
+
+        Component toComponent(String slot, Object value) {
+            switch (this) {
+                case NUMBER:
+                    if (value instanceof Number number) {
+                        return Component.text(number.longValue());
+                    }
+                    break;
+                case DECIMAL:
+                    if (value instanceof Number number) {
+                        return Component.text(String.format(Locale.ROOT, "%.2f", number.doubleValue()));
+                    }
+                    break;
+                case COMPONENT:
+                    if (value instanceof ComponentLike like) {
+                        return like.asComponent();
+                    }
+                    break;
+                default:
+                    return Component.text(String.valueOf(value));
+            }
+
+            throw new IllegalArgumentException("Slot {" + slot + "} expects a " + this.name().toLowerCase(Locale.ROOT) + ", got " + value);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package net.endkind.enderCore.platform.papermc.message;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of compiled {@link MessageTemplate}s by source string.
+ */
+public final class MessageTemplateCache {
+    private final int capacity;
+    private final LinkedHashMap<String, MessageTemplate> templates;
+    private long hits;
+    private long misses;
+
+    public MessageTemplateCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+
+        this.capacity = capacity;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MessageTemplate> eldest) {
+                return size() > MessageTemplateCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled template for {@code source}, compiling it on a miss.
+     *
+     * @throws IllegalArgumentException if {@code source} is not a valid template
+     */
+    public MessageTemplate get(String source) {
+        synchronized (this) {
+            MessageTemplate template = this.templates.get(source);
+
+            if (template != null) {
+                this.hits++;
+                return template;
+            }
+
+            this.misses++;
+        }
+
+        // Compile outside the lock, two threads compiling the same source only waste a little work
+        MessageTemplate template = MessageTemplate.compile(source);
+
+        synchronized (this) {
+            this.templates.putIfAbsent(source, template);
+        }
+
+        return template;
+    }
+
+    public synchronized void clear() {
+        this.templates.clear();
+    }
+
+    public synchronized int size() {
+        return this.templates.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+}
@@ -0,0 +1,195 @@
+package net.endkind.enderCore.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.KeybindComponent;
+import net.kyori.adventure.text.ScoreComponent;
+import net.kyori.adventure.text.SelectorComponent;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.TranslatableComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders Adventure {@link Component}s as console text with ANSI escapes from {@link AnsiTextFormatter}.
+ * <p>
+ * The component tree is walked once, resolving the inherited color and decorations of every text node.
+ * Escapes are only written when the resolved style differs from the last one written, so adjacent nodes
+ * with the same style form a single run. Components are immutable, so the rendering of a component is
+ * cached by identity, which makes repeated renders of shared components like a message prefix free.
+ * </p>
+ */
+public final class AnsiComponentRenderer {
+    private static final int CACHE_SIZE = 64;
+    private static final int MAX_RETAINED_BUFFER = 8192;
+    private static final TextDecoration[] DECORATIONS = {
+            TextDecoration.BOLD, TextDecoration.ITALIC, TextDecoration.UNDERLINED, TextDecoration.STRIKETHROUGH
+    };
+    private static final String[] DECORATION_ESCAPES = {
+            AnsiTextFormatter.BOLD, AnsiTextFormatter.ITALIC, AnsiTextFormatter.UNDERLINE, AnsiTextFormatter.STRIKETHROUGH
+    };
+    private static final int NO_COLOR = -1;
+
+    private static final AtomicReferenceArray<CachedRender> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+    private static final ThreadLocal<Renderer> RENDERER = ThreadLocal.withInitial(Renderer::new);
+
+    private AnsiComponentRenderer() {}
+
+    /**
+     * Renders {@code component} for the current {@linkplain AnsiTextFormatter#getColorDepth() color depth}.
+     * With {@link ColorDepth#NONE} this is the plain text of the component.
+     */
+    public static String render(Component component) {
+        ColorDepth depth = AnsiTextFormatter.getColorDepth();
+
+        int h = System.identityHashCode(component) * 0x9E3779B9;
+        int index = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+
+        CachedRender cached = CACHE.get(index);
+
+        if (cached != null && cached.depth == depth && cached.component.get() == component) {
+            return cached.ansi;
+        }
+
+        Renderer renderer = RENDERER.get();
+        StringBuilder sb = renderer.buffer;
+
+        sb.setLength(0);
+        renderer.render(sb, component, depth);
+
+        String ansi = sb.toString();
+
+        if (sb.capacity() > MAX_RETAINED_BUFFER) {
+            renderer.buffer = new StringBuilder(256);
+        }
+
+        CACHE.set(index, new CachedRender(component, depth, ansi));
+
+        return ansi;
+    }
+
+    /**
+     * Appends the rendering of {@code component} to {@code sb} without going through the cache.
+     */
+    public static StringBuilder append(StringBuilder sb, Component component) {
+        RENDERER.get().render(sb, component, AnsiTextFormatter.getColorDepth());
+
+        return sb;
+    }
+
+    private static String content(Component component) {
+        if (component instanceof TextComponent text) {
+            return text.content();
+        }
+
+        if (component instanceof TranslatableComponent translatable) {
+            // The console has no client-side translations, the fallback is the best we have
+            return translatable.fallback() != null ? translatable.fallback() : translatable.key();
+        }
+
+        if (component instanceof KeybindComponent keybind) {
+            return keybind.keybind();
+        }
+
+        if (component instanceof SelectorComponent selector) {
+            return selector.pattern();
+        }
+
+        if (component instanceof ScoreComponent score) {
+            return score.name();
+        }
+
+        return "";
+    }
+
+    private static final class Renderer {
+        private StringBuilder buffer = new StringBuilder(256);
+        private ColorDepth depth;
+        private int color;
+        private int decorations;
+
+        private void render(StringBuilder sb, Component component, ColorDepth depth) {
+            this.depth = depth;
+            this.color = NO_COLOR;
+            this.decorations = 0;
+
+            this.walk(sb, component, NO_COLOR, 0);
+
+            if (this.color != NO_COLOR || this.decorations != 0) {
+                sb.append(AnsiTextFormatter.RESET);
+            }
+        }
+
+        private void walk(StringBuilder sb, Component component, int parentColor, int parentDecorations) {
+            Style style = component.style();
+            TextColor textColor = style.color();
+            int color = textColor != null ? textColor.value() : parentColor;
+            int decorations = parentDecorations;
+
+            for (int i = 0; i < DECORATIONS.length; i++) {
+                TextDecoration.State state = style.decoration(DECORATIONS[i]);
+
+                if (state == TextDecoration.State.TRUE) {
+                    decorations |= 1 << i;
+                } else if (state == TextDecoration.State.FALSE) {
+                    decorations &= ~(1 << i);
+                }
+            }
+
+            String content = content(component);
+
+            if (!content.isEmpty()) {
+                this.transition(sb, color, decorations);
+                sb.append(content);
+            }
+
+            for (Component child : component.children()) {
+                this.walk(sb, child, color, decorations);
+            }
+        }
+
+        // Writes the escapes to get from the last written style to the given one
+        private void transition(StringBuilder sb, int color, int decorations) {
+            if (this.depth == ColorDepth.NONE || (color == this.color && decorations == this.decorations)) {
+                return;
+            }
+
+            // Single decorations and the color cannot be switched off, only everything at once
+            if ((this.decorations & ~decorations) != 0 || (color == NO_COLOR && this.color != NO_COLOR)) {
+                sb.append(AnsiTextFormatter.RESET);
+                this.color = NO_COLOR;
+                this.decorations = 0;
+            }
+
+            if (color != this.color) {
+                AnsiTextFormatter.appendTextColor(sb, color);
+            }
+
+            int added = decorations & ~this.decorations;
+
+            for (int i = 0; i < DECORATIONS.length; i++) {
+                if ((added & 1 << i) != 0) {
+                    sb.append(DECORATION_ESCAPES[i]);
+                }
+            }
+
+            this.color = color;
+            this.decorations = decorations;
+        }
+    }
+
+    private static final class CachedRender {
+        private final WeakReference<Component> component;
+        private final ColorDepth depth;
+        private final String ansi;
+
+        private CachedRender(Component component, ColorDepth depth, String ansi) {
+            this.component = new WeakReference<>(component);
+            this.depth = depth;
+            this.ansi = ansi;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package net.endkind.enderCore.utils;
+
+/**
+ * Nearest-color lookup for the xterm 256-color and the basic 16-color palettes.
+ * <p>
+ * Both tables map a quantized RGB cube (5 bits per channel) to a palette index and are built
+ * once on first use, so a lookup is a shift, a mask and an array read.
+ * </p>
+ */
+final class AnsiPalette {
+    private static final int[] ANSI_16 = {
+            0x000000, 0xCD0000, 0x00CD00, 0xCDCD00, 0x0000EE, 0xCD00CD, 0x00CDCD, 0xE5E5E5,
+            0x7F7F7F, 0xFF0000, 0x00FF00, 0xFFFF00, 0x5C5CFF, 0xFF00FF, 0x00FFFF, 0xFFFFFF
+    };
+    private static final int[] CUBE_LEVELS = {0, 95, 135, 175, 215, 255};
+
+    private AnsiPalette() {}
+
+    /**
+     * Returns the xterm 256-color index closest to {@code rgb}. Only the portable range 16-255 is used,
+     * because terminals are free to redefine the first 16 colors.
+     */
+    static int xterm256(int rgb) {
+        return Xterm256.LUT[quantize(rgb)] & 0xFF;
+    }
+
+    /**
+     * Returns the index (0-15) of the basic ANSI color closest to {@code rgb}.
+     */
+    static int ansi16(int rgb) {
+        return Ansi16.LUT[quantize(rgb)];
+    }
+
+    private static int quantize(int rgb) {
+        return ((rgb >> 9) & 0x7C00) | ((rgb >> 6) & 0x03E0) | ((rgb >> 3) & 0x001F);
+    }
+
+    private static byte[] buildLut(int[] palette, int offset) {
+        byte[] lut = new byte[1 << 15];
+
+        for (int i = 0; i < lut.length; i++) {
+            // Match against the center of each quantized cell
+            int r = ((i >> 10) << 3) | 4;
+            int g = (((i >> 5) & 0x1F) << 3) | 4;
+            int b = ((i & 0x1F) << 3) | 4;
+
+            int best = 0;
+            long bestDistance = Long.MAX_VALUE;
+
+            for (int p = 0; p < palette.length; p++) {
+                long distance = distance(r, g, b, palette[p]);
+
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = p;
+                }
+            }
+
+            lut[i] = (byte) (best + offset);
+        }
+
+        return lut;
+    }
+
+    // "Redmean" weighted euclidean distance, a cheap approximation of perceived difference
+    private static long distance(int r, int g, int b, int rgb) {
+        int pr = (rgb >> 16) & 0xFF;
+        int pg = (rgb >> 8) & 0xFF;
+        int pb = rgb & 0xFF;
+
+        int mean = (r + pr) >> 1;
+        int dr = r - pr;
+        int dg = g - pg;
+        int db = b - pb;
+
+        return (((512L + mean) * dr * dr) >> 8) + 4L * dg * dg + (((767L - mean) * db * db) >> 8);
+    }
+
+    private static final class Xterm256 {
+        private static final byte[] LUT;
+
+        static {
+            int[] palette = new int[240];
+
+            for (int i = 0; i < 216; i++) {
+                palette[i] = (CUBE_LEVELS[i / 36] << 16) | (CUBE_LEVELS[(i / 6) % 6] << 8) | CUBE_LEVELS[i % 6];
+            }
+
+            for (int i = 0; i < 24; i++) {
+                int gray = 8 + i * 10;
+                palette[216 + i] = (gray << 16) | (gray << 8) | gray;
+            }
+
+            LUT = buildLut(palette, 16);
+        }
+    }
+
+    private static final class Ansi16 {
+        private static final byte[] LUT = buildLut(ANSI_16, 0);
+    }
+}
@@ -2,6 +2,11 @@ package net.endkind.enderCore.utils;
 
 import net.kyori.adventure.text.format.TextColor;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 public final class AnsiTextFormatter {
     public static final String RESET = "\u001B[0m";
     public static final String BOLD = "\u001B[1m";
@@ -12,14 +17,73 @@ public final class AnsiTextFormatter {
     public static final String RAPID_BLINK = "\u001B[6m";
     public static final String REVERSE = "\u001B[7m";
     public static final String HIDDEN = "\u001B[8m";
+    public static final String STRIKETHROUGH = "\u001B[9m";
+
+    /**
+     * The maximum number of chars (or bytes) a single color escape sequence can take.
+     */
+    public static final int MAX_COLOR_LENGTH = 19;
+
+    private static final String ESCAPE = "\u001B[";
+    private static final String TEXT_INTRODUCER = "\u001B[38;2;";
+    private static final String BACKGROUND_INTRODUCER = "\u001B[48;2;";
+    private static final String TEXT_INTRODUCER_256 = "\u001B[38;5;";
+    private static final String BACKGROUND_INTRODUCER_256 = "\u001B[48;5;";
+    private static final byte[] ESCAPE_BYTES = ESCAPE.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_INTRODUCER_BYTES = TEXT_INTRODUCER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BACKGROUND_INTRODUCER_BYTES = BACKGROUND_INTRODUCER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_INTRODUCER_256_BYTES = TEXT_INTRODUCER_256.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BACKGROUND_INTRODUCER_256_BYTES = BACKGROUND_INTRODUCER_256.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RESET_BYTES = RESET.getBytes(StandardCharsets.US_ASCII);
+
+    private static final String[] DECIMAL = new String[256];
+    private static final byte[][] DECIMAL_BYTES = new byte[256][];
+
+    private static final int CACHE_SIZE = 256;
+    private static final AtomicReferenceArray<CachedEscape> TEXT_CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+    private static final AtomicReferenceArray<CachedEscape> BACKGROUND_CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private static volatile ColorDepth colorDepth = ColorDepth.TRUECOLOR;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            DECIMAL[i] = Integer.toString(i);
+            DECIMAL_BYTES[i] = DECIMAL[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
 
     private AnsiTextFormatter() {}
 
+    // #region colorDepth
+    public static ColorDepth getColorDepth() {
+        return colorDepth;
+    }
+
+    public static void setColorDepth(ColorDepth depth) {
+        if (depth == null) {
+            throw new IllegalArgumentException("Color depth cannot be null");
+        }
+
+        colorDepth = depth;
+    }
+
+    /**
+     * Returns whether escape sequences are emitted at all, i.e. the color depth is not {@link ColorDepth#NONE}.
+     */
+    public static boolean isEnabled() {
+        return colorDepth != ColorDepth.NONE;
+    }
+    // #endregion
+
     // #region textColor
     public static String textColor(int r, int g, int b) {
         EnderColor.isRGB(r, g, b, true);
 
-        return String.format("\u001B[38;2;%d;%d;%dm", r, g, b);
+        return textColor((r << 16) | (g << 8) | b);
+    }
+
+    public static String textColor(int rgb) {
+        return cachedEscape(TEXT_CACHE, false, rgb & 0xFFFFFF);
     }
 
     public static String textColor(int[] rgb) {
@@ -29,23 +93,36 @@ public final class AnsiTextFormatter {
     }
 
     public static String textColor(String hex) {
-        EnderColor.isHex(hex, true);
+        return textColor(EnderColor.parseHex(hex, true));
+    }
 
-        int[] rgb = EnderColor.hexToRgb(hex);
+    public static String textColor(TextColor color) {
+        return textColor(color.value());
+    }
 
-        return textColor(rgb);
+    public static String textColor(EnderColor color) {
+        return textColor(color.rgb());
     }
 
-    public static String textColor(TextColor color) {
-        String hex = color.asHexString();
+    public static StringBuilder appendTextColor(StringBuilder sb, int rgb) {
+        return appendColor(sb, colorDepth, false, rgb);
+    }
 
-        return textColor(hex);
+    public static Appendable appendTextColor(Appendable out, int rgb) throws IOException {
+        return appendColor(out, colorDepth, false, rgb);
     }
 
-    public static String textColor(EnderColor color) {
-        String hex = color.getHex();
+    /**
+     * Writes the text color escape for {@code rgb} into {@code dst}.
+     *
+     * @return the offset directly after the written sequence
+     */
+    public static int writeTextColor(byte[] dst, int offset, int rgb) {
+        return writeColor(dst, offset, colorDepth, false, rgb);
+    }
 
-        return textColor(hex);
+    public static ByteBuffer putTextColor(ByteBuffer dst, int rgb) {
+        return putColor(dst, colorDepth, false, rgb);
     }
     // #endregion
 
@@ -53,7 +130,11 @@ public final class AnsiTextFormatter {
     public static String backgroundColor(int r, int g, int b) {
         EnderColor.isRGB(r, g, b, true);
 
-        return String.format("\u001B[48;2;%d;%d;%dm", r, g, b);
+        return backgroundColor((r << 16) | (g << 8) | b);
+    }
+
+    public static String backgroundColor(int rgb) {
+        return cachedEscape(BACKGROUND_CACHE, true, rgb & 0xFFFFFF);
     }
 
     public static String backgroundColor(int[] rgb) {
@@ -63,23 +144,171 @@ public final class AnsiTextFormatter {
     }
 
     public static String backgroundColor(String hex) {
-        EnderColor.isHex(hex, true);
+        return backgroundColor(EnderColor.parseHex(hex, true));
+    }
 
-        int[] rgb = EnderColor.hexToRgb(hex);
+    public static String backgroundColor(TextColor color) {
+        return backgroundColor(color.value());
+    }
 
-        return backgroundColor(rgb);
+    public static String backgroundColor(EnderColor color) {
+        return backgroundColor(color.rgb());
     }
 
-    public static String backgroundColor(TextColor color) {
-        String hex = color.asHexString();
+    public static StringBuilder appendBackgroundColor(StringBuilder sb, int rgb) {
+        return appendColor(sb, colorDepth, true, rgb);
+    }
 
-        return backgroundColor(hex);
+    public static Appendable appendBackgroundColor(Appendable out, int rgb) throws IOException {
+        return appendColor(out, colorDepth, true, rgb);
     }
 
-    public static String backgroundColor(EnderColor color) {
-        String hex = color.getHex();
+    /**
+     * Writes the background color escape for {@code rgb} into {@code dst}.
+     *
+     * @return the offset directly after the written sequence
+     */
+    public static int writeBackgroundColor(byte[] dst, int offset, int rgb) {
+        return writeColor(dst, offset, colorDepth, true, rgb);
+    }
 
-        return backgroundColor(hex);
+    public static ByteBuffer putBackgroundColor(ByteBuffer dst, int rgb) {
+        return putColor(dst, colorDepth, true, rgb);
     }
     // #endregion
+
+    // #region reset
+    public static int writeReset(byte[] dst, int offset) {
+        if (colorDepth == ColorDepth.NONE) {
+            return offset;
+        }
+
+        System.arraycopy(RESET_BYTES, 0, dst, offset, RESET_BYTES.length);
+
+        return offset + RESET_BYTES.length;
+    }
+
+    public static ByteBuffer putReset(ByteBuffer dst) {
+        if (colorDepth == ColorDepth.NONE) {
+            return dst;
+        }
+
+        return dst.put(RESET_BYTES);
+    }
+    // #endregion
+
+    private static String cachedEscape(AtomicReferenceArray<CachedEscape> cache, boolean background, int rgb) {
+        ColorDepth depth = colorDepth;
+
+        int h = rgb * 0x9E3779B9;
+        int index = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+
+        CachedEscape cached = cache.get(index);
+
+        if (cached != null && cached.rgb == rgb && cached.depth == depth) {
+            return cached.escape;
+        }
+
+        String escape = appendColor(new StringBuilder(MAX_COLOR_LENGTH), depth, background, rgb).toString();
+        cache.set(index, new CachedEscape(rgb, depth, escape));
+
+        return escape;
+    }
+
+    private static int ansi16Code(boolean background, int rgb) {
+        int index = AnsiPalette.ansi16(rgb);
+        int code = index < 8 ? 30 + index : 82 + index;
+
+        return background ? code + 10 : code;
+    }
+
+    private static StringBuilder appendColor(StringBuilder sb, ColorDepth depth, boolean background, int rgb) {
+        switch (depth) {
+            case TRUECOLOR -> sb.append(background ? BACKGROUND_INTRODUCER : TEXT_INTRODUCER)
+                    .append(DECIMAL[(rgb >> 16) & 0xFF]).append(';')
+                    .append(DECIMAL[(rgb >> 8) & 0xFF]).append(';')
+                    .append(DECIMAL[rgb & 0xFF]).append('m');
+            case XTERM_256 -> sb.append(background ? BACKGROUND_INTRODUCER_256 : TEXT_INTRODUCER_256)
+                    .append(DECIMAL[AnsiPalette.xterm256(rgb)]).append('m');
+            case ANSI_16 -> sb.append(ESCAPE).append(DECIMAL[ansi16Code(background, rgb)]).append('m');
+            case NONE -> {}
+        }
+
+        return sb;
+    }
+
+    private static Appendable appendColor(Appendable out, ColorDepth depth, boolean background, int rgb) throws IOException {
+        switch (depth) {
+            case TRUECOLOR -> out.append(background ? BACKGROUND_INTRODUCER : TEXT_INTRODUCER)
+                    .append(DECIMAL[(rgb >> 16) & 0xFF]).append(';')
+                    .append(DECIMAL[(rgb >> 8) & 0xFF]).append(';')
+                    .append(DECIMAL[rgb & 0xFF]).append('m');
+            case XTERM_256 -> out.append(background ? BACKGROUND_INTRODUCER_256 : TEXT_INTRODUCER_256)
+                    .append(DECIMAL[AnsiPalette.xterm256(rgb)]).append('m');
+            case ANSI_16 -> out.append(ESCAPE).append(DECIMAL[ansi16Code(background, rgb)]).append('m');
+            case NONE -> {}
+        }
+
+        return out;
+    }
+
+    private static int writeColor(byte[] dst, int offset, ColorDepth depth, boolean background, int rgb) {
+        switch (depth) {
+            case TRUECOLOR -> {
+                offset = writeBytes(dst, offset, background ? BACKGROUND_INTRODUCER_BYTES : TEXT_INTRODUCER_BYTES);
+                offset = writeBytes(dst, offset, DECIMAL_BYTES[(rgb >> 16) & 0xFF]);
+                dst[offset++] = ';';
+                offset = writeBytes(dst, offset, DECIMAL_BYTES[(rgb >> 8) & 0xFF]);
+                dst[offset++] = ';';
+                offset = writeBytes(dst, offset, DECIMAL_BYTES[rgb & 0xFF]);
+                dst[offset++] = 'm';
+            }
+            case XTERM_256 -> {
+                offset = writeBytes(dst, offset, background ? BACKGROUND_INTRODUCER_256_BYTES : TEXT_INTRODUCER_256_BYTES);
+                offset = writeBytes(dst, offset, DECIMAL_BYTES[AnsiPalette.xterm256(rgb)]);
+                dst[offset++] = 'm';
+            }
+            case ANSI_16 -> {
+                offset = writeBytes(dst, offset, ESCAPE_BYTES);
+                offset = writeBytes(dst, offset, DECIMAL_BYTES[ansi16Code(background, rgb)]);
+                dst[offset++] = 'm';
+            }
+            case NONE -> {}
+        }
+
+        return offset;
+    }
+
+    private static int writeBytes(byte[] dst, int offset, byte[] src) {
+        System.arraycopy(src, 0, dst, offset, src.length);
+
+        return offset + src.length;
+    }
+
+    private static ByteBuffer putColor(ByteBuffer dst, ColorDepth depth, boolean background, int rgb) {
+        switch (depth) {
+            case TRUECOLOR -> dst.put(background ? BACKGROUND_INTRODUCER_BYTES : TEXT_INTRODUCER_BYTES)
+                    .put(DECIMAL_BYTES[(rgb >> 16) & 0xFF]).put((byte) ';')
+                    .put(DECIMAL_BYTES[(rgb >> 8) & 0xFF]).put((byte) ';')
+                    .put(DECIMAL_BYTES[rgb & 0xFF]).put((byte) 'm');
+            case XTERM_256 -> dst.put(background ? BACKGROUND_INTRODUCER_256_BYTES : TEXT_INTRODUCER_256_BYTES)
+                    .put(DECIMAL_BYTES[AnsiPalette.xterm256(rgb)]).put((byte) 'm');
+            case ANSI_16 -> dst.put(ESCAPE_BYTES).put(DECIMAL_BYTES[ansi16Code(background, rgb)]).put((byte) 'm');
+            case NONE -> {}
+        }
+
+        return dst;
+    }
+
+    private static final class CachedEscape {
+        private final int rgb;
+        private final ColorDepth depth;
+        private final String escape;
+
+        private CachedEscape(int rgb, ColorDepth depth, String escape) {
+            this.rgb = rgb;
+            this.depth = depth;
+            this.escape = escape;
+        }
+    }
 }
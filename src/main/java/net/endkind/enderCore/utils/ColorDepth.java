@@ -0,0 +1,102 @@
+package net.endkind.enderCore.utils;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The number of colors a console can display, used by {@link AnsiTextFormatter} to pick escape sequences.
+ */
+public enum ColorDepth {
+    /**
+     * 24-bit colors ({@code ESC[38;2;r;g;bm}).
+     */
+    TRUECOLOR,
+
+    /**
+     * The xterm 256-color palette ({@code ESC[38;5;nm}).
+     */
+    XTERM_256,
+
+    /**
+     * The 16 basic ANSI colors ({@code ESC[30-37m} and {@code ESC[90-97m}).
+     */
+    ANSI_16,
+
+    /**
+     * No escape sequences at all.
+     */
+    NONE;
+
+    /**
+     * Parses a color depth from a config value.
+     * <p>
+     * The value is case-insensitive. {@code AUTO} (or {@code null}) detects the depth from the environment.
+     * </p>
+     *
+     * @param value the config value (e.g., "AUTO", "TRUECOLOR", "XTERM_256", "ANSI_16" or "NONE")
+     * @return the parsed color depth
+     * @throws IllegalArgumentException if the value is not a known color depth
+     */
+    public static ColorDepth parse(String value) {
+        if (value == null || value.trim().equalsIgnoreCase("AUTO")) {
+            return detect();
+        }
+
+        return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Detects the color depth of the current console from the {@code NO_COLOR}, {@code COLORTERM}
+     * and {@code TERM} environment variables.
+     * <p>
+     * If nothing conclusive is set, {@link #TRUECOLOR} is assumed, since most server panels don't set {@code TERM}.
+     * </p>
+     *
+     * @return the detected color depth
+     */
+    public static ColorDepth detect() {
+        return detect(System.getenv());
+    }
+
+    static ColorDepth detect(Map<String, String> env) {
+        if (env.containsKey("NO_COLOR")) {
+            return NONE;
+        }
+
+        String colorTerm = env.get("COLORTERM");
+
+        if (colorTerm != null) {
+            colorTerm = colorTerm.toLowerCase(Locale.ROOT);
+
+            if (colorTerm.equals("truecolor") || colorTerm.equals("24bit")) {
+                return TRUECOLOR;
+            }
+        }
+
+        String term = env.get("TERM");
+
+        if (term == null || term.isEmpty()) {
+            return TRUECOLOR;
+        }
+
+        term = term.toLowerCase(Locale.ROOT);
+
+        if (term.equals("dumb")) {
+            return NONE;
+        }
+
+        if (term.contains("truecolor") || term.contains("direct")) {
+            return TRUECOLOR;
+        }
+
+        if (term.contains("256color") || term.startsWith("xterm") || term.startsWith("screen") || term.startsWith("tmux")) {
+            return XTERM_256;
+        }
+
+        if (term.equals("linux") || term.equals("ansi") || term.startsWith("vt") || term.equals("cygwin")) {
+            return ANSI_16;
+        }
+
+        return TRUECOLOR;
+    }
+}
@@ -1,9 +1,14 @@
 package net.endkind.enderCore.utils;
 
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class EnderColor {
-    private static final Pattern HEX_PATTERN = Pattern.compile("#(?:[0-9a-fA-F]{3}|[0-9a-fA-F]{6})");
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int CACHE_SIZE = 1024;
+    private static final AtomicReferenceArray<EnderColor> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private final boolean shared;
+    private int rgb;
     private String hex;
 
     /**
@@ -14,9 +19,8 @@ public class EnderColor {
      * @throws IllegalArgumentException if the input is null, does not start with '#' or has an invalid length/format
      */
     public EnderColor(String hex) {
-        isHex(hex, true);
-
-        this.hex = shortHexToNormalHex(hex);
+        this.shared = false;
+        this.rgb = parseHex(hex, true);
     }
 
     /**
@@ -30,7 +34,8 @@ public class EnderColor {
     public EnderColor(int r, int g, int b) {
         isRGB(r, g, b, true);
 
-        this.hex = rgbToHex(r, g, b);
+        this.shared = false;
+        this.rgb = pack(r, g, b);
     }
 
     /**
@@ -42,31 +47,136 @@ public class EnderColor {
     public EnderColor(int[] rgb) {
         isRGB(rgb, true);
 
-        this.hex = rgbToHex(rgb);
+        this.shared = false;
+        this.rgb = pack(rgb[0], rgb[1], rgb[2]);
+    }
+
+    private EnderColor(int rgb, boolean shared) {
+        this.shared = shared;
+        this.rgb = rgb;
+    }
+
+    // #region FACTORY
+    /**
+     * Returns a shared, immutable EnderColor for the specified packed RGB value.
+     * <p>
+     * Instances are kept in a bounded cache, so repeated calls with the same color
+     * usually return the same object. The upper 8 bits of {@code rgb} are ignored.
+     * </p>
+     *
+     * @param rgb the packed RGB value (e.g., {@code 0x6400D4})
+     * @return a shared EnderColor for the specified value
+     */
+    public static EnderColor of(int rgb) {
+        rgb &= 0xFFFFFF;
+
+        int h = rgb * 0x9E3779B9;
+        int index = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+
+        EnderColor cached = CACHE.get(index);
+
+        if (cached != null && cached.rgb == rgb) {
+            return cached;
+        }
+
+        EnderColor color = new EnderColor(rgb, true);
+        CACHE.set(index, color);
+
+        return color;
+    }
+
+    /**
+     * Returns a shared, immutable EnderColor for the specified RGB components.
+     *
+     * @param r the red component (0-255)
+     * @param g the green component (0-255)
+     * @param b the blue component (0-255)
+     * @return a shared EnderColor for the specified components
+     * @throws IllegalArgumentException if any component is out of the range 0-255
+     */
+    public static EnderColor of(int r, int g, int b) {
+        isRGB(r, g, b, true);
+
+        return of(pack(r, g, b));
     }
 
+    /**
+     * Returns a shared, immutable EnderColor for the specified HEX color string.
+     *
+     * @param hex the HEX color string (e.g., "#FFAABB" or "#FAB")
+     * @return a shared EnderColor for the specified color
+     * @throws IllegalArgumentException if the input is null, does not start with '#' or has an invalid length/format
+     */
+    public static EnderColor of(String hex) {
+        return of(parseHex(hex, true));
+    }
+    // #endregion
+
     // #region GETTER
 
     /**
-     * Returns the stored color string in normalized (6-digit) format.
+     * Returns the stored color string in normalized (6-digit, upper case) format.
      *
      * @return the normalized color string (e.g., "#FFAABB")
      */
     public String getHex() {
-        return this.hex;
+        String hex = this.hex;
+
+        if (hex == null) {
+            hex = rgbToHex(this.rgb);
+            this.hex = hex;
+        }
+
+        return hex;
     }
 
     /**
      * Returns the RGB components of the stored color.
      * <p>
-     * The method converts the internal HEX color to an array of integers representing
-     * the red, green, and blue components.
+     * A new array is allocated on every call. Prefer {@link #red()}, {@link #green()},
+     * {@link #blue()} or {@link #rgb()} on hot paths.
      * </p>
      *
      * @return an array of integers representing the red, green, and blue components
      */
     public int[] getRGB() {
-        return hexToRgb(this.hex);
+        return new int[]{this.red(), this.green(), this.blue()};
+    }
+
+    /**
+     * Returns the stored color as a packed RGB value ({@code 0xRRGGBB}).
+     *
+     * @return the packed RGB value
+     */
+    public int rgb() {
+        return this.rgb;
+    }
+
+    /**
+     * Returns the red component of the stored color.
+     *
+     * @return the red component (0-255)
+     */
+    public int red() {
+        return (this.rgb >> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the green component of the stored color.
+     *
+     * @return the green component (0-255)
+     */
+    public int green() {
+        return (this.rgb >> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the blue component of the stored color.
+     *
+     * @return the blue component (0-255)
+     */
+    public int blue() {
+        return this.rgb & 0xFF;
     }
     // #endregion
 
@@ -77,11 +187,15 @@ public class EnderColor {
      *
      * @param hex the HEX color string (e.g., "#FFAABB" or "#FAB")
      * @throws IllegalArgumentException if the input is null, does not start with '#' or has an invalid length/format
+     * @throws UnsupportedOperationException if this instance was obtained from one of the {@code of} factories
      */
     public void set(String hex) {
-        isHex(hex, true);
+        if (this.shared) {
+            throw new UnsupportedOperationException("Shared EnderColor instances are immutable");
+        }
 
-        this.hex = shortHexToNormalHex(hex);
+        this.rgb = parseHex(hex, true);
+        this.hex = null;
     }
     // #endregion
 
@@ -109,25 +223,96 @@ public class EnderColor {
      * @throws IllegalArgumentException if the input is null or invalid and {@code throwException} is {@code true}
      */
     public static boolean isHex(String hex, boolean throwException) {
+        if (throwException) {
+            parseHex(hex, true);
+            return true;
+        }
+
+        return parseHex(hex) >= 0;
+    }
+
+    /**
+     * Parses a HEX color string into a packed RGB value ({@code 0xRRGGBB}).
+     * <p>
+     * Leading and trailing whitespace is ignored. The parser does not allocate.
+     * </p>
+     *
+     * @param hex the HEX color string (e.g., "#FFAABB" or "#FAB") to parse
+     * @return the packed RGB value, or {@code -1} if the input is null or not a valid HEX color
+     */
+    public static int parseHex(String hex) {
         if (hex == null) {
-            if (throwException) {
-                throw new IllegalArgumentException("HEX-Color cannot be null");
+            return -1;
+        }
+
+        int start = 0;
+        int end = hex.length();
+
+        while (start < end && hex.charAt(start) <= ' ') {
+            start++;
+        }
+
+        while (end > start && hex.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int length = end - start;
+
+        if ((length != 4 && length != 7) || hex.charAt(start) != '#') {
+            return -1;
+        }
+
+        int rgb = 0;
+
+        for (int i = start + 1; i < end; i++) {
+            int digit = hexDigit(hex.charAt(i));
+
+            if (digit < 0) {
+                return -1;
             }
 
-            return false;
+            rgb = length == 4 ? (rgb << 8) | (digit << 4) | digit : (rgb << 4) | digit;
         }
 
-        hex = hex.trim();
+        return rgb;
+    }
 
-        if (!HEX_PATTERN.matcher(hex).matches()) {
-            if (throwException) {
-                throw new IllegalArgumentException("Invalid HEX-Color format");
+    /**
+     * Parses a HEX color string into a packed RGB value ({@code 0xRRGGBB}).
+     *
+     * @param hex the HEX color string (e.g., "#FFAABB" or "#FAB") to parse
+     * @param throwException if {@code true}, an exception is thrown on invalid input
+     * @return the packed RGB value, or {@code -1} if the input is invalid and {@code throwException} is {@code false}
+     * @throws IllegalArgumentException if the input is null or invalid and {@code throwException} is {@code true}
+     */
+    public static int parseHex(String hex, boolean throwException) {
+        int rgb = parseHex(hex);
+
+        if (rgb < 0 && throwException) {
+            if (hex == null) {
+                throw new IllegalArgumentException("HEX-Color cannot be null");
             }
 
-            return false;
+            throw new IllegalArgumentException("Invalid HEX-Color format");
         }
 
-        return true;
+        return rgb;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+
+        return -1;
     }
 
     /**
@@ -244,19 +429,9 @@ public class EnderColor {
      * @throws IllegalArgumentException if the input is null, does not start with '#' or has an invalid length/format
      */
     public static int[] hexToRgb(String hex) {
-        isHex(hex, true);
-
-        hex = hex.trim();
-
-        hex = shortHexToNormalHex(hex);
-
-        hex = hex.substring(1);
+        int rgb = parseHex(hex, true);
 
-        int r = Integer.parseInt(hex.substring(0, 2), 16);
-        int g = Integer.parseInt(hex.substring(2, 4), 16);
-        int b = Integer.parseInt(hex.substring(4, 6), 16);
-
-        return new int[]{r, g, b};
+        return new int[]{(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
     }
 
     /**
@@ -271,7 +446,26 @@ public class EnderColor {
     public static String rgbToHex(int r, int g, int b) {
         isRGB(r, g, b, true);
 
-        return String.format("#%02X%02X%02X", r, g, b);
+        return rgbToHex(pack(r, g, b));
+    }
+
+    /**
+     * Converts the specified packed RGB value to a HEX color string.
+     * The upper 8 bits of {@code rgb} are ignored.
+     *
+     * @param rgb the packed RGB value (e.g., {@code 0xFFAABB})
+     * @return the HEX color string corresponding to the specified value (e.g., "#FFAABB")
+     */
+    public static String rgbToHex(int rgb) {
+        char[] chars = new char[7];
+        chars[0] = '#';
+
+        for (int i = 6; i > 0; i--) {
+            chars[i] = HEX_DIGITS[rgb & 0xF];
+            rgb >>= 4;
+        }
+
+        return new String(chars);
     }
 
     /**
@@ -287,6 +481,72 @@ public class EnderColor {
         return rgbToHex(rgb[0], rgb[1], rgb[2]);
     }
 
+    // #region GRADIENT
+    /**
+     * Interpolates between this color and {@code other} in the OKLab color space.
+     *
+     * @param other the color at {@code t = 1}
+     * @param t     the position between the colors, clamped to 0-1
+     * @return a shared EnderColor at {@code t}
+     */
+    public EnderColor mix(EnderColor other, double t) {
+        return of(OkLab.mix(this.rgb, other.rgb, t));
+    }
+
+    /**
+     * Returns the OKLab gradient through the specified colors.
+     *
+     * @param stops the colors of the stops, at least one
+     * @return a shared gradient
+     * @throws IllegalArgumentException if no stops are given
+     * @see EnderGradient
+     */
+    public static EnderGradient gradient(EnderColor... stops) {
+        return EnderGradient.of(stops);
+    }
+
+    /**
+     * Returns a palette of the specified colors for nearest-color lookups in OKLab.
+     *
+     * @param colors the colors of the palette, at least one
+     * @return a new palette
+     * @throws IllegalArgumentException if no colors are given
+     * @see EnderPalette
+     */
+    public static EnderPalette palette(EnderColor... colors) {
+        return EnderPalette.of(colors);
+    }
+    // #endregion
+
+    private static int pack(int r, int g, int b) {
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Compares this EnderColor to another object. Two EnderColors are equal if they store the same color.
+     *
+     * @param o the object to compare with
+     * @return {@code true} if {@code o} is an EnderColor with the same RGB value
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        return o instanceof EnderColor other && other.rgb == this.rgb;
+    }
+
+    /**
+     * Returns a hash code based on the stored RGB value.
+     *
+     * @return the hash code of this EnderColor
+     */
+    @Override
+    public int hashCode() {
+        return this.rgb;
+    }
+
     /**
      * Returns a string representation of this EnderColor.
      * <p>
@@ -298,23 +558,18 @@ public class EnderColor {
      */
     @Override
     public String toString() {
-        int[] rgb = hexToRgb(hex);
-        int r = rgb[0];
-        int g = rgb[1];
-        int b = rgb[2];
-
         StringBuilder sb = new StringBuilder("EnderColor{");
 
         sb.append("HEX: ");
-        sb.append(hex);
+        sb.append(this.getHex());
 
         sb.append(", RGB: {");
         sb.append("r: ");
-        sb.append(r);
+        sb.append(this.red());
         sb.append(", g: ");
-        sb.append(g);
+        sb.append(this.green());
         sb.append(", b: ");
-        sb.append(b);
+        sb.append(this.blue());
         sb.append("}");
 
         sb.append("}");
@@ -0,0 +1,406 @@
+package net.endkind.enderCore.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.TextColor;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * An immutable multi-stop color gradient interpolated in OKLab.
+ * <p>
+ * The gradient is sampled once into a lookup table of {@value #RESOLUTION} packed RGB values with a
+ * matching {@link TextColor} each, so coloring text only indexes into the table. Rendered Components
+ * and ANSI strings are cached per text and phase, and instances are shared per set of stops through
+ * {@link #of(int...)}.
+ * </p>
+ * <p>
+ * For animations, pass a phase that grows over time (e.g. {@code tick / 40.0}) to
+ * {@link #apply(String, double)}. Animated gradients wrap around from the last stop back to the
+ * first, and the phase is quantized to the table resolution, so every frame is a table lookup.
+ * </p>
+ */
+public final class EnderGradient {
+    /**
+     * The number of samples in the lookup table.
+     */
+    public static final int RESOLUTION = 256;
+
+    private static final int MAX_CACHED = 512;
+    private static final ConcurrentHashMap<Stops, EnderGradient> GRADIENTS = new ConcurrentHashMap<>();
+
+    private final int[] stops;
+    private final int[] table;
+    private final TextColor[] textColors;
+    private volatile int[] loopTable;
+    private volatile TextColor[] loopTextColors;
+    private final ConcurrentHashMap<Output, Component> components = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Output, String> ansi = new ConcurrentHashMap<>();
+
+    private EnderGradient(int[] stops) {
+        this.stops = stops;
+        this.table = sample(stops);
+        this.textColors = toTextColors(this.table);
+    }
+
+    // #region FACTORY
+    /**
+     * Returns the gradient through the specified colors, evenly spaced.
+     *
+     * @param stops the packed RGB values of the stops, at least one
+     * @return a shared gradient
+     * @throws IllegalArgumentException if no stops are given
+     */
+    public static EnderGradient of(int... stops) {
+        if (stops == null || stops.length == 0) {
+            throw new IllegalArgumentException("A gradient needs at least one color");
+        }
+
+        int[] copy = new int[stops.length];
+
+        for (int i = 0; i < stops.length; i++) {
+            copy[i] = stops[i] & 0xFFFFFF;
+        }
+
+        Stops key = new Stops(copy);
+        EnderGradient gradient = GRADIENTS.get(key);
+
+        if (gradient == null) {
+            if (GRADIENTS.size() >= MAX_CACHED) {
+                GRADIENTS.clear();
+            }
+
+            gradient = GRADIENTS.computeIfAbsent(key, k -> new EnderGradient(k.rgbs));
+        }
+
+        return gradient;
+    }
+
+    /**
+     * Returns the gradient through the specified colors, evenly spaced.
+     *
+     * @param stops the colors of the stops, at least one
+     * @return a shared gradient
+     * @throws IllegalArgumentException if no stops are given
+     */
+    public static EnderGradient of(EnderColor... stops) {
+        if (stops == null || stops.length == 0) {
+            throw new IllegalArgumentException("A gradient needs at least one color");
+        }
+
+        int[] rgbs = new int[stops.length];
+
+        for (int i = 0; i < stops.length; i++) {
+            rgbs[i] = stops[i].rgb();
+        }
+
+        return of(rgbs);
+    }
+    // #endregion
+
+    // #region COLORS
+    /**
+     * @return the packed RGB values of the stops
+     */
+    public int[] getStops() {
+        return this.stops.clone();
+    }
+
+    /**
+     * Returns the color at position {@code t}.
+     *
+     * @param t the position in the gradient, clamped to 0-1
+     * @return the packed RGB value
+     */
+    public int colorAt(double t) {
+        return this.table[index(t)];
+    }
+
+    /**
+     * Returns {@code length} colors spread from the first to the last stop.
+     *
+     * @param length the number of colors
+     * @return a new array of packed RGB values
+     */
+    public int[] colors(int length) {
+        int[] colors = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            colors[i] = this.table[spread(i, length)];
+        }
+
+        return colors;
+    }
+
+    /**
+     * Returns {@code length} colors of the looping gradient, shifted by {@code phase}.
+     *
+     * @param length the number of colors
+     * @param phase  the shift, a full cycle is 1.0
+     * @return a new array of packed RGB values
+     */
+    public int[] colors(int length, double phase) {
+        int[] loop = this.getLoopTable();
+        int shift = phaseStep(phase);
+        int[] colors = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            colors[i] = loop[cycle(i, length, shift)];
+        }
+
+        return colors;
+    }
+    // #endregion
+
+    // #region TEXT
+    /**
+     * Colors {@code text} with the gradient spread over its characters.
+     *
+     * @param text the text to color
+     * @return a Component with one child per run of equally colored characters
+     */
+    public Component apply(String text) {
+        return cached(this.components, new Output(text, -1, null), () -> this.buildComponent(text, -1));
+    }
+
+    /**
+     * Colors {@code text} with the looping gradient shifted by {@code phase}.
+     *
+     * @param text  the text to color
+     * @param phase the shift, a full cycle is 1.0
+     * @return a Component with one child per run of equally colored characters
+     */
+    public Component apply(String text, double phase) {
+        int step = phaseStep(phase);
+
+        return cached(this.components, new Output(text, step, null), () -> this.buildComponent(text, step));
+    }
+
+    /**
+     * Colors {@code text} with the gradient as an ANSI string for the current
+     * {@link AnsiTextFormatter#getColorDepth() color depth}, ending with a reset.
+     *
+     * @param text the text to color
+     * @return the colored text
+     */
+    public String toAnsi(String text) {
+        ColorDepth depth = AnsiTextFormatter.getColorDepth();
+
+        return cached(this.ansi, new Output(text, -1, depth), () -> this.buildAnsi(text, -1));
+    }
+
+    /**
+     * Colors {@code text} with the looping gradient shifted by {@code phase} as an ANSI string.
+     *
+     * @param text  the text to color
+     * @param phase the shift, a full cycle is 1.0
+     * @return the colored text
+     */
+    public String toAnsi(String text, double phase) {
+        int step = phaseStep(phase);
+        ColorDepth depth = AnsiTextFormatter.getColorDepth();
+
+        return cached(this.ansi, new Output(text, step, depth), () -> this.buildAnsi(text, step));
+    }
+
+    private Component buildComponent(String text, int step) {
+        int length = text.codePointCount(0, text.length());
+        TextColor[] colors = step < 0 ? this.textColors : this.getLoopTextColors();
+        TextComponent.Builder builder = Component.text();
+
+        int runStart = 0;
+        TextColor runColor = null;
+
+        for (int i = 0, offset = 0; offset < text.length(); i++) {
+            TextColor color = colors[step < 0 ? spread(i, length) : cycle(i, length, step)];
+
+            if (color != runColor) {
+                if (runColor != null) {
+                    builder.append(Component.text(text.substring(runStart, offset), runColor));
+                }
+
+                runStart = offset;
+                runColor = color;
+            }
+
+            offset += Character.charCount(text.codePointAt(offset));
+        }
+
+        if (runColor != null) {
+            builder.append(Component.text(text.substring(runStart), runColor));
+        }
+
+        return builder.build();
+    }
+
+    private String buildAnsi(String text, int step) {
+        if (!AnsiTextFormatter.isEnabled()) {
+            return text;
+        }
+
+        int length = text.codePointCount(0, text.length());
+        int[] colors = step < 0 ? this.table : this.getLoopTable();
+        StringBuilder sb = new StringBuilder(text.length() * 8);
+
+        int previous = -1;
+
+        for (int i = 0, offset = 0; offset < text.length(); i++) {
+            int rgb = colors[step < 0 ? spread(i, length) : cycle(i, length, step)];
+            int codePoint = text.codePointAt(offset);
+
+            if (rgb != previous) {
+                AnsiTextFormatter.appendTextColor(sb, rgb);
+                previous = rgb;
+            }
+
+            sb.appendCodePoint(codePoint);
+            offset += Character.charCount(codePoint);
+        }
+
+        return sb.append(AnsiTextFormatter.RESET).toString();
+    }
+    // #endregion
+
+    private static <T> T cached(ConcurrentHashMap<Output, T> cache, Output key, Supplier<T> builder) {
+        T value = cache.get(key);
+
+        if (value == null) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+
+            value = builder.get();
+            cache.put(key, value);
+        }
+
+        return value;
+    }
+
+    private int[] getLoopTable() {
+        int[] loop = this.loopTable;
+
+        if (loop == null) {
+            int[] closed = Arrays.copyOf(this.stops, this.stops.length + 1);
+            closed[this.stops.length] = this.stops[0];
+
+            loop = sample(closed);
+            this.loopTable = loop;
+        }
+
+        return loop;
+    }
+
+    private TextColor[] getLoopTextColors() {
+        TextColor[] colors = this.loopTextColors;
+
+        if (colors == null) {
+            colors = toTextColors(this.getLoopTable());
+            this.loopTextColors = colors;
+        }
+
+        return colors;
+    }
+
+    private static int[] sample(int[] stops) {
+        int[] table = new int[RESOLUTION];
+
+        if (stops.length == 1) {
+            Arrays.fill(table, stops[0]);
+            return table;
+        }
+
+        float[] lab = new float[stops.length * 3];
+
+        for (int i = 0; i < stops.length; i++) {
+            OkLab.fromRgb(stops[i], lab, i * 3);
+        }
+
+        int segments = stops.length - 1;
+
+        for (int i = 0; i < RESOLUTION; i++) {
+            double position = (double) i / (RESOLUTION - 1) * segments;
+            int segment = Math.min((int) position, segments - 1);
+
+            table[i] = OkLab.mix(lab, segment * 3, lab, segment * 3 + 3, position - segment);
+        }
+
+        return table;
+    }
+
+    private static TextColor[] toTextColors(int[] table) {
+        TextColor[] colors = new TextColor[table.length];
+
+        for (int i = 0; i < table.length; i++) {
+            // Neighbouring samples are often equal, share the instance so runs can be compared by identity
+            colors[i] = i > 0 && table[i] == table[i - 1] ? colors[i - 1] : TextColor.color(table[i]);
+        }
+
+        return colors;
+    }
+
+    private static int index(double t) {
+        if (!(t > 0)) {
+            return 0;
+        }
+
+        return t >= 1 ? RESOLUTION - 1 : (int) (t * (RESOLUTION - 1) + 0.5);
+    }
+
+    private static int spread(int i, int length) {
+        return length <= 1 ? 0 : (int) ((long) i * (RESOLUTION - 1) / (length - 1));
+    }
+
+    private static int cycle(int i, int length, int shift) {
+        return ((int) ((long) i * RESOLUTION / length) + shift) & (RESOLUTION - 1);
+    }
+
+    private static int phaseStep(double phase) {
+        double fraction = phase - Math.floor(phase);
+
+        return (int) (fraction * RESOLUTION) & (RESOLUTION - 1);
+    }
+
+    private static final class Stops {
+        private final int[] rgbs;
+        private final int hash;
+
+        private Stops(int[] rgbs) {
+            this.rgbs = rgbs;
+            this.hash = Arrays.hashCode(rgbs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Stops other && Arrays.equals(this.rgbs, other.rgbs);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final class Output {
+        private final String text;
+        private final int step;
+        private final ColorDepth depth;
+
+        private Output(String text, int step, ColorDepth depth) {
+            this.text = text;
+            this.step = step;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Output other && this.step == other.step && this.depth == other.depth && this.text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.text.hashCode() * 31 + this.step * 7 + (this.depth == null ? 0 : this.depth.ordinal() + 1);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package net.endkind.enderCore.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An immutable palette of colors with a nearest-color index in OKLab, e.g. for map art or block colors.
+ * <p>
+ * The palette colors are stored in a k-d tree over their OKLab coordinates, so a lookup visits a few
+ * nodes instead of every color. {@link #withLookupTable()} additionally precomputes the index of every
+ * one of the 2<sup>24</sup> RGB values, after which a lookup is a single array read. Batch lookups split
+ * the pixels over the common fork/join pool.
+ * </p>
+ * <pre>{@code
+ * EnderPalette palette = EnderPalette.of(mapColors).withLookupTable();
+ * int[] indices = palette.dither(image.getRGB(0, 0, 128, 128, null, 0, 128), 128, 128);
+ * }</pre>
+ * Ties between equally close colors go to the lower index. The upper 8 bits of packed pixels (alpha) are ignored.
+ */
+public final class EnderPalette {
+    private static final int LUT_SIZE = 1 << 24;
+    private static final int PARALLEL_THRESHOLD = 16384;
+    private static final int LUT_SLICE = 1 << 16;
+    private static final int RECENT_SIZE = 1024;
+
+    private final EnderColor[] colors;
+    private final int[] rgb;
+    // L, a, b of every color
+    private final float[] lab;
+    // The k-d tree: node i of a range is the color at tree[mid], split on axis[mid]
+    private final int[] tree;
+    private final byte[] axis;
+    private final byte[] byteLut;
+    private final short[] shortLut;
+
+    private EnderPalette(EnderColor[] colors) {
+        this.colors = colors;
+        this.rgb = new int[colors.length];
+        this.lab = new float[colors.length * 3];
+
+        for (int i = 0; i < colors.length; i++) {
+            this.rgb[i] = colors[i].rgb();
+            OkLab.fromRgb(this.rgb[i], this.lab, i * 3);
+        }
+
+        this.tree = new int[colors.length];
+        this.axis = new byte[colors.length];
+
+        for (int i = 0; i < this.tree.length; i++) {
+            this.tree[i] = i;
+        }
+
+        this.build(0, this.tree.length);
+        this.byteLut = null;
+        this.shortLut = null;
+    }
+
+    private EnderPalette(EnderPalette palette, byte[] byteLut, short[] shortLut) {
+        this.colors = palette.colors;
+        this.rgb = palette.rgb;
+        this.lab = palette.lab;
+        this.tree = palette.tree;
+        this.axis = palette.axis;
+        this.byteLut = byteLut;
+        this.shortLut = shortLut;
+    }
+
+    // #region FACTORY
+    /**
+     * Creates a palette of the specified colors, their index is their position.
+     *
+     * @throws IllegalArgumentException if no colors are given
+     */
+    public static EnderPalette of(EnderColor... colors) {
+        if (colors == null || colors.length == 0) {
+            throw new IllegalArgumentException("A palette needs at least one color");
+        }
+
+        for (EnderColor color : colors) {
+            if (color == null) {
+                throw new IllegalArgumentException("Palette colors cannot be null");
+            }
+        }
+
+        return new EnderPalette(colors.clone());
+    }
+
+    /**
+     * Creates a palette of the specified colors in iteration order.
+     *
+     * @throws IllegalArgumentException if no colors are given
+     */
+    public static EnderPalette of(Collection<EnderColor> colors) {
+        return of(colors.toArray(new EnderColor[0]));
+    }
+
+    /**
+     * Creates a palette of the specified packed RGB values.
+     *
+     * @throws IllegalArgumentException if no colors are given
+     */
+    public static EnderPalette ofRgb(int... colors) {
+        if (colors == null || colors.length == 0) {
+            throw new IllegalArgumentException("A palette needs at least one color");
+        }
+
+        EnderColor[] enderColors = new EnderColor[colors.length];
+
+        for (int i = 0; i < colors.length; i++) {
+            enderColors[i] = EnderColor.of(colors[i] & 0xFFFFFF);
+        }
+
+        return new EnderPalette(enderColors);
+    }
+
+    /**
+     * Returns this palette with the nearest index of every RGB value precomputed in parallel. The table
+     * takes 16 MiB for up to 256 colors and 32 MiB for up to 65536, so build it once and keep the palette.
+     *
+     * @return a palette answering every lookup from the table
+     * @throws IllegalArgumentException if the palette has more than 65536 colors
+     */
+    public EnderPalette withLookupTable() {
+        if (this.hasLookupTable()) {
+            return this;
+        }
+
+        if (this.colors.length > 65536) {
+            throw new IllegalArgumentException("A lookup table supports at most 65536 colors");
+        }
+
+        boolean small = this.colors.length <= 256;
+        byte[] byteLut = small ? new byte[LUT_SIZE] : null;
+        short[] shortLut = small ? null : new short[LUT_SIZE];
+
+        ForkJoinPool.commonPool().invoke(new Batch(LUT_SLICE, (from, to) -> {
+            float[] query = new float[3];
+
+            for (int rgb = from; rgb < to; rgb++) {
+                OkLab.fromRgb(rgb, query, 0);
+                int index = this.search(query);
+
+                if (small) {
+                    byteLut[rgb] = (byte) index;
+                } else {
+                    shortLut[rgb] = (short) index;
+                }
+            }
+        }, 0, LUT_SIZE));
+
+        return new EnderPalette(this, byteLut, shortLut);
+    }
+    // #endregion
+
+    // #region ACCESS
+    public int size() {
+        return this.colors.length;
+    }
+
+    public EnderColor getColor(int index) {
+        return this.colors[index];
+    }
+
+    /**
+     * @return the packed RGB value of the color at {@code index}
+     */
+    public int rgb(int index) {
+        return this.rgb[index];
+    }
+
+    public boolean hasLookupTable() {
+        return this.byteLut != null || this.shortLut != null;
+    }
+    // #endregion
+
+    // #region NEAREST
+    /**
+     * Returns the index of the palette color perceptually closest to {@code rgb}.
+     */
+    public int nearest(int rgb) {
+        rgb &= 0xFFFFFF;
+
+        if (this.byteLut != null) {
+            return this.byteLut[rgb] & 0xFF;
+        }
+
+        if (this.shortLut != null) {
+            return this.shortLut[rgb] & 0xFFFF;
+        }
+
+        return this.search(OkLab.fromRgb(rgb));
+    }
+
+    public int nearest(EnderColor color) {
+        return this.nearest(color.rgb());
+    }
+
+    /**
+     * Returns the index of the closest palette color for every packed pixel, in parallel for large inputs.
+     *
+     * @return a new array of palette indices
+     */
+    public int[] nearest(int[] pixels) {
+        int[] indices = new int[pixels.length];
+        this.nearest(pixels, indices);
+
+        return indices;
+    }
+
+    /**
+     * Writes the index of the closest palette color for every packed pixel to {@code dst}.
+     *
+     * @throws IllegalArgumentException if {@code dst} is shorter than {@code pixels}
+     */
+    public void nearest(int[] pixels, int[] dst) {
+        if (dst.length < pixels.length) {
+            throw new IllegalArgumentException("Destination is shorter than the pixels");
+        }
+
+        Slice slice = this.hasLookupTable() ? (from, to) -> {
+            for (int i = from; i < to; i++) {
+                dst[i] = this.nearest(pixels[i]);
+            }
+        } : (from, to) -> this.searchAll(pixels, dst, from, to);
+
+        if (pixels.length < PARALLEL_THRESHOLD) {
+            slice.run(0, pixels.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new Batch(PARALLEL_THRESHOLD / 4, slice, 0, pixels.length));
+        }
+    }
+
+    /**
+     * Maps an image to palette indices with Floyd–Steinberg dithering, which spreads the error of every
+     * pixel over its unprocessed neighbours so areas between two palette colors get a mix of both.
+     * Error diffusion depends on the previous pixels, so this runs on the calling thread.
+     *
+     * @param pixels the packed pixels, row by row
+     * @return a new array of palette indices
+     * @throws IllegalArgumentException if {@code pixels} does not hold {@code width * height} pixels
+     */
+    public int[] dither(int[] pixels, int width, int height) {
+        if (width < 0 || height < 0 || pixels.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width + "x" + height + " pixels, got " + pixels.length);
+        }
+
+        int[] indices = new int[pixels.length];
+        // Error of the current and the next row per channel, with a pixel of padding on both sides
+        float[] current = new float[(width + 2) * 3];
+        float[] next = new float[(width + 2) * 3];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[y * width + x];
+                int e = (x + 1) * 3;
+
+                int r = clamp((pixel >> 16 & 0xFF) + current[e]);
+                int g = clamp((pixel >> 8 & 0xFF) + current[e + 1]);
+                int b = clamp((pixel & 0xFF) + current[e + 2]);
+
+                int index = this.nearest(r << 16 | g << 8 | b);
+                int chosen = this.rgb[index];
+                indices[y * width + x] = index;
+
+                float er = r - (chosen >> 16 & 0xFF);
+                float eg = g - (chosen >> 8 & 0xFF);
+                float eb = b - (chosen & 0xFF);
+
+                // 7/16 right, 3/16 below left, 5/16 below, 1/16 below right
+                diffuse(current, e + 3, er, eg, eb, 7 / 16f);
+                diffuse(next, e - 3, er, eg, eb, 3 / 16f);
+                diffuse(next, e, er, eg, eb, 5 / 16f);
+                diffuse(next, e + 3, er, eg, eb, 1 / 16f);
+            }
+
+            float[] done = current;
+            current = next;
+            next = done;
+            Arrays.fill(next, 0);
+        }
+
+        return indices;
+    }
+
+    private static void diffuse(float[] error, int offset, float r, float g, float b, float weight) {
+        error[offset] += r * weight;
+        error[offset + 1] += g * weight;
+        error[offset + 2] += b * weight;
+    }
+
+    private static int clamp(float channel) {
+        return channel <= 0 ? 0 : channel >= 255 ? 255 : (int) (channel + 0.5f);
+    }
+
+    // Images repeat colors a lot, so every slice remembers its recent answers in a small direct-mapped table
+    private void searchAll(int[] pixels, int[] dst, int from, int to) {
+        int[] recentRgb = new int[RECENT_SIZE];
+        int[] recentIndex = new int[RECENT_SIZE];
+        float[] query = new float[3];
+
+        Arrays.fill(recentRgb, -1);
+
+        for (int i = from; i < to; i++) {
+            int rgb = pixels[i] & 0xFFFFFF;
+            int h = rgb * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & (RECENT_SIZE - 1);
+
+            if (recentRgb[slot] != rgb) {
+                OkLab.fromRgb(rgb, query, 0);
+                recentRgb[slot] = rgb;
+                recentIndex[slot] = this.search(query);
+            }
+
+            dst[i] = recentIndex[slot];
+        }
+    }
+    // #endregion
+
+    // #region K-D TREE
+    // Sorts tree[from, to) so the median on the widest axis is in the middle, then recurses into both halves
+    private void build(int from, int to) {
+        if (to - from <= 1) {
+            return;
+        }
+
+        int widest = 0;
+        float widestSpread = -1;
+
+        for (int a = 0; a < 3; a++) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+
+            for (int i = from; i < to; i++) {
+                float value = this.lab[this.tree[i] * 3 + a];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = a;
+            }
+        }
+
+        int splitAxis = widest;
+        Integer[] range = new Integer[to - from];
+
+        for (int i = from; i < to; i++) {
+            range[i - from] = this.tree[i];
+        }
+
+        Arrays.sort(range, (x, y) -> Float.compare(this.lab[x * 3 + splitAxis], this.lab[y * 3 + splitAxis]));
+
+        for (int i = from; i < to; i++) {
+            this.tree[i] = range[i - from];
+        }
+
+        int mid = (from + to) >>> 1;
+        this.axis[mid] = (byte) splitAxis;
+
+        this.build(from, mid);
+        this.build(mid + 1, to);
+    }
+
+    private int search(float[] query) {
+        Nearest best = new Nearest();
+        this.search(query, 0, this.tree.length, best);
+
+        return best.index;
+    }
+
+    private void search(float[] query, int from, int to, Nearest best) {
+        if (from >= to) {
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        int index = this.tree[mid];
+        float distance = OkLab.distanceSquared(query, 0, this.lab, index * 3);
+
+        if (distance < best.distance || (distance == best.distance && index < best.index)) {
+            best.distance = distance;
+            best.index = index;
+        }
+
+        if (to - from == 1) {
+            return;
+        }
+
+        int a = this.axis[mid];
+        float delta = query[a] - this.lab[index * 3 + a];
+
+        // The side of the query first, the other one only if the splitting plane is closer than the best match
+        if (delta < 0) {
+            this.search(query, from, mid, best);
+
+            if (delta * delta <= best.distance) {
+                this.search(query, mid + 1, to, best);
+            }
+        } else {
+            this.search(query, mid + 1, to, best);
+
+            if (delta * delta <= best.distance) {
+                this.search(query, from, mid, best);
+            }
+        }
+    }
+
+    private static final class Nearest {
+        private float distance = Float.MAX_VALUE;
+        private int index = -1;
+    }
+    // #endregion
+
+    @FunctionalInterface
+    private interface Slice {
+        void run(int from, int to);
+    }
+
+    private static final class Batch extends RecursiveAction {
+        private final int threshold;
+        private final Slice slice;
+        private final int from;
+        private final int to;
+
+        private Batch(int threshold, Slice slice, int from, int to) {
+            this.threshold = threshold;
+            this.slice = slice;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.threshold) {
+                this.slice.run(this.from, this.to);
+                return;
+            }
+
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new Batch(this.threshold, this.slice, this.from, mid), new Batch(this.threshold, this.slice, mid, this.to));
+        }
+    }
+}
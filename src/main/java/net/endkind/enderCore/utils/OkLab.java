@@ -0,0 +1,132 @@
+package net.endkind.enderCore.utils;
+
+/**
+ * Conversions between packed sRGB and the OKLab perceptual color space.
+ * <p>
+ * Distances and interpolation in OKLab match perceived color differences much better than in sRGB,
+ * so gradients keep an even brightness and nearest-color matching picks the color a viewer would.
+ * </p>
+ */
+public final class OkLab {
+    private static final int ENCODE_STEPS = 4096;
+    private static final float[] DECODE = new float[256];
+    private static final byte[] ENCODE = new byte[ENCODE_STEPS + 1];
+
+    static {
+        for (int i = 0; i < DECODE.length; i++) {
+            double c = i / 255.0;
+            DECODE[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+
+        for (int i = 0; i < ENCODE.length; i++) {
+            double c = (double) i / ENCODE_STEPS;
+            double encoded = c <= 0.0031308 ? c * 12.92 : 1.055 * Math.pow(c, 1 / 2.4) - 0.055;
+            ENCODE[i] = (byte) Math.round(encoded * 255);
+        }
+    }
+
+    private OkLab() {}
+
+    /**
+     * Converts a packed RGB value to OKLab.
+     *
+     * @param rgb the packed RGB value (e.g., {@code 0x6400D4}), the upper 8 bits are ignored
+     * @return a new array of {@code L, a, b}
+     */
+    public static float[] fromRgb(int rgb) {
+        float[] lab = new float[3];
+        fromRgb(rgb, lab, 0);
+
+        return lab;
+    }
+
+    /**
+     * Converts a packed RGB value to OKLab and writes {@code L, a, b} to {@code dst} starting at {@code offset}.
+     *
+     * @param rgb    the packed RGB value, the upper 8 bits are ignored
+     * @param dst    the destination array
+     * @param offset the index of {@code L} in {@code dst}
+     */
+    public static void fromRgb(int rgb, float[] dst, int offset) {
+        float r = DECODE[rgb >> 16 & 0xFF];
+        float g = DECODE[rgb >> 8 & 0xFF];
+        float b = DECODE[rgb & 0xFF];
+
+        double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+        double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+
+        dst[offset] = (float) (0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s);
+        dst[offset + 1] = (float) (1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s);
+        dst[offset + 2] = (float) (0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s);
+    }
+
+    /**
+     * Converts an OKLab color to packed RGB. Colors outside the sRGB gamut are clamped per channel.
+     *
+     * @return the packed RGB value
+     */
+    public static int toRgb(float lightness, float a, float b) {
+        double l = lightness + 0.3963377774 * a + 0.2158037573 * b;
+        double m = lightness - 0.1055613458 * a - 0.0638541728 * b;
+        double s = lightness - 0.0894841775 * a - 1.2914855480 * b;
+
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        int red = encode(4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s);
+        int green = encode(-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s);
+        int blue = encode(-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s);
+
+        return red << 16 | green << 8 | blue;
+    }
+
+    /**
+     * Interpolates between two colors in OKLab.
+     *
+     * @param from the packed RGB value at {@code t = 0}
+     * @param to   the packed RGB value at {@code t = 1}
+     * @param t    the position between the colors, clamped to 0-1
+     * @return the packed RGB value at {@code t}
+     */
+    public static int mix(int from, int to, double t) {
+        float[] lab = new float[6];
+        fromRgb(from, lab, 0);
+        fromRgb(to, lab, 3);
+
+        return mix(lab, 0, lab, 3, t);
+    }
+
+    static int mix(float[] from, int fromOffset, float[] to, int toOffset, double t) {
+        float f = (float) Math.max(0, Math.min(1, t));
+
+        return toRgb(
+                from[fromOffset] + (to[toOffset] - from[fromOffset]) * f,
+                from[fromOffset + 1] + (to[toOffset + 1] - from[fromOffset + 1]) * f,
+                from[fromOffset + 2] + (to[toOffset + 2] - from[fromOffset + 2]) * f);
+    }
+
+    /**
+     * Returns the squared Euclidean distance of two OKLab colors stored at the given offsets.
+     */
+    public static float distanceSquared(float[] a, int aOffset, float[] b, int bOffset) {
+        float dl = a[aOffset] - b[bOffset];
+        float da = a[aOffset + 1] - b[bOffset + 1];
+        float db = a[aOffset + 2] - b[bOffset + 2];
+
+        return dl * dl + da * da + db * db;
+    }
+
+    private static int encode(double linear) {
+        if (!(linear > 0)) {
+            return 0;
+        }
+
+        if (linear >= 1) {
+            return 255;
+        }
+
+        return ENCODE[(int) (linear * ENCODE_STEPS + 0.5)] & 0xFF;
+    }
+}
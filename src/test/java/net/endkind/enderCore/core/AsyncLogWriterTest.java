@@ -0,0 +1,124 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.LogOverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogWriterTest {
+    private final Logger root = Logger.getLogger("");
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final Handler capture = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            // Holds the writer on its first record, so the buffer fills up behind it
+            started.countDown();
+
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+    private Handler[] handlers;
+
+    @BeforeEach
+    void captureRecords() {
+        this.handlers = this.root.getHandlers();
+
+        for (Handler handler : this.handlers) {
+            this.root.removeHandler(handler);
+        }
+
+        this.root.addHandler(this.capture);
+    }
+
+    @AfterEach
+    void restoreHandlers() {
+        this.root.removeHandler(this.capture);
+
+        for (Handler handler : this.handlers) {
+            this.root.addHandler(handler);
+        }
+    }
+
+    @Test
+    void dropsTheOldestRecordsOfTheLowestLevel() throws InterruptedException {
+        EnderLogger logger = new EnderLogger("Test");
+        AsyncLogWriter writer = new AsyncLogWriter(logger, "Test", Logger.getLogger("Test"), 4, LogOverflowPolicy.DROP_LOWEST_LEVEL);
+
+        writer.offer(Level.INFO, new String[]{"first"});
+        assertTrue(this.started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            writer.offer(Level.INFO, new String[]{"info ", String.valueOf(i)});
+        }
+
+        writer.offer(Level.WARNING, new String[]{"warning 0"});
+        writer.offer(Level.WARNING, new String[]{"warning 1"});
+        writer.offer(Level.INFO, new String[]{"late"});
+
+        this.gate.countDown();
+        writer.shutdown();
+
+        assertEquals(6, this.messages.size(), this.messages.toString());
+        assertTrue(this.messages.get(1).contains("info 2"));
+        assertTrue(this.messages.get(2).contains("info 3"));
+        assertTrue(this.messages.get(3).contains("warning 0"));
+        assertTrue(this.messages.get(4).contains("warning 1"));
+        assertTrue(this.messages.get(5).contains("dropped 3 records"));
+    }
+
+    @Test
+    void coalescesRepeatsWithoutLosingOtherRecords() throws InterruptedException {
+        EnderLogger logger = new EnderLogger("Test");
+        AsyncLogWriter writer = new AsyncLogWriter(logger, "Test", Logger.getLogger("Test"), 2, LogOverflowPolicy.COALESCE);
+
+        writer.offer(Level.INFO, new String[]{"first"});
+        assertTrue(this.started.await(5, TimeUnit.SECONDS));
+
+        writer.offer(Level.INFO, new String[]{"a"});
+        writer.offer(Level.INFO, new String[]{"b"});
+        writer.offer(Level.INFO, new String[]{"b"});
+
+        Thread caller = new Thread(() -> writer.offer(Level.INFO, new String[]{"c"}));
+        caller.start();
+        caller.join(200);
+
+        // A different record waits for a slot instead of being dropped
+        assertTrue(caller.isAlive());
+
+        this.gate.countDown();
+        caller.join(5000);
+        writer.shutdown();
+
+        assertFalse(caller.isAlive());
+        assertEquals(4, this.messages.size(), this.messages.toString());
+        assertTrue(this.messages.get(2).contains("b (x2)"));
+        assertTrue(this.messages.get(3).contains("c"));
+    }
+}
@@ -0,0 +1,192 @@
+package net.endkind.enderCore.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnderCacheTest {
+    @Test
+    void countsHitsAndMisses() {
+        EnderCache<String, String> cache = EnderCache.<String, String>builder().maximumSize(10).build("test");
+
+        assertNull(cache.getIfPresent("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.getIfPresent("a"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void staysWithinMaximumSize() {
+        EnderCache<Integer, Integer> cache = EnderCache.<Integer, Integer>builder().maximumSize(100).build("test");
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getEvictionCount() >= 900);
+    }
+
+    @Test
+    void staysWithinMaximumWeight() {
+        EnderCache<Integer, byte[]> cache = EnderCache.<Integer, byte[]>builder()
+                .maximumWeight(10_000, (key, value) -> value.length)
+                .build("test");
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, new byte[100]);
+        }
+
+        assertTrue(cache.getWeight() <= 10_000);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    void keepsFrequentEntriesDuringScan() {
+        EnderCache<Integer, Integer> cache = EnderCache.<Integer, Integer>builder().maximumSize(100).build("test");
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getIfPresent(i);
+            }
+        }
+
+        // Keys that are only seen once must not flush the ones that are read all the time
+        for (int i = 1000; i < 100_000; i++) {
+            cache.put(i, i);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, cache.getIfPresent(i));
+        }
+    }
+
+    @Test
+    void expiresAfterWrite() throws InterruptedException {
+        EnderCache<String, String> cache = EnderCache.<String, String>builder()
+                .maximumSize(10)
+                .expireAfterWrite(Duration.ofMillis(20))
+                .build("test");
+
+        cache.put("a", "1");
+        Thread.sleep(50);
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void sharesConcurrentLoads() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        EnderCache<String, String> cache = EnderCache.<String, String>builder()
+                .maximumSize(10)
+                .loader(key -> {
+                    loads.incrementAndGet();
+
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    return key.toUpperCase();
+                })
+                .build("test");
+
+        var first = cache.getAsync("a");
+        var second = cache.getAsync("a");
+        release.countDown();
+
+        assertEquals("A", first.join());
+        assertEquals("A", second.join());
+        assertEquals(1, loads.get());
+        assertEquals("A", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void keepsUpdatedEntryWhenFull() {
+        EnderCache<String, String> cache = EnderCache.<String, String>builder()
+                .maximumWeight(10, (key, value) -> value.length())
+                .build("test");
+
+        for (char c = 'a'; c < 'k'; c++) {
+            cache.put(String.valueOf(c), "x");
+        }
+
+        for (int round = 0; round < 5; round++) {
+            for (char c = 'b'; c < 'k'; c++) {
+                cache.getIfPresent(String.valueOf(c));
+            }
+        }
+
+        // Rarely read, but an update must not have to win admission against the entries already cached
+        cache.put("a", "xx");
+
+        assertEquals("xx", cache.getIfPresent("a"));
+        assertEquals(10, cache.getWeight());
+    }
+
+    @Test
+    void dropsLoadInvalidatedWhileRunning() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EnderCache<String, String> cache = EnderCache.<String, String>builder()
+                .maximumSize(10)
+                .loader(key -> {
+                    started.countDown();
+
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    return key.toUpperCase();
+                })
+                .build("test");
+
+        var future = cache.getAsync("a");
+        started.await();
+        cache.invalidate("a");
+        release.countDown();
+
+        assertEquals("A", future.join());
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void reportsLoadFailures() {
+        EnderCache<String, String> cache = EnderCache.<String, String>builder()
+                .maximumSize(10)
+                .loader(key -> {
+                    throw new IllegalStateException("unavailable");
+                })
+                .build("test");
+
+        assertThrows(CompletionException.class, () -> cache.get("a"));
+        assertEquals(1, cache.getLoadFailureCount());
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void rejectsGetWithoutLoader() {
+        EnderCache<String, String> cache = EnderCache.<String, String>builder().maximumSize(10).build("test");
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a"));
+    }
+}
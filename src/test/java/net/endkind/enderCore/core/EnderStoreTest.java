@@ -0,0 +1,185 @@
+package net.endkind.enderCore.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnderStoreTest {
+    private static final long SEGMENT_BYTES = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsPendingAndFlushedValues() throws IOException {
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            store.putString("a", "1");
+            assertEquals("1", store.getString("a"));
+
+            store.flush().join();
+
+            assertEquals("1", store.getString("a"));
+            assertEquals(0, store.getPendingCount());
+            assertTrue(store.contains("a"));
+            assertNull(store.get("missing"));
+        }
+    }
+
+    @Test
+    void keepsValuesAcrossReopen() throws IOException {
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            store.putString("a", "1");
+            store.putString("b", "2");
+            store.putString("a", "3");
+            store.delete("b");
+        }
+
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            assertEquals("3", store.getString("a"));
+            assertNull(store.get("b"));
+            assertEquals(Set.of("a"), store.keys());
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegments() throws IOException {
+        byte[] value = new byte[4096];
+
+        try (EnderStore store = new EnderStore(this.directory, 1 << 18)) {
+            for (int i = 0; i < 128; i++) {
+                value[0] = (byte) i;
+                store.put("key" + i, value.clone());
+            }
+
+            store.flush().join();
+
+            assertTrue(store.getSegmentCount() > 1);
+
+            for (int i = 0; i < 128; i++) {
+                assertEquals((byte) i, store.get("key" + i)[0]);
+            }
+        }
+    }
+
+    @Test
+    void truncatesTornTailOfNewestSegment() throws IOException {
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            store.putString("a", "1");
+            store.putString("b", "2");
+        }
+
+        Path segment = this.newestSegment();
+        long size = Files.size(segment);
+
+        // A write cut short by a crash leaves part of the last record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            assertEquals("1", store.getString("a"));
+            assertNull(store.get("b"));
+        }
+
+        assertTrue(Files.size(segment) < size - 3);
+    }
+
+    @Test
+    void refusesDamagedOlderSegment() throws IOException {
+        try (EnderStore store = new EnderStore(this.directory, 1 << 18)) {
+            for (int i = 0; i < 128; i++) {
+                store.put("key" + i, new byte[4096]);
+            }
+        }
+
+        Path oldest;
+
+        try (var files = Files.list(this.directory)) {
+            oldest = files.sorted().findFirst().orElseThrow();
+        }
+
+        try (FileChannel channel = FileChannel.open(oldest, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}), 16);
+        }
+
+        assertThrows(IOException.class, () -> new EnderStore(this.directory, 1 << 18));
+    }
+
+    @Test
+    void rejectsWritesAfterClose() throws IOException {
+        EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES);
+        store.close();
+
+        assertTrue(store.isClosed());
+        assertThrows(IllegalStateException.class, () -> store.putString("a", "1"));
+
+        CompletableFuture<Void> flush = store.flush();
+        assertTrue(flush.isDone());
+        assertFalse(flush.isCompletedExceptionally());
+    }
+
+    @Test
+    void failsFlushesOnceTheWriterStopped() throws Exception {
+        EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES);
+
+        try {
+            store.putString("a", "1");
+            store.flush().join();
+
+            // Closing the channel under the writer makes its next write fail
+            var active = EnderStore.class.getDeclaredField("active");
+            active.setAccessible(true);
+            Object segment = active.get(store);
+            var channel = segment.getClass().getDeclaredField("channel");
+            channel.setAccessible(true);
+            ((FileChannel) channel.get(segment)).close();
+
+            store.putString("b", "2");
+
+            CompletableFuture<Void> flush = store.flush();
+            assertThrows(ExecutionException.class, () -> flush.get(5, TimeUnit.SECONDS));
+            assertTrue(store.isClosed());
+            assertTrue(store.getFailure() != null);
+            assertThrows(IllegalStateException.class, () -> store.putString("c", "3"));
+            assertTrue(store.flush().isCompletedExceptionally());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void storesBinaryValues() throws IOException {
+        byte[] value = {0, -1, 42, 127, -128};
+
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            store.put("bytes", value);
+        }
+
+        try (EnderStore store = new EnderStore(this.directory, SEGMENT_BYTES)) {
+            assertArrayEquals(value, store.get("bytes"));
+        }
+    }
+
+    private Path newestSegment() throws IOException {
+        try (var files = Files.list(this.directory)) {
+            return files.max(Path::compareTo).orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package net.endkind.enderCore.core;
+
+import net.endkind.enderCore.api.TaskAffinity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InitTaskGraphTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void runsTasksAfterTheirDependencies() {
+        InitTaskGraph graph = new InitTaskGraph();
+        List<String> done = new CopyOnWriteArrayList<>();
+
+        graph.add("commands", TaskAffinity.MAIN, () -> done.add("commands"), "config", "database");
+        graph.add("database", TaskAffinity.ASYNC, () -> done.add("database"), "config");
+        graph.add("config", TaskAffinity.MAIN, () -> done.add("config"));
+
+        List<InitTaskGraph.Timing> timings = graph.run(this.executor);
+
+        assertEquals(List.of("config", "database", "commands"), done);
+        assertEquals(3, timings.size());
+    }
+
+    @Test
+    void runsMainTasksOnTheCallingThread() {
+        InitTaskGraph graph = new InitTaskGraph();
+        Thread caller = Thread.currentThread();
+        Thread[] ran = new Thread[2];
+
+        graph.add("async", TaskAffinity.ASYNC, () -> ran[0] = Thread.currentThread());
+        graph.add("main", TaskAffinity.MAIN, () -> ran[1] = Thread.currentThread(), "async");
+
+        graph.run(this.executor);
+
+        assertTrue(ran[0] != caller);
+        assertSame(caller, ran[1]);
+    }
+
+    @Test
+    void rejectsUnknownDependencies() {
+        InitTaskGraph graph = new InitTaskGraph();
+        graph.add("a", TaskAffinity.MAIN, () -> {}, "b");
+
+        assertThrows(IllegalArgumentException.class, () -> graph.run(this.executor));
+    }
+
+    @Test
+    void rejectsCycles() {
+        InitTaskGraph graph = new InitTaskGraph();
+        graph.add("a", TaskAffinity.MAIN, () -> {}, "b");
+        graph.add("b", TaskAffinity.ASYNC, () -> {}, "a");
+
+        assertThrows(IllegalArgumentException.class, () -> graph.run(this.executor));
+    }
+
+    @Test
+    void rejectsDuplicateNames() {
+        InitTaskGraph graph = new InitTaskGraph();
+        graph.add("a", TaskAffinity.MAIN, () -> {});
+
+        assertThrows(IllegalArgumentException.class, () -> graph.add("a", TaskAffinity.ASYNC, () -> {}));
+    }
+
+    @Test
+    void skipsDependentsOfFailedTasks() {
+        InitTaskGraph graph = new InitTaskGraph();
+        List<String> done = new CopyOnWriteArrayList<>();
+        RuntimeException failure = new RuntimeException("broken");
+
+        graph.add("a", TaskAffinity.ASYNC, () -> {
+            throw failure;
+        });
+        graph.add("b", TaskAffinity.MAIN, () -> done.add("b"), "a");
+        graph.add("c", TaskAffinity.MAIN, () -> done.add("c"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> graph.run(this.executor));
+
+        assertSame(failure, e.getCause());
+        assertEquals(List.of("c"), done);
+    }
+}
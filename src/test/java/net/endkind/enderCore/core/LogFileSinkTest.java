@@ -0,0 +1,162 @@
+package net.endkind.enderCore.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogFileSinkTest {
+    private static final long MIN_BYTES = 64 * 1024;
+    private static final Logger CONSOLE = Logger.getLogger(LogFileSinkTest.class.getName());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void escapesMessagesAsJson() throws IOException {
+        LogFileSink sink = new LogFileSink(this.directory, "Test \"Plugin\"", CONSOLE, MIN_BYTES, 0, 0);
+
+        sink.append(Level.INFO, new String[]{"quote \" backslash \\ ", "newline \n tab \t bell \u0007 ", "\u001B[31mred\u001B[0m"});
+        sink.append(EnderLogger.DEBUG, new String[]{"debug"});
+        sink.close();
+
+        List<String> lines = Files.readAllLines(this.directory.resolve("latest.jsonl"), StandardCharsets.UTF_8);
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"ts\":\""), lines.get(0));
+        assertTrue(lines.get(0).contains("\"level\":\"INFO\",\"plugin\":\"Test \\\"Plugin\\\"\""), lines.get(0));
+        assertTrue(lines.get(0).endsWith("\"msg\":\"quote \\\" backslash \\\\ newline \\n tab \\t bell \\u0007 red\"}"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"level\":\"DEBUG\""), lines.get(1));
+    }
+
+    @Test
+    void rotatesBySizeIntoGzippedArchives() throws Exception {
+        LogFileSink sink = new LogFileSink(this.directory, "Test", CONSOLE, MIN_BYTES, 0, 0);
+        String padding = "x".repeat(200);
+
+        for (int i = 0; i < 1000; i++) {
+            sink.append(Level.INFO, new String[]{"record ", String.valueOf(i), " ", padding});
+
+            // Stay below the queue capacity, dropped records would make the count below unreliable
+            if (i % 100 == 99) {
+                Thread.sleep(20);
+            }
+        }
+
+        sink.close();
+
+        List<Path> archives = this.awaitArchives(2);
+        long records = Files.readAllLines(this.directory.resolve("latest.jsonl")).size();
+
+        for (Path archive : archives) {
+            String content = gunzip(archive);
+
+            assertTrue(content.startsWith("{\"ts\":\""), archive.toString());
+            records += content.lines().count();
+        }
+
+        assertEquals(1000, records);
+    }
+
+    @Test
+    void rotatesByAge() throws Exception {
+        LogFileSink sink = new LogFileSink(this.directory, "Test", CONSOLE, MIN_BYTES, 200, 0);
+
+        sink.append(Level.INFO, new String[]{"old"});
+        Thread.sleep(1500);
+        sink.append(Level.INFO, new String[]{"new"});
+        sink.close();
+
+        List<Path> archives = this.awaitArchives(1);
+
+        assertTrue(gunzip(archives.get(0)).contains("\"msg\":\"old\""));
+        assertFalse(Files.readString(this.directory.resolve("latest.jsonl")).contains("\"msg\":\"old\""));
+    }
+
+    @Test
+    void agesAnExistingFileFromItsFirstRecord() throws Exception {
+        // Written an hour ago and appended to just now, as before a restart
+        String old = "{\"ts\":\"" + Instant.now().minusSeconds(3600) + "\",\"level\":\"INFO\",\"plugin\":\"Test\",\"thread\":\"main\",\"msg\":\"old\"}\n";
+        Files.writeString(this.directory.resolve("latest.jsonl"), old);
+
+        LogFileSink sink = new LogFileSink(this.directory, "Test", CONSOLE, MIN_BYTES, TimeUnit.MINUTES.toMillis(10), 0);
+
+        sink.append(Level.INFO, new String[]{"new"});
+        Thread.sleep(1500);
+        sink.close();
+
+        List<Path> archives = this.awaitArchives(1);
+
+        assertTrue(gunzip(archives.get(0)).contains("\"msg\":\"old\""));
+    }
+
+    @Test
+    void keepsOnlyTheNewestArchives() throws Exception {
+        LogFileSink sink = new LogFileSink(this.directory, "Test", CONSOLE, MIN_BYTES, 0, 2);
+        String padding = "x".repeat(1000);
+
+        for (int i = 0; i < 400; i++) {
+            sink.append(Level.INFO, new String[]{padding});
+
+            if (i % 50 == 49) {
+                Thread.sleep(20);
+            }
+        }
+
+        sink.close();
+        Thread.sleep(500);
+
+        assertTrue(this.archives().size() <= 2);
+    }
+
+    // Archives are compressed on a background thread after the rotation
+    private List<Path> awaitArchives(int count) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<Path> archives = this.archives();
+
+        while (archives.size() < count || this.hasUncompressed()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Expected " + count + " archives, found " + archives);
+            }
+
+            Thread.sleep(20);
+            archives = this.archives();
+        }
+
+        return archives;
+    }
+
+    private List<Path> archives() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jsonl.gz")).sorted().toList();
+        }
+    }
+
+    private boolean hasUncompressed() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.anyMatch(file -> file.getFileName().toString().endsWith(".jsonl")
+                    && !file.getFileName().toString().equals("latest.jsonl"));
+        }
+    }
+
+    private static String gunzip(Path archive) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package net.endkind.enderCore.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogRateLimiterTest {
+    private final Logger root = Logger.getLogger("");
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final Handler capture = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+    private Handler[] handlers;
+
+    @BeforeEach
+    void captureRecords() {
+        // EnderLogger's JUL loggers hand their records to the root logger
+        this.handlers = this.root.getHandlers();
+
+        for (Handler handler : this.handlers) {
+            this.root.removeHandler(handler);
+        }
+
+        this.root.addHandler(this.capture);
+    }
+
+    @AfterEach
+    void restoreHandlers() {
+        this.root.removeHandler(this.capture);
+
+        for (Handler handler : this.handlers) {
+            this.root.addHandler(handler);
+        }
+    }
+
+    @Test
+    void summarizesSuppressedRepeats() throws InterruptedException {
+        EnderLogger logger = new EnderLogger("Test");
+        logger.enableRateLimit(10, 1);
+
+        for (int i = 0; i < 5; i++) {
+            logger.info("Disk is full");
+        }
+
+        assertEquals(1, this.messages.size());
+
+        Thread.sleep(150);
+        logger.info("Disk is full");
+
+        assertEquals(2, this.messages.size());
+        assertTrue(this.messages.get(1).contains("Disk is full (repeated 4 times"), this.messages.get(1));
+    }
+
+    @Test
+    void keysPatternsOnTheirTemplate() {
+        EnderLogger logger = new EnderLogger("Test");
+        logger.enableRateLimit(1, 1);
+
+        logger.info("Player {} joined", "Steve");
+        logger.info("Player {} joined", "Alex");
+
+        assertEquals(1, this.messages.size());
+    }
+
+    @Test
+    void keysPartsOnTheirFullText() {
+        EnderLogger logger = new EnderLogger("Test");
+        logger.enableRateLimit(1, 1);
+
+        logger.info(new String[]{"Player ", "Steve", " joined"});
+        logger.info(new String[]{"Player ", "Alex", " joined"});
+        logger.info(new String[]{"Player ", "Alex", " joined"});
+
+        assertEquals(2, this.messages.size());
+        assertTrue(this.messages.get(1).contains("Alex"), this.messages.get(1));
+    }
+
+    @Test
+    void limitsMessagesBeyondTheKeyTable() {
+        EnderLogger logger = new EnderLogger("Test");
+        logger.enableRateLimit(1, 1);
+
+        for (int i = 0; i < 10_000; i++) {
+            logger.info("Message " + i);
+        }
+
+        // Distinct messages get their own buckets up to the table size, the rest share one
+        assertTrue(this.messages.size() < 5000, "Logged " + this.messages.size());
+    }
+}
@@ -0,0 +1,80 @@
+package net.endkind.enderCore.platform.papermc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityIntMapTest {
+    @Test
+    void storesAndReplacesValues() {
+        EntityIntMap map = new EntityIntMap();
+
+        assertEquals(EntityIntMap.MISSING, map.get(1));
+
+        map.put(1, 10);
+        map.put(2, 20);
+        map.put(1, 11);
+
+        assertEquals(11, map.get(1));
+        assertEquals(20, map.get(2));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        EntityIntMap map = new EntityIntMap();
+
+        for (int id = 0; id < 10_000; id++) {
+            map.put(id, id * 2);
+        }
+
+        assertEquals(10_000, map.size());
+
+        for (int id = 0; id < 10_000; id++) {
+            assertEquals(id * 2, map.get(id));
+        }
+    }
+
+    @Test
+    void retainsMatchingValuesAndShrinks() {
+        EntityIntMap map = new EntityIntMap();
+
+        for (int id = 0; id < 1000; id++) {
+            map.put(id, id);
+        }
+
+        map.retain(value -> value >= 990);
+
+        assertEquals(10, map.size());
+        assertEquals(EntityIntMap.MISSING, map.get(5));
+        assertEquals(995, map.get(995));
+        assertFalse(map.isFull());
+    }
+
+    @Test
+    void clearsAllEntries() {
+        EntityIntMap map = new EntityIntMap();
+
+        map.put(7, 1);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(EntityIntMap.MISSING, map.get(7));
+    }
+
+    @Test
+    void reportsWhenTheNextIdGrowsTheTable() {
+        EntityIntMap map = new EntityIntMap();
+        int id = 0;
+
+        while (!map.isFull()) {
+            map.put(id++, 0);
+        }
+
+        assertTrue(map.size() > 0);
+        map.put(id, 0);
+        assertFalse(map.isFull());
+    }
+}